@@ -0,0 +1,78 @@
+package com.clinic.benchmarks.codecs;
+
+import com.clinic.commonservice.codecs.RegisterUserDeserializer;
+import com.clinic.commonservice.codecs.RegisterUserSerializer;
+import com.clinic.commonservice.models.RegisterUser;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the binary RegisterUser codec with the Spring Kafka JSON serializers, including the
+ * type headers the JSON path writes and reads. The encoded sizes are printed at setup.
+ * Run with {@code -prof gc} to see the bytes allocated per message.
+ *
+ * @author caito
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegisterUserCodecBenchmark {
+    private static final String TOPIC = "userTopic";
+
+    private final RegisterUser message = new RegisterUser("patient12345@clinic.test", "Patient Number 12345",
+            "7d8f3c2a-4b1e-4f6a-9c0d-2e5b8a1f6c3d");
+    private RegisterUserSerializer binarySerializer;
+    private RegisterUserDeserializer binaryDeserializer;
+    private JsonSerializer<RegisterUser> jsonSerializer;
+    private JsonDeserializer<RegisterUser> jsonDeserializer;
+    private byte[] binary;
+    private byte[] json;
+    private RecordHeaders jsonHeaders;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        binarySerializer = new RegisterUserSerializer();
+        binaryDeserializer = new RegisterUserDeserializer();
+        jsonSerializer = new JsonSerializer<>();
+        jsonSerializer.configure(Map.of(), false);
+        jsonDeserializer = new JsonDeserializer<>();
+        // the headers are reused across invocations, so they must not be consumed by the deserializer
+        jsonDeserializer.configure(Map.of(JsonDeserializer.TRUSTED_PACKAGES, "*",
+                JsonDeserializer.REMOVE_TYPE_INFO_HEADERS, false), false);
+        binary = binarySerializer.serialize(TOPIC, message);
+        jsonHeaders = new RecordHeaders();
+        json = jsonSerializer.serialize(TOPIC, jsonHeaders, message);
+        int headerBytes = 0;
+        for (var header : jsonHeaders) headerBytes += header.key().length() + header.value().length;
+        System.out.printf("%nbytes per message: binary=%d json=%d (+%d type header bytes)%n",
+                binary.length, json.length, headerBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return binarySerializer.serialize(TOPIC, message);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return jsonSerializer.serialize(TOPIC, new RecordHeaders(), message);
+    }
+
+    @Benchmark
+    public RegisterUser decodeBinary() {
+        return binaryDeserializer.deserialize(TOPIC, binary);
+    }
+
+    @Benchmark
+    public RegisterUser decodeJson() {
+        return jsonDeserializer.deserialize(TOPIC, jsonHeaders, json);
+    }
+}
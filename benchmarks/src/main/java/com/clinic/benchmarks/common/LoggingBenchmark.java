@@ -0,0 +1,90 @@
+package com.clinic.benchmarks.common;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a log statement for the calling thread, written the way the services used to
+ * (the message concatenated and wrapped in ANSI color codes before the call) and the way they do now
+ * (a parameterized message, formatted only if the event is logged). The disabled benchmarks log below
+ * the level of the logger, the enabled ones encode the event synchronously and discard the bytes.
+ * Run with {@code -prof gc} to compare the bytes allocated per statement.
+ * <p>
+ * Once the logger call is inlined, the JIT drops a concatenation nobody reads, so both disabled
+ * statements cost next to nothing here. Where the call is not inlined the concatenated statement
+ * still builds its message, and where it is logged it costs as much as a parameterized one: what
+ * saves work on the request path is logging the per request steps at DEBUG.
+ *
+ * @author caito
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingBenchmark {
+    private static final String COLOR_RED = "\u001B[31m";
+    private static final String COLOR_RESET = "\u001B[0m";
+
+    private final String email = "patient12345@clinic.test";
+    private Logger disabled;
+    private Logger enabled;
+    private OutputStreamAppender<ILoggingEvent> sink;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        ch.qos.logback.classic.Logger disabledLogger = context.getLogger("benchmark.disabled");
+        disabledLogger.setLevel(ch.qos.logback.classic.Level.WARN);
+        disabled = disabledLogger;
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p [%t] %logger{39} %mdc : %m%n");
+        encoder.start();
+        sink = new OutputStreamAppender<>();
+        sink.setContext(context);
+        sink.setEncoder(encoder);
+        sink.setOutputStream(OutputStream.nullOutputStream());
+        sink.start();
+        ch.qos.logback.classic.Logger enabledLogger = context.getLogger("benchmark.enabled");
+        enabledLogger.setLevel(ch.qos.logback.classic.Level.INFO);
+        enabledLogger.setAdditive(false);
+        enabledLogger.addAppender(sink);
+        enabled = enabledLogger;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sink.stop();
+    }
+
+    @Benchmark
+    public void disabledColored() {
+        disabled.info(COLOR_RED + "User not found with email: " + email + COLOR_RESET);
+    }
+
+    @Benchmark
+    public void disabledParameterized() {
+        disabled.info("User not found with email: {}", email);
+    }
+
+    @Benchmark
+    public void enabledColored() {
+        enabled.error(COLOR_RED + "User not found with email: " + email + COLOR_RESET);
+    }
+
+    @Benchmark
+    public void enabledParameterized() {
+        enabled.error("User not found with email: {}", email);
+    }
+}
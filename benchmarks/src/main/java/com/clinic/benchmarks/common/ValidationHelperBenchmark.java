@@ -0,0 +1,61 @@
+package com.clinic.benchmarks.common;
+
+import com.clinic.commonservice.helpers.ValidationHelper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the single pass scanners behind ValidationHelper against the regular expressions they
+ * replaced, compiled once. The long password has no special character, so every lookahead of the
+ * expression scans it to the end before failing.
+ *
+ * @author caito
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationHelperBenchmark {
+    private static final Pattern EMAIL = Pattern.compile(
+            "^[_A-Za-z0-9-+]+(\\.[_A-Za-z0-9-]+)*@[A-Za-z0-9-]+(\\.[A-Za-z0-9]+)*(\\.[A-Za-z]{2,})$");
+    private static final Pattern PASSWORD = Pattern.compile(
+            "^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=])(?=\\S+$).{8,}$");
+
+    private final String email = "patient.number12345@clinic-central.test";
+    private final String password = "Cl1nic@Secret";
+    private final String longPassword = "Aa1" + "x".repeat(1_000);
+
+    @Benchmark
+    public boolean validateEmail() {
+        return ValidationHelper.validateEmail(email);
+    }
+
+    @Benchmark
+    public boolean validateEmailRegex() {
+        return EMAIL.matcher(email).matches();
+    }
+
+    @Benchmark
+    public boolean validatePassword() {
+        return ValidationHelper.validatePassword(password);
+    }
+
+    @Benchmark
+    public boolean validatePasswordRegex() {
+        return PASSWORD.matcher(password).matches();
+    }
+
+    @Benchmark
+    public boolean validateLongPassword() {
+        return ValidationHelper.validatePassword(longPassword);
+    }
+
+    @Benchmark
+    public boolean validateLongPasswordRegex() {
+        return PASSWORD.matcher(longPassword).matches();
+    }
+}
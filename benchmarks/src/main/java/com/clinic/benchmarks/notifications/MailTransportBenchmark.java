@@ -0,0 +1,100 @@
+package com.clinic.benchmarks.notifications;
+
+import com.clinic.benchmarks.support.FakeSmtpServer;
+import com.clinic.notificationservice.notificationservice.utils.mail.SmtpConnection;
+import com.clinic.notificationservice.notificationservice.utils.mail.SmtpTransportPool;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a batch of activation emails to a local fake SMTP server whose connection setup costs
+ * {@code connectDelayMs}, standing in for TCP, STARTTLS and AUTH against a real provider.
+ * Compares one connection per email (JavaMailSenderImpl.send per message), pooled connections
+ * borrowed per email, and one pooled connection for the whole batch.
+ *
+ * @author caito
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MailTransportBenchmark {
+
+    @Param({"20"})
+    private long connectDelayMs;
+    @Param({"50"})
+    private int batchSize;
+
+    private FakeSmtpServer server;
+    private JavaMailSenderImpl mailSender;
+    private SmtpTransportPool pool;
+    private List<MimeMessage> messages;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, MessagingException {
+        server = new FakeSmtpServer(connectDelayMs, 0);
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(server.getPort());
+        GenericObjectPoolConfig<SmtpConnection> config = new GenericObjectPoolConfig<>();
+        config.setMaxTotal(4);
+        config.setTestOnBorrow(true);
+        config.setJmxEnabled(false);
+        pool = new SmtpTransportPool(mailSender.getSession(), "localhost", server.getPort(), null, null, 1_000, config);
+        messages = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, false, StandardCharsets.UTF_8.name());
+            helper.setFrom("no-reply@clinic.test");
+            helper.setTo("patient" + i + "@clinic.test");
+            helper.setSubject("Account Activation - No Reply");
+            helper.setText("<html><body><p>Hola Patient " + i + ", activate your account.</p></body></html>", true);
+            messages.add(message);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.close();
+        server.close();
+        System.out.printf("%nSMTP connections opened: %d, messages accepted: %d%n",
+                server.getConnectionCount(), server.getMessageCount());
+    }
+
+    @Benchmark
+    public void connectionPerEmail() {
+        for (MimeMessage message : messages) {
+            mailSender.send(message);
+        }
+    }
+
+    @Benchmark
+    public void pooledConnectionPerEmail() throws MessagingException {
+        for (MimeMessage message : messages) {
+            SmtpConnection connection = pool.borrow();
+            connection.send(message);
+            pool.release(connection);
+        }
+    }
+
+    @Benchmark
+    public void pooledConnectionPerBatch() throws MessagingException {
+        SmtpConnection connection = pool.borrow();
+        for (MimeMessage message : messages) {
+            connection.send(message);
+        }
+        pool.release(connection);
+    }
+}
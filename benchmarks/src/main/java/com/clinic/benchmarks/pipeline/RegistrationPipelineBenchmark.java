@@ -0,0 +1,208 @@
+package com.clinic.benchmarks.pipeline;
+
+import com.clinic.benchmarks.support.FakeSmtpServer;
+import com.clinic.benchmarks.support.NotificationServiceContext;
+import com.clinic.benchmarks.support.UserServiceContext;
+import com.clinic.commonservice.tracing.MeterSpanExporter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the whole registration pipeline, from the HTTP POST that creates a user to the activation
+ * email reaching the SMTP server: user-service on an in-memory H2 database, its outbox relay, an embedded
+ * Kafka broker, the notification-service consumers and a local fake SMTP server, all in this JVM.
+ * <p>
+ * Registrations are sent at a fixed rate whatever the response times (open loop), and each latency is
+ * taken from the moment its request was due, so a stalled pipeline shows up in the percentiles instead
+ * of slowing down the load. Registrations of the warm-up period are not recorded.
+ * <p>
+ * The per stage breakdown comes from the clinic.stage timers of both services: the mean of each stage
+ * over the measured registrations, and its p50 and p99 over the last couple of minutes.
+ * <p>
+ * Not a JMH benchmark, as the measured span ends on another thread. Run it with
+ * {@code mvn -B -pl benchmarks -am test -DskipTests -Dpipeline}, or its main method, and these
+ * system properties:
+ * <ul>
+ *     <li>pipeline.rate: registrations per second, default 100</li>
+ *     <li>pipeline.warmup: warm-up seconds, default 10</li>
+ *     <li>pipeline.duration: measured seconds, default 30</li>
+ *     <li>pipeline.smtp-connect-delay-ms and pipeline.smtp-message-delay-ms: SMTP round trips, default 20 and 5</li>
+ *     <li>pipeline.send-quota: emails per second allowed by the provider, 0 for no limit, default 0</li>
+ * </ul>
+ *
+ * @author caito
+ */
+public class RegistrationPipelineBenchmark {
+    private static final String BODY = """
+            {"fullName":"Patient %1$d","email":"%2$s","address":"Street %1$d","phone":"555-%1$d","gender":"F",\
+            "dni":"%3$d","socialWork":"OSDE","membershipNumber":"%1$d","plan":"210","role":"ROLE_USER"}""";
+    private static final long MAX_LATENCY_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final long WARM_UP = Long.MIN_VALUE;
+    private static final List<String> STAGES = List.of("http", "user.validation", "user.transaction",
+            "outbox.publish", "kafka.consume", "mail.wait", "mail.smtp");
+
+    public static void main(String[] args) throws Exception {
+        int rate = Integer.getInteger("pipeline.rate", 100);
+        int warmupSeconds = Integer.getInteger("pipeline.warmup", 10);
+        int durationSeconds = Integer.getInteger("pipeline.duration", 30);
+        long connectDelayMs = Long.getLong("pipeline.smtp-connect-delay-ms", 20);
+        long messageDelayMs = Long.getLong("pipeline.smtp-message-delay-ms", 5);
+        String sendQuota = System.getProperty("pipeline.send-quota", "0");
+
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, 3, "userTopic", "userTopic-high");
+        broker.afterPropertiesSet();
+        FakeSmtpServer smtp = new FakeSmtpServer(connectDelayMs, messageDelayMs);
+        ConfigurableApplicationContext notifications = NotificationServiceContext.start(broker.getBrokersAsString(),
+                smtp.getPort(), "--application.mail.rate-limit.per-second=" + sendQuota);
+        ConfigurableApplicationContext users = UserServiceContext.start("pipeline", WebApplicationType.SERVLET,
+                "--server.port=0", "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString());
+        try {
+            UserServiceContext.seedUsers(users, 0);
+            int port = ((WebServerApplicationContext) users).getWebServer().getPort();
+            List<MeterRegistry> registries = List.of(users.getBean(MeterRegistry.class),
+                    notifications.getBean(MeterRegistry.class));
+            run(URI.create("http://localhost:" + port + "/api/v1/clinical/users"), smtp, registries,
+                    rate, warmupSeconds, durationSeconds);
+        } finally {
+            users.close();
+            notifications.close();
+            smtp.close();
+            broker.destroy();
+        }
+    }
+
+    private static void run(URI uri, FakeSmtpServer smtp, List<MeterRegistry> registries,
+                            int rate, int warmupSeconds, int durationSeconds) throws InterruptedException {
+        int warmup = rate * warmupSeconds;
+        int total = warmup + rate * durationSeconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        Map<String, Long> dueAt = new ConcurrentHashMap<>(total * 2);
+        Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MS, 3);
+        AtomicLong received = new AtomicLong();
+        AtomicLong measuredReceived = new AtomicLong();
+        AtomicLong lastReceivedAt = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        smtp.setRecipientListener(recipient -> {
+            long now = System.nanoTime();
+            Long due = dueAt.remove(recipient);
+            if (due == null) return;
+            received.incrementAndGet();
+            if (due == WARM_UP) return;
+            latencies.recordValue(Math.min(MAX_LATENCY_MS, TimeUnit.NANOSECONDS.toMillis(now - due)));
+            measuredReceived.incrementAndGet();
+            lastReceivedAt.accumulateAndGet(now, Math::max);
+        });
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        System.out.printf("Sending %d registrations per second: %d s warm-up, %d s measured%n",
+                rate, warmupSeconds, durationSeconds);
+        long start = System.nanoTime();
+        long measureFrom = start + warmup * intervalNanos;
+        Map<String, StageTotals> warmupStages = Map.of();
+        for (int i = 0; i < total; i++) {
+            if (i == warmup) warmupStages = stageTotals(registries);
+            long due = start + i * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            String email = "patient" + i + "@clinic.test";
+            dueAt.put(email, i < warmup ? WARM_UP : due);
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(BODY.formatted(i, email, 40_000_000 + i)))
+                    .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, ex) -> {
+                if (ex != null || response.statusCode() != 201) {
+                    rejected.incrementAndGet();
+                    dueAt.remove(email);
+                }
+            });
+        }
+        long sentUntil = System.nanoTime();
+        long drainDeadline = sentUntil + TimeUnit.SECONDS.toNanos(60);
+        while (!dueAt.isEmpty() && System.nanoTime() < drainDeadline) Thread.sleep(50);
+
+        double windowSeconds = (Math.max(lastReceivedAt.get(), sentUntil) - measureFrom) / 1e9;
+        System.out.printf("%nRegistrations sent: %d, rejected: %d, emails received: %d, missing: %d%n",
+                total, rejected.get(), received.get(), dueAt.size());
+        System.out.printf("Offered load: %.1f registrations/s, sustained: %.1f emails/s%n",
+                (total - warmup) / ((sentUntil - measureFrom) / 1e9), measuredReceived.get() / windowSeconds);
+        System.out.printf("POST to email latency over %d registrations (ms): p50 %d, p90 %d, p99 %d, p99.9 %d, max %d%n",
+                measuredReceived.get(), latencies.getValueAtPercentile(50), latencies.getValueAtPercentile(90),
+                latencies.getValueAtPercentile(99), latencies.getValueAtPercentile(99.9), latencies.getMaxValue());
+        printStages(registries, warmupStages);
+    }
+
+    private static void printStages(List<MeterRegistry> registries, Map<String, StageTotals> warmupStages) {
+        Map<String, StageTotals> stages = stageTotals(registries);
+        System.out.printf("%nStage breakdown (ms):%n%-18s %8s %10s %10s %10s%n", "stage", "count", "mean", "p50", "p99");
+        for (String stage : STAGES) {
+            StageTotals measured = stages.getOrDefault(stage, StageTotals.EMPTY)
+                    .minus(warmupStages.getOrDefault(stage, StageTotals.EMPTY));
+            System.out.printf("%-18s %8d %10.1f %10.1f %10.1f%n", stage, measured.count(),
+                    measured.count() == 0 ? 0 : measured.totalMs() / measured.count(),
+                    percentile(registries, stage, 0.5), percentile(registries, stage, 0.99));
+        }
+    }
+
+    private static Map<String, StageTotals> stageTotals(List<MeterRegistry> registries) {
+        Map<String, StageTotals> totals = new HashMap<>();
+        for (Timer timer : stageTimers(registries)) {
+            totals.merge(timer.getId().getTag("stage"),
+                    new StageTotals(timer.count(), timer.totalTime(TimeUnit.MILLISECONDS)), StageTotals::plus);
+        }
+        return totals;
+    }
+
+    private static double percentile(List<MeterRegistry> registries, String stage, double percentile) {
+        for (Timer timer : stageTimers(registries)) {
+            if (!stage.equals(timer.getId().getTag("stage"))) continue;
+            for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+                if (value.percentile() == percentile) return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0;
+    }
+
+    private static List<Timer> stageTimers(List<MeterRegistry> registries) {
+        return registries.stream()
+                .flatMap(registry -> registry.find(MeterSpanExporter.TIMER).tag("outcome", "ok").timers().stream())
+                .toList();
+    }
+
+    private record StageTotals(long count, double totalMs) {
+        private static final StageTotals EMPTY = new StageTotals(0, 0);
+
+        private StageTotals plus(StageTotals other) {
+            return new StageTotals(count + other.count, totalMs + other.totalMs);
+        }
+
+        private StageTotals minus(StageTotals other) {
+            return new StageTotals(count - other.count, totalMs - other.totalMs);
+        }
+    }
+}
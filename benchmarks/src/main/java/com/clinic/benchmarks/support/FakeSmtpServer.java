@@ -0,0 +1,152 @@
+package com.clinic.benchmarks.support;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A minimal SMTP server on the loopback interface that accepts and discards every message.
+ * The greeting of each connection is delayed to stand in for the TCP, STARTTLS and AUTH round
+ * trips of a real mail provider, and each accepted message can be delayed as well.
+ * A listener can be told the recipients of every accepted message.
+ *
+ * @author caito
+ */
+public class FakeSmtpServer implements Closeable {
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final long connectDelayMs;
+    private final long messageDelayMs;
+    private final AtomicLong connectionCount = new AtomicLong();
+    private final AtomicLong messageCount = new AtomicLong();
+    private volatile Consumer<String> recipientListener = recipient -> { };
+
+    /**
+     * Starts the server on a free port.
+     *
+     * @param connectDelayMs the delay before greeting a new connection
+     * @param messageDelayMs the delay before accepting each message
+     */
+    public FakeSmtpServer(long connectDelayMs, long messageDelayMs) throws IOException {
+        this.serverSocket = new ServerSocket(0, 512);
+        this.connectDelayMs = connectDelayMs;
+        this.messageDelayMs = messageDelayMs;
+        connections.execute(this::accept);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    public long getMessageCount() {
+        return messageCount.get();
+    }
+
+    /**
+     * Sets the listener called with each recipient of a message, right after the message is accepted.
+     * It runs on the connection thread, before the reply is sent.
+     *
+     * @param recipientListener the listener
+     */
+    public void setRecipientListener(Consumer<String> recipientListener) {
+        this.recipientListener = recipientListener;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                connectionCount.incrementAndGet();
+                connections.execute(() -> serve(socket));
+            }
+        } catch (SocketException closed) {
+            // the server was closed
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            pause(connectDelayMs);
+            reply(out, "220 fake.smtp ESMTP");
+            List<String> recipients = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-fake.smtp\r\n250-8BITMIME\r\n250 SIZE 10485760");
+                    case "HELO", "NOOP" -> reply(out, "250 OK");
+                    case "MAIL", "RSET" -> {
+                        recipients.clear();
+                        reply(out, "250 OK");
+                    }
+                    case "RCPT" -> {
+                        recipients.add(address(line));
+                        reply(out, "250 OK");
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // the message is discarded
+                        }
+                        pause(messageDelayMs);
+                        messageCount.incrementAndGet();
+                        recipients.forEach(recipientListener);
+                        recipients.clear();
+                        reply(out, "250 OK queued");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException ignored) {
+            // the client dropped the connection
+        }
+    }
+
+    private static String address(String rcptLine) {
+        int start = rcptLine.indexOf('<');
+        int end = rcptLine.indexOf('>', start + 1);
+        return start < 0 || end < 0 ? rcptLine.substring(rcptLine.indexOf(':') + 1).trim()
+                : rcptLine.substring(start + 1, end);
+    }
+
+    private static void reply(Writer out, String reply) throws IOException {
+        out.write(reply);
+        out.write("\r\n");
+        out.flush();
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
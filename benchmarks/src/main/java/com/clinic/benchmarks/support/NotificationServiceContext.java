@@ -0,0 +1,61 @@
+package com.clinic.benchmarks.support;
+
+import com.clinic.notificationservice.notificationservice.NotificationServiceApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the notification-service against a given Kafka broker and SMTP server, without
+ * the service registry and without its web server.
+ *
+ * @author caito
+ */
+public class NotificationServiceContext {
+
+    /**
+     * Starts a non-web notification-service context.
+     *
+     * @param kafkaBrokers the bootstrap servers of the broker
+     * @param smtpPort     the port of the SMTP server on localhost
+     * @param extraArgs    additional command line properties
+     * @return the running application context
+     */
+    public static ConfigurableApplicationContext start(String kafkaBrokers, int smtpPort, String... extraArgs) {
+        List<String> args;
+        try {
+            args = new ArrayList<>(List.of(
+                    // the user-service application.yml comes first on the benchmarks classpath
+                    "--spring.config.location=" + applicationYaml(),
+                    "--spring.kafka.bootstrap-servers=" + kafkaBrokers,
+                    "--spring.mail.host=localhost",
+                    "--spring.mail.port=" + smtpPort,
+                    "--spring.mail.password=unused",
+                    "--application.notifications.dedup.file="
+                            + Files.createTempDirectory("dedup").resolve("activation-dedup.bin"),
+                    "--eureka.client.enabled=false",
+                    "--spring.main.banner-mode=off",
+                    "--logging.level.root=WARN"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        args.addAll(List.of(extraArgs));
+        return new SpringApplicationBuilder(NotificationServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(args.toArray(String[]::new));
+    }
+
+    private static String applicationYaml() {
+        URL location = NotificationServiceApplication.class.getProtectionDomain().getCodeSource().getLocation();
+        String url = location.toString();
+        return url.endsWith(".jar") ? "jar:" + url + "!/application.yml" : url + "application.yml";
+    }
+}
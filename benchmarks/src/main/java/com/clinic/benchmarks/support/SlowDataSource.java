@@ -0,0 +1,88 @@
+package com.clinic.benchmarks.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Wraps the DataSource of a context so every statement execution and every commit waits for a fixed
+ * delay, standing in for the network round trip to a real database that an in-memory H2 does not have.
+ * The delay is taken while the pooled connection is held, as it would be against a remote server.
+ *
+ * @author caito
+ */
+public class SlowDataSource {
+
+    /**
+     * Returns a BeanPostProcessor that wraps every DataSource bean of the context.
+     *
+     * @param roundTrip the delay of each statement and commit
+     * @return the post processor
+     */
+    public static BeanPostProcessor delaying(Duration roundTrip) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? wrap(dataSource, roundTrip) : bean;
+            }
+        };
+    }
+
+    /**
+     * Wraps a DataSource. unwrap and isWrapperFor reach the wrapped one, so the pool metrics still find it.
+     *
+     * @param dataSource the DataSource to wrap
+     * @param roundTrip  the delay of each statement and commit
+     * @return the wrapping DataSource
+     */
+    public static DataSource wrap(DataSource dataSource, Duration roundTrip) {
+        long delayNanos = roundTrip.toNanos();
+        return proxy(DataSource.class, (proxy, method, args) -> {
+            Object result = invoke(dataSource, method, args);
+            return result instanceof Connection connection ? connection(connection, delayNanos) : result;
+        });
+    }
+
+    private static Connection connection(Connection connection, long delayNanos) {
+        return proxy(Connection.class, (proxy, method, args) -> {
+            if (method.getName().equals("commit")) pause(delayNanos);
+            Object result = invoke(connection, method, args);
+            if (result instanceof CallableStatement statement) return statement(CallableStatement.class, statement, delayNanos);
+            if (result instanceof PreparedStatement statement) return statement(PreparedStatement.class, statement, delayNanos);
+            if (result instanceof Statement statement) return statement(Statement.class, statement, delayNanos);
+            return result;
+        });
+    }
+
+    private static <T extends Statement> T statement(Class<T> type, T statement, long delayNanos) {
+        return proxy(type, (proxy, method, args) -> {
+            if (method.getName().startsWith("execute")) pause(delayNanos);
+            return invoke(statement, method, args);
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(SlowDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void pause(long nanos) throws InterruptedException {
+        if (nanos > 0) Thread.sleep(Duration.ofNanos(nanos));
+    }
+}
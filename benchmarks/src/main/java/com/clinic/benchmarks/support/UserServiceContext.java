@@ -0,0 +1,117 @@
+package com.clinic.benchmarks.support;
+
+import com.clinic.userservice.userservice.UserServiceApplication;
+import com.clinic.userservice.userservice.services.contracts.UserSearchService;
+import com.clinic.userservice.userservice.services.contracts.UserUniquenessService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the user-service against an in-memory H2 database (MySQL mode) and seeds it
+ * with synthetic users, so benchmarks exercise the real repositories and services
+ * without any external infrastructure.
+ *
+ * @author caito
+ */
+public class UserServiceContext {
+    private static final int BATCH_SIZE = 1_000;
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * Starts a non-web user-service context backed by a fresh in-memory database.
+     *
+     * @param database the name of the in-memory database
+     * @param extraArgs additional command line properties
+     * @return the running application context
+     */
+    public static ConfigurableApplicationContext start(String database, String... extraArgs) {
+        return start(database, WebApplicationType.NONE, extraArgs);
+    }
+
+    /**
+     * Starts a user-service context backed by a fresh in-memory database.
+     *
+     * @param database        the name of the in-memory database
+     * @param applicationType NONE for the services only, SERVLET to serve the API as well
+     * @param extraArgs       additional command line properties
+     * @return the running application context
+     */
+    public static ConfigurableApplicationContext start(String database, WebApplicationType applicationType,
+                                                       String... extraArgs) {
+        return start(database, applicationType, Duration.ZERO, extraArgs);
+    }
+
+    /**
+     * Starts a user-service context backed by a fresh in-memory database whose statements and
+     * commits take at least the given round trip.
+     *
+     * @param database        the name of the in-memory database
+     * @param applicationType NONE for the services only, SERVLET to serve the API as well
+     * @param jdbcRoundTrip   the delay added to each statement and commit, zero for none
+     * @param extraArgs       additional command line properties
+     * @return the running application context
+     */
+    public static ConfigurableApplicationContext start(String database, WebApplicationType applicationType,
+                                                       Duration jdbcRoundTrip, String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.r2dbc.url=r2dbc:h2:mem:///" + database + "?options=MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.r2dbc.username=sa",
+                "--spring.r2dbc.password=",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--eureka.client.enabled=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+        args.addAll(List.of(extraArgs));
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(UserServiceApplication.class)
+                .web(applicationType)
+                .logStartupInfo(false);
+        if (!jdbcRoundTrip.isZero()) {
+            builder.initializers(context ->
+                    context.getBeanFactory().addBeanPostProcessor(SlowDataSource.delaying(jdbcRoundTrip)));
+        }
+        return builder.run(args.toArray(String[]::new));
+    }
+
+    /**
+     * Inserts the role catalogue and the given number of users, all with ROLE_USER.
+     * Users get sequential ids starting at 1. The in-memory name and membership indexes are
+     * rebuilt afterwards.
+     *
+     * @param context the running application context
+     * @param users   the number of users to insert
+     */
+    public static void seedUsers(ConfigurableApplicationContext context, int users) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.update("INSERT INTO roles (role) VALUES ('ROLE_ADMIN'), ('ROLE_USER'), ('ROLE_DOCTOR'), ('ROLE_TECHNICIAN')");
+        Long userRoleId = jdbc.queryForObject("SELECT id FROM roles WHERE role = 'ROLE_USER'", Long.class);
+        for (int from = 1; from <= users; from += BATCH_SIZE) {
+            List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+            List<Object[]> roles = new ArrayList<>(BATCH_SIZE);
+            for (int i = from; i < from + BATCH_SIZE && i <= users; i++) {
+                rows.add(new Object[]{i, "Patient Number " + i, "patient" + i + "@clinic.test",
+                        "Street " + i, "555-" + i, i % 2 == 0 ? "F" : "M", String.valueOf(30_000_000 + i),
+                        "OSDE", String.valueOf(i), "210"});
+                roles.add(new Object[]{i, userRoleId});
+            }
+            jdbc.batchUpdate("INSERT INTO users (id, full_name, email, address, phone, gender, dni, social_work, " +
+                    "membership_number, plan, account_non_expired, account_non_locked, credentials_non_expired, enabled) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, TRUE, TRUE, TRUE, TRUE)", rows);
+            jdbc.batchUpdate("INSERT INTO users_roles (user_id, role_id) VALUES (?, ?)", roles);
+        }
+        // move the pooled id sequence past the explicit ids inserted above
+        jdbc.execute("ALTER SEQUENCE users_seq RESTART WITH " + (users + ID_ALLOCATION_SIZE + 1));
+        // the in-memory indexes were built at startup, before the rows above existed
+        context.getBean(UserSearchService.class).rebuild();
+        context.getBean(UserUniquenessService.class).rebuild();
+    }
+}
@@ -0,0 +1,189 @@
+package com.clinic.benchmarks.users;
+
+import com.clinic.benchmarks.support.UserServiceContext;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the blocking read endpoints of the user-service (JPA on JDBC, under v1/clinical/users) with
+ * the non-blocking ones (the reactive driver, under v1/clinical/reactive/users) under the same load.
+ * Each API runs in its own JVM, against its own in-memory database seeded with the same users.
+ * <p>
+ * A fixed number of clients send requests back to back (closed loop) for the warm-up and then the
+ * measured period: a lookup by email of a random user, then a listing of the next users after a random
+ * one, an offset page on the blocking API and a stream from that id on the reactive one, as each API
+ * lists users to its clients. The throughput, the latency
+ * percentiles and the errors of each API are printed, with the peak number of platform threads of the JVM.
+ * <p>
+ * No database round trip is added: the delay of SlowDataSource only applies to JDBC statements, and
+ * would penalize the blocking API alone. Both APIs read the in-memory database as fast as it answers.
+ * <p>
+ * Not a JMH benchmark, as it measures a server under concurrent load. Run it with
+ * {@code mvn -B -pl benchmarks -am test -DskipTests -Dread}, or its main method, and these
+ * system properties:
+ * <ul>
+ *     <li>read.concurrency: concurrent clients, default 1000</li>
+ *     <li>read.warmup: warm-up seconds, default 20</li>
+ *     <li>read.duration: measured seconds, default 30</li>
+ *     <li>read.page-size: users per listing, default 20</li>
+ *     <li>read.apis: the APIs to run, in order, default blocking,reactive</li>
+ * </ul>
+ *
+ * @author caito
+ */
+public class ReactiveReadLoadBenchmark {
+    private static final int SEEDED_USERS = 10_000;
+    private static final long MAX_LATENCY_MS = TimeUnit.MINUTES.toMillis(1);
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("read.concurrency", 1000);
+        int warmupSeconds = Integer.getInteger("read.warmup", 20);
+        int durationSeconds = Integer.getInteger("read.duration", 30);
+        int pageSize = Integer.getInteger("read.page-size", 20);
+        String[] apis = System.getProperty("read.apis", "blocking,reactive").split(",");
+        if (apis.length > 1) {
+            for (String api : apis) fork(api.trim());
+            return;
+        }
+
+        String api = apis[0].trim();
+        ConfigurableApplicationContext context = UserServiceContext.start("read", WebApplicationType.SERVLET,
+                "--server.port=0",
+                "--application.outbox.relay-enabled=false",
+                "--application.tracing.log-spans=false");
+        Result r;
+        try {
+            UserServiceContext.seedUsers(context, SEEDED_USERS);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            Api target = api.equals("reactive")
+                    ? new Api(URI.create("http://localhost:" + port + "/api/v1/clinical/reactive/users"), true)
+                    : new Api(URI.create("http://localhost:" + port + "/api/v1/clinical/users"), false);
+            r = run(api, target, concurrency, warmupSeconds, durationSeconds, pageSize);
+        } finally {
+            context.close();
+        }
+
+        System.out.printf("%n%s API: %d clients, %d s warm-up, %d s measured, %d users per listing%n",
+                api, concurrency, warmupSeconds, durationSeconds, pageSize);
+        System.out.printf("%-9s %10s %8s %10s %8s %8s %8s %8s %8s %10s%n", "api", "requests", "errors",
+                "req/s", "p50", "p90", "p99", "p99.9", "max", "threads");
+        System.out.printf("%-9s %10d %8d %10.1f %8d %8d %8d %8d %8d %10d%n", r.api(), r.requests(), r.errors(),
+                r.requests() / (double) durationSeconds, r.latencies().getValueAtPercentile(50),
+                r.latencies().getValueAtPercentile(90), r.latencies().getValueAtPercentile(99),
+                r.latencies().getValueAtPercentile(99.9), r.latencies().getMaxValue(), r.peakThreads());
+        System.out.println("(latencies in ms, threads: peak platform threads of the JVM)");
+    }
+
+    private static void fork(String api) throws Exception {
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path")));
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("read.") && !name.equals("read.apis")) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add("-Dread.apis=" + api);
+        command.add(ReactiveReadLoadBenchmark.class.getName());
+        int exit = new ProcessBuilder(command).inheritIO().start().waitFor();
+        if (exit != 0) throw new IllegalStateException("The " + api + " run exited with " + exit);
+    }
+
+    private static Result run(String name, Api api, int concurrency, int warmupSeconds, int durationSeconds,
+                              int pageSize) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MS, 3);
+        AtomicLong requests = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        System.out.printf("Running the %s API%n", name);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                clients.execute(() -> {
+                    long n = 0;
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        HttpRequest request = n++ % 2 == 0 ? lookup(api) : listing(api, pageSize);
+                        boolean ok = send(client, request);
+                        long done = System.nanoTime();
+                        if (now < measureFrom) {
+                            if (done >= measureFrom) threads.resetPeakThreadCount();
+                            continue;
+                        }
+                        if (done > end) break;
+                        requests.incrementAndGet();
+                        if (!ok) errors.incrementAndGet();
+                        latencies.recordValue(Math.min(MAX_LATENCY_MS, TimeUnit.NANOSECONDS.toMillis(done - now)));
+                    }
+                });
+            }
+        }
+        client.close();
+        return new Result(name, requests.get(), errors.get(), latencies, threads.getPeakThreadCount());
+    }
+
+    private static HttpRequest lookup(Api api) {
+        int user = 1 + ThreadLocalRandom.current().nextInt(SEEDED_USERS);
+        return HttpRequest.newBuilder(URI.create(api.users() + "/by-email/patient" + user + "@clinic.test"))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private static HttpRequest listing(Api api, int pageSize) {
+        int page = ThreadLocalRandom.current().nextInt(SEEDED_USERS / pageSize);
+        if (!api.reactive()) {
+            return HttpRequest.newBuilder(URI.create(api.users() + "?page=" + page + "&size=" + pageSize))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create(api.users() + "?after=" + page * pageSize + "&limit=" + pageSize))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept", "application/x-ndjson")
+                .GET()
+                .build();
+    }
+
+    private static boolean send(HttpClient client, HttpRequest request) {
+        try {
+            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            return status < 400;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record Api(URI users, boolean reactive) {
+    }
+
+    private record Result(String api, long requests, long errors, Histogram latencies, int peakThreads) {
+    }
+}
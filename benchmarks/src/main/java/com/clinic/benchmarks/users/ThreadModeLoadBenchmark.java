@@ -0,0 +1,189 @@
+package com.clinic.benchmarks.users;
+
+import com.clinic.benchmarks.support.UserServiceContext;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the user-service API with request threads on platform threads and on virtual threads
+ * (spring.threads.virtual.enabled) under the same load. Each mode runs in its own JVM, so the one
+ * measured second does not inherit the JIT work of the first, against its own in-memory database
+ * whose statements and commits are slowed down to a database round trip.
+ * <p>
+ * A fixed number of clients send requests back to back (closed loop) for the warm-up and then the
+ * measured period: four paged listings for each registration. The throughput, the latency percentiles
+ * and the errors of each mode are printed, with the peak number of platform threads of the JVM.
+ * Closed loop clients wait for each other behind a saturated server, so compare the modes with each
+ * other rather than with an arrival rate.
+ * <p>
+ * Not a JMH benchmark, as it measures a server under concurrent load. Run it with
+ * {@code mvn -B -pl benchmarks -am test -DskipTests -Dload}, or its main method, and these
+ * system properties:
+ * <ul>
+ *     <li>load.concurrency: concurrent clients, default 1000</li>
+ *     <li>load.warmup: warm-up seconds, default 20</li>
+ *     <li>load.duration: measured seconds, default 30</li>
+ *     <li>load.jdbc-round-trip-ms: delay of each statement and commit, default 2</li>
+ *     <li>load.pool-size: database connections, default 100</li>
+ *     <li>load.modes: the modes to run, in order, default platform,virtual</li>
+ * </ul>
+ *
+ * @author caito
+ */
+public class ThreadModeLoadBenchmark {
+    private static final String BODY = """
+            {"fullName":"Patient %1$d","email":"load%1$d@clinic.test","address":"Street %1$d","phone":"555-%1$d",\
+            "gender":"F","dni":"%2$d","socialWork":"OSDE","membershipNumber":"%1$d","plan":"210","role":"ROLE_USER"}""";
+    private static final int SEEDED_USERS = 10_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int LISTINGS_PER_REGISTRATION = 4;
+    private static final long MAX_LATENCY_MS = TimeUnit.MINUTES.toMillis(1);
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("load.concurrency", 1000);
+        int warmupSeconds = Integer.getInteger("load.warmup", 20);
+        int durationSeconds = Integer.getInteger("load.duration", 30);
+        Duration roundTrip = Duration.ofMillis(Long.getLong("load.jdbc-round-trip-ms", 2));
+        int poolSize = Integer.getInteger("load.pool-size", 100);
+        String[] modes = System.getProperty("load.modes", "platform,virtual").split(",");
+        if (modes.length > 1) {
+            for (String mode : modes) fork(mode.trim());
+            return;
+        }
+
+        String mode = modes[0].trim();
+        ConfigurableApplicationContext context = UserServiceContext.start("load", WebApplicationType.SERVLET,
+                roundTrip,
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + mode.equals("virtual"),
+                "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "--application.outbox.relay-enabled=false",
+                "--application.tracing.log-spans=false");
+        Result r;
+        try {
+            UserServiceContext.seedUsers(context, SEEDED_USERS);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            r = run(mode, URI.create("http://localhost:" + port + "/api/v1/clinical/users"),
+                    concurrency, warmupSeconds, durationSeconds);
+        } finally {
+            context.close();
+        }
+
+        System.out.printf("%n%s threads: %d clients, %d s warm-up, %d s measured, %d ms per statement, %d connections%n",
+                mode, concurrency, warmupSeconds, durationSeconds, roundTrip.toMillis(), poolSize);
+        System.out.printf("%-9s %10s %8s %10s %8s %8s %8s %8s %8s %10s%n", "mode", "requests", "errors",
+                "req/s", "p50", "p90", "p99", "p99.9", "max", "threads");
+        System.out.printf("%-9s %10d %8d %10.1f %8d %8d %8d %8d %8d %10d%n", r.mode(), r.requests(), r.errors(),
+                r.requests() / (double) durationSeconds, r.latencies().getValueAtPercentile(50),
+                r.latencies().getValueAtPercentile(90), r.latencies().getValueAtPercentile(99),
+                r.latencies().getValueAtPercentile(99.9), r.latencies().getMaxValue(), r.peakThreads());
+        System.out.println("(latencies in ms, threads: peak platform threads of the JVM)");
+    }
+
+    private static void fork(String mode) throws Exception {
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path")));
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("load.") && !name.equals("load.modes")) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add("-Dload.modes=" + mode);
+        command.add(ThreadModeLoadBenchmark.class.getName());
+        int exit = new ProcessBuilder(command).inheritIO().start().waitFor();
+        if (exit != 0) throw new IllegalStateException("The " + mode + " run exited with " + exit);
+    }
+
+    private static Result run(String mode, URI users, int concurrency, int warmupSeconds, int durationSeconds)
+            throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MS, 3);
+        AtomicLong ids = new AtomicLong();
+        AtomicLong requests = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        System.out.printf("Running %s threads%n", mode);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                clients.execute(() -> {
+                    long n = 0;
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        HttpRequest request = n++ % (LISTINGS_PER_REGISTRATION + 1) == 0
+                                ? registration(users, ids.getAndIncrement())
+                                : listing(users);
+                        boolean ok = send(client, request);
+                        long done = System.nanoTime();
+                        if (now < measureFrom) {
+                            if (done >= measureFrom) threads.resetPeakThreadCount();
+                            continue;
+                        }
+                        if (done > end) break;
+                        requests.incrementAndGet();
+                        if (!ok) errors.incrementAndGet();
+                        latencies.recordValue(Math.min(MAX_LATENCY_MS, TimeUnit.NANOSECONDS.toMillis(done - now)));
+                    }
+                });
+            }
+        }
+        client.close();
+        return new Result(mode, requests.get(), errors.get(), latencies,
+                threads.getPeakThreadCount());
+    }
+
+    private static HttpRequest registration(URI users, long id) {
+        return HttpRequest.newBuilder(users)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(BODY.formatted(id, 50_000_000 + id)))
+                .build();
+    }
+
+    private static HttpRequest listing(URI users) {
+        int page = ThreadLocalRandom.current().nextInt(SEEDED_USERS / PAGE_SIZE);
+        return HttpRequest.newBuilder(URI.create(users + "?page=" + page + "&size=" + PAGE_SIZE))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private static boolean send(HttpClient client, HttpRequest request) {
+        try {
+            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            return status < 400;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record Result(String mode, long requests, long errors, Histogram latencies, int peakThreads) {
+    }
+}
@@ -0,0 +1,63 @@
+package com.clinic.benchmarks.users;
+
+import com.clinic.commonservice.enums.RoleName;
+import com.clinic.userservice.userservice.api.models.requests.UserRequest;
+import com.clinic.userservice.userservice.api.models.responses.RoleResponse;
+import com.clinic.userservice.userservice.api.models.responses.UserResponse;
+import com.clinic.userservice.userservice.persistence.entities.Role;
+import com.clinic.userservice.userservice.persistence.entities.UserApp;
+import com.clinic.userservice.userservice.persistence.projections.UserView;
+import com.clinic.userservice.userservice.utils.mappers.UserMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures UserMapper: a UserRequest to a new entity, and an entity or a UserView projection to a
+ * UserResponse, with two roles each.
+ *
+ * @author caito
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserMapperBenchmark {
+    private UserRequest request;
+    private UserApp user;
+    private UserView view;
+    private Set<RoleResponse> roles;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        request = UserRequest.builder().fullName("Patient Number 12345").email("patient12345@clinic.test")
+                .address("Street 12345").phone("555-12345").gender("F").dni("30012345").tuition("T-1")
+                .socialWork("OSDE").membershipNumber("12345").plan("210").role(RoleName.ROLE_USER).build();
+        user = UserMapper.mapToEntity(request);
+        user.setId(12345L);
+        user.setRoles(new HashSet<>(Set.of(new Role(2L, RoleName.ROLE_USER), new Role(3L, RoleName.ROLE_DOCTOR))));
+        view = new UserView(12345L, "Patient Number 12345", "patient12345@clinic.test", "Street 12345", "555-12345",
+                "F", "30012345", "T-1", "OSDE", "12345", "210");
+        roles = Set.of(RoleResponse.builder().id(2L).rol(RoleName.ROLE_USER).build(),
+                RoleResponse.builder().id(3L).rol(RoleName.ROLE_DOCTOR).build());
+    }
+
+    @Benchmark
+    public UserApp mapToEntity() {
+        return UserMapper.mapToEntity(request);
+    }
+
+    @Benchmark
+    public UserResponse mapEntityToDto() {
+        return UserMapper.mapToDto(user);
+    }
+
+    @Benchmark
+    public UserResponse mapViewToDto() {
+        return UserMapper.mapToDto(view, roles);
+    }
+}
@@ -0,0 +1,58 @@
+package com.clinic.benchmarks.users;
+
+import com.clinic.benchmarks.support.UserServiceContext;
+import com.clinic.userservice.userservice.api.models.responses.CursorPageResponse;
+import com.clinic.userservice.userservice.api.models.responses.UserResponse;
+import com.clinic.userservice.userservice.services.contracts.UserService;
+import com.clinic.userservice.userservice.utils.pagination.CursorCodec;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares offset pagination ({@code getUsers(page, size)}) with keyset pagination
+ * ({@code getUsers(cursor, size, withTotal)}) on the first page and on a deep page.
+ *
+ * @author caito
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserPaginationBenchmark {
+    private static final int PAGE_SIZE = 10;
+
+    @Param({"0", "10000"})
+    private int page;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private String cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = UserServiceContext.start("pagination");
+        UserServiceContext.seedUsers(context, (page + 2) * PAGE_SIZE);
+        userService = context.getBean(UserService.class);
+        cursor = page == 0 ? "" : CursorCodec.encode((long) page * PAGE_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<UserResponse> offset() {
+        return userService.getUsers(page, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPageResponse<UserResponse> cursor() {
+        return userService.getUsers(cursor, PAGE_SIZE, false);
+    }
+}
@@ -0,0 +1,48 @@
+package com.clinic.benchmarks.users;
+
+import com.clinic.benchmarks.support.UserServiceContext;
+import com.clinic.userservice.userservice.api.models.responses.UserResponse;
+import com.clinic.userservice.userservice.services.contracts.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the read path of a large page of users ({@code getUsers(page, size)}).
+ * Run with {@code -prof gc} to see the bytes allocated per page.
+ *
+ * @author caito
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserReadPathBenchmark {
+
+    @Param({"1000"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = UserServiceContext.start("readpath");
+        UserServiceContext.seedUsers(context, pageSize * 2);
+        userService = context.getBean(UserService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<UserResponse> page() {
+        return userService.getUsers(1, pageSize);
+    }
+}
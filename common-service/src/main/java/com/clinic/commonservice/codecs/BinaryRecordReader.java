@@ -0,0 +1,92 @@
+package com.clinic.commonservice.codecs;
+
+import com.clinic.commonservice.exceptions.MessageCodecException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * BinaryRecordReader reads records written by BinaryRecordWriter, checking every length
+ * against the bytes actually available.
+ *
+ * @author caito
+ */
+public class BinaryRecordReader {
+    private final byte[] data;
+    private int position;
+    private int version;
+    private int fieldCount;
+    private int fieldsRead;
+
+    public BinaryRecordReader(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Reads and checks the record header.
+     *
+     * @param magic      the expected magic byte
+     * @param maxVersion the highest schema version this reader understands
+     * @return the schema version of the record
+     * @throws MessageCodecException if the magic byte or the version do not match
+     */
+    public int header(byte magic, int maxVersion) {
+        if (data.length < 3 || data[0] != magic) {
+            throw new MessageCodecException("Not a binary record of the expected type");
+        }
+        version = data[1] & 0xFF;
+        if (version < 1 || version > maxVersion) {
+            throw new MessageCodecException("Unsupported schema version " + version + ", max " + maxVersion);
+        }
+        position = 2;
+        fieldCount = varint();
+        return version;
+    }
+
+    /**
+     * Reads the next string field. Fields that the writer did not have are read as null.
+     *
+     * @return the value, may be null
+     * @throws MessageCodecException if the field is truncated
+     */
+    public String string() {
+        if (fieldsRead >= fieldCount) return null;
+        fieldsRead++;
+        int length = varint();
+        if (length == 0) return null;
+        length--;
+        if (length > data.length - position) {
+            throw new MessageCodecException("Truncated field, " + length + " bytes expected");
+        }
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /**
+     * Skips the fields added by newer writers and checks that nothing else follows.
+     *
+     * @throws MessageCodecException if there are trailing bytes
+     */
+    public void end() {
+        while (fieldsRead < fieldCount) {
+            string();
+        }
+        if (position != data.length) {
+            throw new MessageCodecException("Unexpected " + (data.length - position) + " trailing bytes");
+        }
+    }
+
+    private int varint() {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (position >= data.length) throw new MessageCodecException("Truncated varint");
+            byte b = data[position++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) throw new MessageCodecException("Negative length");
+                return value;
+            }
+        }
+        throw new MessageCodecException("Malformed varint");
+    }
+}
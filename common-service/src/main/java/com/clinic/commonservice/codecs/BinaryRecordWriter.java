@@ -0,0 +1,78 @@
+package com.clinic.commonservice.codecs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * BinaryRecordWriter writes the compact binary record format shared by the message codecs.
+ * <p>
+ * A record is a header, one byte of magic, one byte of schema version and the number of fields
+ * as a varint, followed by the fields in schema order. A string field is its UTF-8 length plus one
+ * as a varint, 0 meaning null, followed by its bytes.
+ *
+ * @author caito
+ */
+public class BinaryRecordWriter {
+    private byte[] buffer;
+    private int position;
+
+    public BinaryRecordWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(3, initialCapacity)];
+    }
+
+    /**
+     * Writes the record header.
+     *
+     * @param magic      the magic byte of the record type
+     * @param version    the schema version
+     * @param fieldCount the number of fields that follow
+     * @return this writer
+     */
+    public BinaryRecordWriter header(byte magic, int version, int fieldCount) {
+        ensure(2);
+        buffer[position++] = magic;
+        buffer[position++] = (byte) version;
+        return varint(fieldCount);
+    }
+
+    /**
+     * Writes a string field.
+     *
+     * @param value the value, may be null
+     * @return this writer
+     */
+    public BinaryRecordWriter string(String value) {
+        if (value == null) return varint(0);
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        varint(bytes.length + 1);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+        return this;
+    }
+
+    /**
+     * Returns the bytes written so far.
+     *
+     * @return the record, the buffer itself when it was sized exactly
+     */
+    public byte[] toByteArray() {
+        return position == buffer.length ? buffer : Arrays.copyOf(buffer, position);
+    }
+
+    private BinaryRecordWriter varint(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    private void ensure(int bytes) {
+        if (position + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+        }
+    }
+}
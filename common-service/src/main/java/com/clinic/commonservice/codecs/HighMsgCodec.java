@@ -0,0 +1,42 @@
+package com.clinic.commonservice.codecs;
+
+import com.clinic.commonservice.models.HighMsg;
+
+/**
+ * HighMsgCodec encodes HighMsg messages in the compact binary record format.
+ * <p>
+ * The schema and evolution rules are the ones of RegisterUserCodec; only the magic byte differs,
+ * and there is no JSON fallback.
+ *
+ * @author caito
+ */
+public class HighMsgCodec {
+    public static final byte MAGIC = (byte) 0xC2;
+    public static final int VERSION = ActivationRecordCodec.VERSION;
+    private static final ActivationRecordCodec<HighMsg> CODEC = new ActivationRecordCodec<>(MAGIC,
+            HighMsg::getEmail, HighMsg::getUsername, HighMsg::getValidationToken, HighMsg::new);
+
+    private HighMsgCodec() {
+    }
+
+    /**
+     * Encodes a message.
+     *
+     * @param message the message to encode
+     * @return the encoded record
+     */
+    public static byte[] encode(HighMsg message) {
+        return CODEC.encode(message);
+    }
+
+    /**
+     * Decodes a message.
+     *
+     * @param data the encoded record
+     * @return the decoded message
+     * @throws com.clinic.commonservice.exceptions.MessageCodecException if the bytes are not a valid HighMsg record
+     */
+    public static HighMsg decode(byte[] data) {
+        return CODEC.decode(data);
+    }
+}
@@ -0,0 +1,25 @@
+package com.clinic.commonservice.codecs;
+
+import com.clinic.commonservice.exceptions.MessageCodecException;
+import com.clinic.commonservice.models.HighMsg;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Kafka deserializer reading HighMsg messages with the HighMsgCodec.
+ * It needs no type headers and no trusted packages, the schema is fixed by the codec.
+ *
+ * @author caito
+ */
+public class HighMsgDeserializer implements Deserializer<HighMsg> {
+
+    @Override
+    public HighMsg deserialize(String topic, byte[] data) {
+        if (data == null) return null;
+        try {
+            return HighMsgCodec.decode(data);
+        } catch (MessageCodecException e) {
+            throw new SerializationException("Cannot deserialize HighMsg from topic " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.clinic.commonservice.codecs;
+
+import com.clinic.commonservice.exceptions.MessageCodecException;
+import com.clinic.commonservice.models.HighMsg;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka serializer writing HighMsg messages with the HighMsgCodec.
+ *
+ * @author caito
+ */
+public class HighMsgSerializer implements Serializer<HighMsg> {
+
+    @Override
+    public byte[] serialize(String topic, HighMsg data) {
+        if (data == null) return null;
+        try {
+            return HighMsgCodec.encode(data);
+        } catch (MessageCodecException e) {
+            throw new SerializationException("Cannot serialize HighMsg for topic " + topic, e);
+        }
+    }
+}
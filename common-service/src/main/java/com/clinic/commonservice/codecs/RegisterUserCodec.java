@@ -0,0 +1,63 @@
+package com.clinic.commonservice.codecs;
+
+import com.clinic.commonservice.exceptions.MessageCodecException;
+import com.clinic.commonservice.models.RegisterUser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * RegisterUserCodec encodes RegisterUser messages in the compact binary record format.
+ * <p>
+ * Schema, version 1: email, username, validationToken, all strings, in this order.
+ * <p>
+ * Evolution rules: new fields are only ever appended, so older readers skip the fields they do
+ * not know and newer readers read the fields an older writer did not send as null. Removing,
+ * reordering or retyping a field is an incompatible change and needs a new version; readers
+ * reject versions above the one they know. Payloads starting with '{' are decoded as the JSON
+ * written by the previous serializer, so messages already in the topic are still delivered.
+ *
+ * @author caito
+ */
+public class RegisterUserCodec {
+    public static final byte MAGIC = (byte) 0xC1;
+    public static final int VERSION = ActivationRecordCodec.VERSION;
+    private static final ActivationRecordCodec<RegisterUser> CODEC = new ActivationRecordCodec<>(MAGIC,
+            RegisterUser::getEmail, RegisterUser::getUsername, RegisterUser::getValidationToken, RegisterUser::new);
+    private static final ObjectMapper JSON = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private RegisterUserCodec() {
+    }
+
+    /**
+     * Encodes a message.
+     *
+     * @param message the message to encode
+     * @return the encoded record
+     */
+    public static byte[] encode(RegisterUser message) {
+        return CODEC.encode(message);
+    }
+
+    /**
+     * Decodes a message written by this codec or by the former JSON serializer.
+     *
+     * @param data the encoded record
+     * @return the decoded message
+     * @throws MessageCodecException if the bytes are not a valid RegisterUser record
+     */
+    public static RegisterUser decode(byte[] data) {
+        if (data.length > 0 && data[0] == '{') return decodeJson(data);
+        return CODEC.decode(data);
+    }
+
+    private static RegisterUser decodeJson(byte[] data) {
+        try {
+            return JSON.readValue(data, RegisterUser.class);
+        } catch (IOException e) {
+            throw new MessageCodecException("Malformed JSON RegisterUser message: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.clinic.commonservice.codecs;
+
+import com.clinic.commonservice.exceptions.MessageCodecException;
+import com.clinic.commonservice.models.RegisterUser;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Kafka deserializer reading RegisterUser messages with the RegisterUserCodec.
+ * It needs no type headers and no trusted packages, the schema is fixed by the codec.
+ *
+ * @author caito
+ */
+public class RegisterUserDeserializer implements Deserializer<RegisterUser> {
+
+    @Override
+    public RegisterUser deserialize(String topic, byte[] data) {
+        if (data == null) return null;
+        try {
+            return RegisterUserCodec.decode(data);
+        } catch (MessageCodecException e) {
+            throw new SerializationException("Cannot deserialize RegisterUser from topic " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.clinic.commonservice.codecs;
+
+import com.clinic.commonservice.exceptions.MessageCodecException;
+import com.clinic.commonservice.models.RegisterUser;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka serializer writing RegisterUser messages with the RegisterUserCodec.
+ *
+ * @author caito
+ */
+public class RegisterUserSerializer implements Serializer<RegisterUser> {
+
+    @Override
+    public byte[] serialize(String topic, RegisterUser data) {
+        if (data == null) return null;
+        try {
+            return RegisterUserCodec.encode(data);
+        } catch (MessageCodecException e) {
+            throw new SerializationException("Cannot serialize RegisterUser for topic " + topic, e);
+        }
+    }
+}
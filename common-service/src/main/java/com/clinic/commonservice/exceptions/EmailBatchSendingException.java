@@ -0,0 +1,20 @@
+package com.clinic.commonservice.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Custom exception to handle errors while sending several emails in order.
+ * It tells how many emails were sent before the one that failed, so the caller knows
+ * which emails still have to be sent.
+ *
+ * @author caito
+ *
+ */
+@Getter
+public class EmailBatchSendingException extends EmailSendingException {
+    private final int sent;
+    public EmailBatchSendingException(String message, int sent, Throwable cause) {
+        super(message, cause);
+        this.sent = sent;
+    }
+}
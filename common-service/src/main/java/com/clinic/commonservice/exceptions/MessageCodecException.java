@@ -0,0 +1,19 @@
+package com.clinic.commonservice.exceptions;
+
+/**
+ * Custom exception class for handling message encoding errors in the application.
+ * This exception is thrown when a broker message cannot be encoded, or when its bytes
+ * are not a valid message of the expected schema.
+ *
+ * @author caito
+ *
+ */
+public class MessageCodecException extends RuntimeException {
+    public MessageCodecException(String message) {
+        super(message);
+    }
+
+    public MessageCodecException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,20 @@
+package com.clinic.commonservice.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Custom exception class for handling overload in the application.
+ * This exception is thrown when a bounded resource is saturated and the request
+ * is rejected instead of queued, so clients can retry after the given delay.
+ *
+ * @author caito
+ *
+ */
+@Getter
+public class ServiceUnavailableException extends RuntimeException {
+    private final long retryAfterSeconds;
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
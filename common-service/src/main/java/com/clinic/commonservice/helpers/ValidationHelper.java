@@ -1,9 +1,11 @@
 package com.clinic.commonservice.helpers;
 
-import java.util.regex.Pattern;
+import com.clinic.commonservice.validation.EmailScanner;
+import com.clinic.commonservice.validation.PasswordScanner;
 
 /**
  * ValidationHelper provides utility methods for validating various data formats.
+ * The checks are single pass scanners that take time linear in the length of the input.
  *
  * @author caito
  */
@@ -16,8 +18,7 @@ public class ValidationHelper {
      * @return true if the email is valid, false otherwise
      */
     public static boolean validateEmail(String email){
-        Pattern PATTERN = Pattern.compile("^[_A-Za-z0-9-+]+(\\.[_A-Za-z0-9-]+)*@[A-Za-z0-9-]+(\\.[A-Za-z0-9]+)*(\\.[A-Za-z]{2,})$");
-        return PATTERN.matcher(email).matches();
+        return EmailScanner.isValid(email);
     }
 
     /**
@@ -29,8 +30,6 @@ public class ValidationHelper {
      * @return true if the password is valid, false otherwise
      */
     public static boolean validatePassword(String password){
-        final String PASS_REGEX = "^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=])(?=\\S+$).{8,}$";
-        final Pattern PASS_PATTERN = Pattern.compile(PASS_REGEX);
-        return PASS_PATTERN.matcher(password).matches();
+        return PasswordScanner.isValid(password);
     }
 }
@@ -1,44 +1,47 @@
 package com.clinic.commonservice.logs;
 
 /**
- * Utility class for logging messages with different styles.
- * Provides methods to log information and errors with specific color codes.
+ * Former utility class that wrapped log messages in color codes.
+ * The console appender of logback-clinic.xml now colors the lines by level, so the methods return
+ * the message unchanged for the SLF4J call it is passed to, and calls such as
+ * {@code log.info(WriteLog.logInfo(message))} keep working. Kept for one release; log through
+ * SLF4J with parameterized messages instead.
  *
  * @author caito
  */
-public class WriteLog {
-    private static final String COLOR_GREEN = "\u001B[32m";
-    private static final String COLOR_RED = "\u001B[31m";
-    private static final String COLOR_YELLOW = "\u001B[33m";
-    private static final String COLOR_RESET = "\u001B[0m";
+@Deprecated(since = "0.0.1", forRemoval = true)
+public final class WriteLog {
+
+    private WriteLog() {
+    }
 
     /**
-     * Logs an informational message with yellow color.
+     * Returns an informational message unchanged.
      *
      * @param message the message to log
-     * @return the formatted message with yellow color
+     * @return the message, for an SLF4J info call
      */
     public static String logInfo(String message) {
-        return COLOR_GREEN + message + COLOR_RESET;
+        return message;
     }
 
     /**
-     * Logs an error message with red color.
+     * Returns an error message unchanged.
      *
      * @param message the message to log
-     * @return the formatted message with red color
+     * @return the message, for an SLF4J error call
      */
     public static String logError(String message) {
-        return COLOR_RED +message + COLOR_RESET;
+        return message;
     }
 
     /**
-     * Logs a warning message with yellow color.
+     * Returns a warning message unchanged.
      *
      * @param message the message to log
-     * @return the formatted message with yellow color
+     * @return the message, for an SLF4J warn call
      */
     public static String logWarning(String message) {
-        return COLOR_YELLOW + message +  COLOR_RESET;
+        return message;
     }
 }
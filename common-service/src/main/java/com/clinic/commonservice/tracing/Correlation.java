@@ -0,0 +1,106 @@
+package com.clinic.commonservice.tracing;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.slf4j.MDC;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Correlation class carries the id that ties together everything done for one registration, from the
+ * HTTP request to the activation email: it travels as the X-Correlation-Id HTTP header, as the
+ * correlationId Kafka record header and as the X-Correlation-Id header of the email, and it is kept
+ * in the MDC while a thread works on its behalf, so every log event and span gets it.
+ *
+ * @author caito
+ */
+public final class Correlation {
+    public static final String HTTP_HEADER = "X-Correlation-Id";
+    public static final String KAFKA_HEADER = "correlationId";
+    public static final String MAIL_HEADER = "X-Correlation-Id";
+    public static final String MDC_KEY = "correlationId";
+    private static final int MAX_LENGTH = 64;
+
+    private Correlation() {
+    }
+
+    public static String newId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Returns the correlation id of the current thread.
+     *
+     * @return the id, or null outside of a correlated scope
+     */
+    public static String current() {
+        return MDC.get(MDC_KEY);
+    }
+
+    /**
+     * Makes the given id the correlation id of the current thread until the returned scope is closed.
+     *
+     * @param id the correlation id, null to leave the MDC untouched
+     * @return the scope to close
+     */
+    public static MDC.MDCCloseable open(String id) {
+        return id == null ? null : MDC.putCloseable(MDC_KEY, id);
+    }
+
+    /**
+     * Wraps a task handed to another thread so it runs with the correlation id of the current thread.
+     *
+     * @param task the task
+     * @return the wrapped task, or the task itself outside of a correlated scope
+     */
+    public static Runnable propagate(Runnable task) {
+        String id = current();
+        if (id == null) return task;
+        return () -> {
+            try (MDC.MDCCloseable ignored = open(id)) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * Accepts an id received from outside, such as an HTTP header, if it is short and made of
+     * letters, digits, '-', '_' and '.', so it can be logged and forwarded as is.
+     *
+     * @param id the received id
+     * @return the id, or null if it is missing or not acceptable
+     */
+    public static String sanitize(String id) {
+        if (id == null || id.isEmpty() || id.length() > MAX_LENGTH) return null;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.';
+            if (!allowed) return null;
+        }
+        return id;
+    }
+
+    /**
+     * Adds the correlation id to the headers of a Kafka record.
+     *
+     * @param headers the record headers
+     * @param id      the correlation id, nothing is added if null
+     */
+    public static void write(Headers headers, String id) {
+        if (id != null) headers.add(KAFKA_HEADER, id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the correlation id from the headers of a Kafka record.
+     *
+     * @param headers the record headers
+     * @return the id, or null if the record has none
+     */
+    public static String read(Headers headers) {
+        Header header = headers.lastHeader(KAFKA_HEADER);
+        return header == null || header.value() == null ? null
+                : sanitize(new String(header.value(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,48 @@
+package com.clinic.commonservice.tracing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.Objects;
+
+/**
+ * Writes each span as a log event of the com.clinic.spans logger, with the span fields as key value
+ * pairs and its correlation id in the MDC, like the other log events of the registration. The shared
+ * logging configuration sends that logger to the JSON file only, so the spans of a registration can
+ * be found by correlationId next to its other log events.
+ *
+ * @author caito
+ */
+public class LogSpanExporter implements SpanExporter {
+    public static final String LOGGER = "com.clinic.spans";
+    private static final Logger log = LoggerFactory.getLogger(LOGGER);
+
+    @Override
+    public void export(StageSpan span) {
+        if (!log.isInfoEnabled()) return;
+        // spans of other registrations can be exported from a correlated thread, such as an SMTP batch
+        String current = MDC.get(Correlation.MDC_KEY);
+        boolean swap = !Objects.equals(current, span.correlationId());
+        if (swap) put(span.correlationId());
+        try {
+            log.atInfo()
+                    .addKeyValue("service", span.service())
+                    .addKeyValue("stage", span.stage())
+                    .addKeyValue("start", span.start())
+                    .addKeyValue("durationMs", span.duration().toNanos() / 1_000_000.0)
+                    .addKeyValue("failed", span.failed())
+                    .log("span {} {} ms", span.stage(), span.duration().toMillis());
+        } finally {
+            if (swap) put(current);
+        }
+    }
+
+    private static void put(String correlationId) {
+        if (correlationId == null) {
+            MDC.remove(Correlation.MDC_KEY);
+        } else {
+            MDC.put(Correlation.MDC_KEY, correlationId);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.clinic.commonservice.tracing;
+
+/**
+ * SpanExporter interface defines where the StageTracer hands the finished spans.
+ * Exporters are called on the thread that finished the span and must not block.
+ *
+ * @author caito
+ */
+public interface SpanExporter {
+
+    void export(StageSpan span);
+}
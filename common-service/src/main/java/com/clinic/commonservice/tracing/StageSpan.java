@@ -0,0 +1,20 @@
+package com.clinic.commonservice.tracing;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * StageSpan record represents the time spent by one registration in one stage of the pipeline.
+ *
+ * @param service       the service that ran the stage
+ * @param stage         the stage, such as user.validation or mail.smtp
+ * @param correlationId the correlation id of the registration, null if unknown
+ * @param start         when the stage started
+ * @param duration      how long the stage took
+ * @param failed        whether the stage ended with an error
+ *
+ * @author caito
+ */
+public record StageSpan(String service, String stage, String correlationId, Instant start, Duration duration,
+                        boolean failed) {
+}
@@ -0,0 +1,90 @@
+package com.clinic.commonservice.tracing;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * StageTracer times the stages a registration goes through and hands each one, as a StageSpan, to
+ * the configured exporters. Stages run on the current thread are timed with trace and take the
+ * correlation id from the MDC; stages that started elsewhere, such as the time a record waited in
+ * Kafka, are recorded afterwards with their start and correlation id.
+ * Spans are local: there is no parent span and nothing is sent to a tracing backend, the correlation
+ * id is what ties the spans of the services together.
+ *
+ * @author caito
+ */
+public class StageTracer {
+    private final String service;
+    private final List<SpanExporter> exporters;
+
+    /**
+     * Creates a tracer.
+     *
+     * @param service   the name of the service, added to every span
+     * @param exporters the exporters of the finished spans
+     */
+    public StageTracer(String service, List<SpanExporter> exporters) {
+        this.service = service;
+        this.exporters = List.copyOf(exporters);
+    }
+
+    /**
+     * Runs a stage on the current thread and records its span, failed if the stage throws.
+     *
+     * @param stage the stage name
+     * @param work  the work of the stage
+     * @return the result of the work
+     */
+    public <T> T trace(String stage, Supplier<T> work) {
+        Instant start = Instant.now();
+        long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = work.get();
+            failed = false;
+            return result;
+        } finally {
+            export(new StageSpan(service, stage, Correlation.current(), start,
+                    Duration.ofNanos(System.nanoTime() - startNanos), failed));
+        }
+    }
+
+    public void trace(String stage, Runnable work) {
+        trace(stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Records a stage that started at the given time and ends now.
+     *
+     * @param stage         the stage name
+     * @param correlationId the correlation id of the registration, null if unknown
+     * @param start         when the stage started
+     */
+    public void record(String stage, String correlationId, Instant start) {
+        Instant now = Instant.now();
+        record(stage, correlationId, start, Duration.between(start, now), false);
+    }
+
+    /**
+     * Records a stage timed by the caller.
+     *
+     * @param stage         the stage name
+     * @param correlationId the correlation id of the registration, null if unknown
+     * @param start         when the stage started
+     * @param duration      how long the stage took, negative values from clock skew count as zero
+     * @param failed        whether the stage ended with an error
+     */
+    public void record(String stage, String correlationId, Instant start, Duration duration, boolean failed) {
+        export(new StageSpan(service, stage, correlationId, start,
+                duration.isNegative() ? Duration.ZERO : duration, failed));
+    }
+
+    private void export(StageSpan span) {
+        for (SpanExporter exporter : exporters) exporter.export(span);
+    }
+}
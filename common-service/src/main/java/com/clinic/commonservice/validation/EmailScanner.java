@@ -0,0 +1,71 @@
+package com.clinic.commonservice.validation;
+
+/**
+ * EmailScanner checks email addresses in one pass over their characters, without regular expressions.
+ * It accepts the same addresses as the expression ValidationHelper used to compile:
+ * a local part of dot separated segments of letters, digits, '_', '-' and, in the first segment, '+';
+ * an '@'; and a domain of at least two dot separated labels, where the first label may hold letters,
+ * digits and '-', the middle ones letters and digits, and the last one two or more letters.
+ *
+ * @author caito
+ */
+public final class EmailScanner {
+
+    private EmailScanner() {
+    }
+
+    /**
+     * Checks the format of an email address.
+     *
+     * @param email the email address, may be null
+     * @return true if the address is valid
+     */
+    public static boolean isValid(CharSequence email) {
+        if (email == null) return false;
+        int length = email.length();
+        int i = 0;
+        // local part: segment ('.' segment)*, the first segment may contain '+'
+        boolean firstSegment = true;
+        while (true) {
+            int start = i;
+            while (i < length && isLocalChar(email.charAt(i), firstSegment)) i++;
+            if (i == start || i == length) return false;
+            char c = email.charAt(i++);
+            if (c == '@') break;
+            if (c != '.') return false;
+            firstSegment = false;
+        }
+        // domain: first label ('.' label)* '.' last label
+        int start = i;
+        while (i < length && (isAlphanumeric(email.charAt(i)) || email.charAt(i) == '-')) i++;
+        if (i == start || i == length || email.charAt(i) != '.') return false;
+        int labels = 0;
+        boolean lastLabelIsAlpha = false;
+        int lastLabelLength = 0;
+        while (i < length) {
+            if (email.charAt(i++) != '.') return false;
+            start = i;
+            lastLabelIsAlpha = true;
+            while (i < length && isAlphanumeric(email.charAt(i))) {
+                if (!isLetter(email.charAt(i))) lastLabelIsAlpha = false;
+                i++;
+            }
+            lastLabelLength = i - start;
+            if (lastLabelLength == 0) return false;
+            labels++;
+        }
+        return labels > 0 && lastLabelIsAlpha && lastLabelLength >= 2;
+    }
+
+    private static boolean isLocalChar(char c, boolean firstSegment) {
+        return isAlphanumeric(c) || c == '_' || c == '-' || (firstSegment && c == '+');
+    }
+
+    static boolean isAlphanumeric(char c) {
+        return isLetter(c) || (c >= '0' && c <= '9');
+    }
+
+    static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
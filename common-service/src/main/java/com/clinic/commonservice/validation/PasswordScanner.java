@@ -0,0 +1,52 @@
+package com.clinic.commonservice.validation;
+
+/**
+ * PasswordScanner checks password strength in one pass over the characters, without regular
+ * expressions, so its cost grows linearly with the length of the input whatever it contains.
+ * It accepts the same passwords as the expression ValidationHelper used to compile: at least 8
+ * characters, at least one digit, one lowercase letter, one uppercase letter and one of
+ * {@code @#$%^&+=}, and no whitespace or line terminator.
+ *
+ * @author caito
+ */
+public final class PasswordScanner {
+    private static final int MIN_LENGTH = 8;
+    private static final String SPECIAL = "@#$%^&+=";
+
+    private PasswordScanner() {
+    }
+
+    /**
+     * Checks the strength of a password.
+     *
+     * @param password the password, may be null
+     * @return true if the password is strong enough
+     */
+    public static boolean isValid(CharSequence password) {
+        if (password == null) return false;
+        boolean digit = false, lower = false, upper = false, special = false;
+        int codePoints = 0;
+        int length = password.length();
+        for (int i = 0; i < length; i++) {
+            char c = password.charAt(i);
+            if (c >= '0' && c <= '9') digit = true;
+            else if (c >= 'a' && c <= 'z') lower = true;
+            else if (c >= 'A' && c <= 'Z') upper = true;
+            else if (SPECIAL.indexOf(c) >= 0) special = true;
+            else if (isBreaking(c)) return false;
+            // a surrogate pair is one character, as for the regular expression
+            if (!Character.isLowSurrogate(c) || i == 0 || !Character.isHighSurrogate(password.charAt(i - 1))) {
+                codePoints++;
+            }
+        }
+        return digit && lower && upper && special && codePoints >= MIN_LENGTH;
+    }
+
+    /*
+     * The whitespace of \S and the line terminators that '.' does not match.
+     */
+    private static boolean isBreaking(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r'
+                || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
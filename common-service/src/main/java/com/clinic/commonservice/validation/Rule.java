@@ -0,0 +1,68 @@
+package com.clinic.commonservice.validation;
+
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Rule represents one check of a field value and the message reported when the value fails it.
+ * Rules are immutable and meant to be created once, in the static Validator declarations.
+ *
+ * @param <C> the type of the context a rule may consult, such as lookups of already registered values
+ *
+ * @author caito
+ */
+public final class Rule<C> {
+    private final BiPredicate<String, C> test;
+    private final String message;
+
+    private Rule(BiPredicate<String, C> test, String message) {
+        this.test = test;
+        this.message = message;
+    }
+
+    /**
+     * Creates a rule that consults the validation context.
+     *
+     * @param test    passes for valid values
+     * @param message the error reported for invalid values
+     * @return the rule
+     */
+    public static <C> Rule<C> of(BiPredicate<String, C> test, String message) {
+        return new Rule<>(test, message);
+    }
+
+    /**
+     * Creates a rule on the value alone.
+     *
+     * @param test    passes for valid values
+     * @param message the error reported for invalid values
+     * @return the rule
+     */
+    public static <C> Rule<C> of(Predicate<String> test, String message) {
+        return new Rule<>((value, context) -> test.test(value), message);
+    }
+
+    public static <C> Rule<C> required(String message) {
+        return of(Rule::isPresent, message);
+    }
+
+    public static <C> Rule<C> email(String message) {
+        return of(value -> EmailScanner.isValid(value), message);
+    }
+
+    public static <C> Rule<C> password(String message) {
+        return of(value -> PasswordScanner.isValid(value), message);
+    }
+
+    boolean test(String value, C context) {
+        return test.test(value, context);
+    }
+
+    String message() {
+        return message;
+    }
+
+    static boolean isPresent(String value) {
+        return value != null && !value.isEmpty();
+    }
+}
@@ -0,0 +1,155 @@
+package com.clinic.commonservice.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Validator checks every field of an object in a single pass and collects one error per invalid field.
+ * It is declared once, usually as a constant, and is thread safe.
+ * <p>
+ * Each field is read once and its rules are tried in order; the first rule that fails reports its
+ * message and the remaining rules of that field are skipped, so a lookup rule never sees a missing
+ * or malformed value. Optional fields are only checked when present. Checks on the whole object run
+ * after the fields. The error list is only created on the first error, so validating a valid object
+ * with {@link #validate(Object, Object)} returns a shared empty list; the context the caller passes is
+ * its own allocation.
+ * <pre>{@code
+ * Validator<UserRequest, Void> validator = Validator.<UserRequest, Void>builder()
+ *         .field(UserRequest::getEmail, Rule.required("Email is required."), Rule.email("Invalid email format."))
+ *         .optionalField(UserRequest::getPhone, Rule.of(phone -> phone.length() <= 20, "Phone is too long."))
+ *         .build();
+ * }</pre>
+ *
+ * @param <T> the type of the validated objects
+ * @param <C> the type of the context passed to the rules, Void if they need none
+ *
+ * @author caito
+ */
+public final class Validator<T, C> {
+    private final Field<T, C>[] fields;
+    private final Check<T, C>[] checks;
+
+    private Validator(Field<T, C>[] fields, Check<T, C>[] checks) {
+        this.fields = fields;
+        this.checks = checks;
+    }
+
+    public static <T, C> Builder<T, C> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Validates an object, adding the error messages to the given list.
+     *
+     * @param target  the object to validate
+     * @param context the context passed to the rules, may be null
+     * @param errors  the list the error messages are added to
+     * @return true if the object is valid
+     */
+    public boolean validate(T target, C context, List<String> errors) {
+        int before = errors.size();
+        collect(target, context, errors);
+        return errors.size() == before;
+    }
+
+    /**
+     * Validates an object.
+     *
+     * @param target  the object to validate
+     * @param context the context passed to the rules, may be null
+     * @return the error messages, an immutable empty list if the object is valid
+     */
+    public List<String> validate(T target, C context) {
+        List<String> errors = collect(target, context, null);
+        return errors == null ? List.of() : errors;
+    }
+
+    /*
+     * Adds the error messages to errors, creating the list on the first error if it is null.
+     */
+    private List<String> collect(T target, C context, List<String> errors) {
+        for (Field<T, C> field : fields) {
+            String value = field.getter.apply(target);
+            if (field.optional && !Rule.isPresent(value)) continue;
+            for (Rule<C> rule : field.rules) {
+                if (!rule.test(value, context)) {
+                    if (errors == null) errors = new ArrayList<>(fields.length + checks.length);
+                    errors.add(rule.message());
+                    break;
+                }
+            }
+        }
+        for (Check<T, C> check : checks) {
+            if (!check.test.test(target, context)) {
+                if (errors == null) errors = new ArrayList<>(fields.length + checks.length);
+                errors.add(check.message);
+            }
+        }
+        return errors;
+    }
+
+    private record Field<T, C>(Function<T, String> getter, boolean optional, Rule<C>[] rules) {
+    }
+
+    private record Check<T, C>(BiPredicate<T, C> test, String message) {
+    }
+
+    /**
+     * Builder of Validator, fields are validated in the order they are declared.
+     *
+     * @param <T> the type of the validated objects
+     * @param <C> the type of the context passed to the rules
+     */
+    public static final class Builder<T, C> {
+        private final List<Field<T, C>> fields = new ArrayList<>();
+        private final List<Check<T, C>> checks = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Declares a field that is always checked.
+         *
+         * @param getter reads the field value
+         * @param rules  the rules of the field, in order
+         * @return this builder
+         */
+        @SafeVarargs
+        public final Builder<T, C> field(Function<T, String> getter, Rule<C>... rules) {
+            fields.add(new Field<>(getter, false, rules.clone()));
+            return this;
+        }
+
+        /**
+         * Declares a field that is only checked when it is neither null nor empty.
+         *
+         * @param getter reads the field value
+         * @param rules  the rules of the field, in order
+         * @return this builder
+         */
+        @SafeVarargs
+        public final Builder<T, C> optionalField(Function<T, String> getter, Rule<C>... rules) {
+            fields.add(new Field<>(getter, true, rules.clone()));
+            return this;
+        }
+
+        /**
+         * Declares a check on the whole object, such as two fields that must match.
+         *
+         * @param test    passes for valid objects
+         * @param message the error reported for invalid objects
+         * @return this builder
+         */
+        public Builder<T, C> check(BiPredicate<T, C> test, String message) {
+            checks.add(new Check<>(test, message));
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Validator<T, C> build() {
+            return new Validator<>(fields.toArray(Field[]::new), checks.toArray(Check[]::new));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.clinic.commonservice.codecs;
+
+import com.clinic.commonservice.exceptions.MessageCodecException;
+import com.clinic.commonservice.models.HighMsg;
+import com.clinic.commonservice.models.RegisterUser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/*
+ * The record format is covered by RegisterUserCodecTest; these tests cover what differs for HighMsg.
+ */
+class HighMsgCodecTest {
+
+    @Test
+    void roundTripUnderItsOwnMagicByte() {
+        HighMsg message = new HighMsg("ana@clinic.test", "Ana", "t1");
+        byte[] encoded = HighMsgCodec.encode(message);
+        assertEquals(HighMsgCodec.MAGIC, encoded[0]);
+        assertEquals(message, HighMsgCodec.decode(encoded));
+    }
+
+    @Test
+    void rejectsRecordsOfTheOtherType() {
+        byte[] registerUser = RegisterUserCodec.encode(new RegisterUser("ana@clinic.test", "Ana", "t1"));
+        byte[] highMsg = HighMsgCodec.encode(new HighMsg("ana@clinic.test", "Ana", "t1"));
+        assertThrows(MessageCodecException.class, () -> HighMsgCodec.decode(registerUser));
+        assertThrows(MessageCodecException.class, () -> RegisterUserCodec.decode(highMsg));
+    }
+
+    @Test
+    void rejectsJson() {
+        byte[] json = "{\"email\":\"a@clinic.test\"}".getBytes(StandardCharsets.UTF_8);
+        assertThrows(MessageCodecException.class, () -> HighMsgCodec.decode(json));
+    }
+}
@@ -0,0 +1,62 @@
+package com.clinic.commonservice.codecs;
+
+import com.clinic.commonservice.exceptions.MessageCodecException;
+import com.clinic.commonservice.models.RegisterUser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegisterUserCodecTest {
+    private static final RegisterUser MESSAGE = new RegisterUser("josé@clinic.test", "José Núñez", "3f1c9a0e-token");
+
+    @Test
+    void roundTrip() {
+        assertEquals(MESSAGE, RegisterUserCodec.decode(RegisterUserCodec.encode(MESSAGE)));
+    }
+
+    @Test
+    void roundTripWithNulls() {
+        RegisterUser message = new RegisterUser("a@clinic.test", null, "");
+        assertEquals(message, RegisterUserCodec.decode(RegisterUserCodec.encode(message)));
+    }
+
+    @Test
+    void readsFieldsAppendedByNewerWriters() {
+        byte[] newer = new BinaryRecordWriter(64).header(RegisterUserCodec.MAGIC, RegisterUserCodec.VERSION, 4)
+                .string(MESSAGE.getEmail()).string(MESSAGE.getUsername()).string(MESSAGE.getValidationToken())
+                .string("field added later")
+                .toByteArray();
+        assertEquals(MESSAGE, RegisterUserCodec.decode(newer));
+    }
+
+    @Test
+    void readsMissingFieldsOfOlderWritersAsNull() {
+        byte[] older = new BinaryRecordWriter(64).header(RegisterUserCodec.MAGIC, RegisterUserCodec.VERSION, 2)
+                .string(MESSAGE.getEmail()).string(MESSAGE.getUsername())
+                .toByteArray();
+        assertEquals(new RegisterUser(MESSAGE.getEmail(), MESSAGE.getUsername(), null), RegisterUserCodec.decode(older));
+    }
+
+    @Test
+    void readsJsonWrittenByThePreviousSerializer() {
+        byte[] json = "{\"email\":\"a@clinic.test\",\"username\":\"Ana\",\"validationToken\":\"t\"}"
+                .getBytes(StandardCharsets.UTF_8);
+        assertEquals(new RegisterUser("a@clinic.test", "Ana", "t"), RegisterUserCodec.decode(json));
+    }
+
+    @Test
+    void rejectsUnknownVersionsAndCorruptRecords() {
+        byte[] encoded = RegisterUserCodec.encode(MESSAGE);
+        byte[] future = encoded.clone();
+        future[1] = (byte) (RegisterUserCodec.VERSION + 1);
+        assertThrows(MessageCodecException.class, () -> RegisterUserCodec.decode(future));
+        assertThrows(MessageCodecException.class,
+                () -> RegisterUserCodec.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+        assertThrows(MessageCodecException.class,
+                () -> RegisterUserCodec.decode(Arrays.copyOf(encoded, encoded.length + 1)));
+        assertThrows(MessageCodecException.class, () -> RegisterUserCodec.decode(new byte[]{1, 2, 3}));
+    }
+}
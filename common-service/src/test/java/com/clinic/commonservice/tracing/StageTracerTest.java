@@ -0,0 +1,88 @@
+package com.clinic.commonservice.tracing;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StageTracerTest {
+    private final List<StageSpan> spans = new ArrayList<>();
+    private final StageTracer tracer = new StageTracer("user-service", List.of(spans::add));
+
+    @Test
+    void tracesStagesWithTheCorrelationIdOfTheThread() {
+        try (MDC.MDCCloseable ignored = Correlation.open("c-1")) {
+            assertEquals(42, tracer.trace("user.validation", () -> 42));
+        }
+        tracer.trace("user.transaction", () -> {
+        });
+
+        assertEquals(2, spans.size());
+        StageSpan span = spans.get(0);
+        assertEquals("user-service", span.service());
+        assertEquals("user.validation", span.stage());
+        assertEquals("c-1", span.correlationId());
+        assertFalse(span.failed());
+        assertNull(spans.get(1).correlationId());
+        assertNull(Correlation.current());
+    }
+
+    @Test
+    void recordsFailedStages() {
+        assertThrows(IllegalStateException.class, () -> tracer.trace("mail.smtp", () -> {
+            throw new IllegalStateException("smtp down");
+        }));
+        assertTrue(spans.get(0).failed());
+    }
+
+    @Test
+    void recordsStagesTimedElsewhere() {
+        Instant start = Instant.now();
+        tracer.record("kafka.consume", "c-2", start, Duration.ofMillis(15), false);
+        // a record created by a producer whose clock is ahead
+        tracer.record("kafka.consume", "c-3", start, Duration.ofMillis(-5), false);
+
+        assertEquals(Duration.ofMillis(15), spans.get(0).duration());
+        assertEquals(start, spans.get(0).start());
+        assertEquals(Duration.ZERO, spans.get(1).duration());
+    }
+
+    @Test
+    void carriesTheCorrelationIdInKafkaHeaders() {
+        RecordHeaders headers = new RecordHeaders();
+        assertNull(Correlation.read(headers));
+        Correlation.write(headers, "5f0c1f4e-1c55-4c2b-9d8a-1f2f4c9e7b10");
+        assertEquals("5f0c1f4e-1c55-4c2b-9d8a-1f2f4c9e7b10", Correlation.read(headers));
+    }
+
+    @Test
+    void propagatesTheCorrelationIdToAnotherThread() throws Exception {
+        List<String> seen = new ArrayList<>();
+        Runnable task;
+        try (MDC.MDCCloseable ignored = Correlation.open("c-4")) {
+            task = Correlation.propagate(() -> seen.add(Correlation.current()));
+        }
+        Thread thread = new Thread(task);
+        thread.start();
+        thread.join();
+
+        assertEquals(List.of("c-4"), seen);
+        Runnable plain = () -> {
+        };
+        assertSame(plain, Correlation.propagate(plain));
+    }
+
+    @Test
+    void rejectsUnsafeReceivedIds() {
+        assertEquals("req-1.a_b", Correlation.sanitize("req-1.a_b"));
+        assertNull(Correlation.sanitize(""));
+        assertNull(Correlation.sanitize("id\nforged log line"));
+        assertNull(Correlation.sanitize("x".repeat(65)));
+    }
+}
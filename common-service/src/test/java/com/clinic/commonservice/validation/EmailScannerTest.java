@@ -0,0 +1,52 @@
+package com.clinic.commonservice.validation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailScannerTest {
+    // the expression ValidationHelper used to compile on every call
+    private static final Pattern REGEX = Pattern.compile(
+            "^[_A-Za-z0-9-+]+(\\.[_A-Za-z0-9-]+)*@[A-Za-z0-9-]+(\\.[A-Za-z0-9]+)*(\\.[A-Za-z]{2,})$");
+    private static final String ALPHABET = "aZ09_-+.@.@x";
+
+    @Test
+    void acceptsValidAddresses() {
+        assertTrue(EmailScanner.isValid("patient@clinic.test"));
+        assertTrue(EmailScanner.isValid("first+tag.last@mail-server.sub2.example.com"));
+        assertTrue(EmailScanner.isValid("a_b-c@d.ef"));
+    }
+
+    @Test
+    void rejectsInvalidAddresses() {
+        assertFalse(EmailScanner.isValid(null));
+        assertFalse(EmailScanner.isValid(""));
+        assertFalse(EmailScanner.isValid("patient"));
+        assertFalse(EmailScanner.isValid("patient@clinic"));
+        assertFalse(EmailScanner.isValid("patient@clinic.t"));
+        assertFalse(EmailScanner.isValid("patient@clinic.c0m"));
+        assertFalse(EmailScanner.isValid(".patient@clinic.test"));
+        assertFalse(EmailScanner.isValid("patient..x@clinic.test"));
+        assertFalse(EmailScanner.isValid("first.la+st@clinic.test"));
+        assertFalse(EmailScanner.isValid("patient@sub.my-clinic.test"));
+        assertFalse(EmailScanner.isValid("pat@ient@clinic.test"));
+        assertFalse(EmailScanner.isValid("patient@clinic.test."));
+    }
+
+    @Test
+    void agreesWithTheRegularExpression() {
+        Random random = new Random(42);
+        for (int n = 0; n < 200_000; n++) {
+            StringBuilder email = new StringBuilder();
+            int length = 1 + random.nextInt(14);
+            for (int i = 0; i < length; i++) email.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            String value = email.toString();
+            assertEquals(REGEX.matcher(value).matches(), EmailScanner.isValid(value), value);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.clinic.commonservice.validation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordScannerTest {
+    // the expression ValidationHelper used to compile on every call
+    private static final Pattern REGEX = Pattern.compile(
+            "^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=])(?=\\S+$).{8,}$");
+    private static final String ALPHABET = "aZ9@=!x \t\u0085 é";
+
+    @Test
+    void checksEveryRequirement() {
+        assertTrue(PasswordScanner.isValid("Cl1nic@Secret"));
+        assertFalse(PasswordScanner.isValid(null));
+        assertFalse(PasswordScanner.isValid("Cl1n@cS"));
+        assertFalse(PasswordScanner.isValid("clinic@secret1"));
+        assertFalse(PasswordScanner.isValid("CLINIC@SECRET1"));
+        assertFalse(PasswordScanner.isValid("Clinic@Secret"));
+        assertFalse(PasswordScanner.isValid("Cl1nicSecret"));
+        assertFalse(PasswordScanner.isValid("Cl1nic@ Secret"));
+    }
+
+    @Test
+    void agreesWithTheRegularExpression() {
+        Random random = new Random(42);
+        for (int n = 0; n < 200_000; n++) {
+            StringBuilder password = new StringBuilder();
+            int length = 1 + random.nextInt(12);
+            for (int i = 0; i < length; i++) password.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            if (random.nextInt(10) == 0) password.appendCodePoint(0x1F600);
+            String value = password.toString();
+            assertEquals(REGEX.matcher(value).matches(), PasswordScanner.isValid(value), value);
+        }
+    }
+
+    @Test
+    void scansLongInputsInLinearTime() {
+        String longPassword = "Aa1" + "x".repeat(1_000_000);
+        assertTimeoutPreemptively(java.time.Duration.ofSeconds(1), () -> assertFalse(PasswordScanner.isValid(longPassword)));
+    }
+}
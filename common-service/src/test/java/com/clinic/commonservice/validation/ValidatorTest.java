@@ -0,0 +1,53 @@
+package com.clinic.commonservice.validation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValidatorTest {
+    private record Account(String name, String email, String password, String confirmation) {
+    }
+
+    private static final Validator<Account, Set<String>> VALIDATOR = Validator.<Account, Set<String>>builder()
+            .field(Account::name, Rule.required("Name is required."))
+            .field(Account::email, Rule.required("Email is required."), Rule.email("Invalid email."),
+                    Rule.of((email, taken) -> !taken.contains(email), "Email already exists."))
+            .optionalField(Account::password, Rule.password("Invalid password."))
+            .check((account, taken) -> account.password() == null
+                    || account.password().equals(account.confirmation()), "Passwords do not match.")
+            .build();
+
+    @Test
+    void validObjectsHaveNoErrors() {
+        List<String> errors = VALIDATOR.validate(new Account("Ana", "ana@clinic.test", null, null), Set.of());
+        assertTrue(errors.isEmpty());
+        assertSame(List.of(), errors);
+    }
+
+    @Test
+    void collectsOneErrorPerFieldInDeclarationOrder() {
+        List<String> errors = VALIDATOR.validate(new Account("", "ana@clinic", "weak", "other"), Set.of());
+        assertEquals(List.of("Name is required.", "Invalid email.", "Invalid password.", "Passwords do not match."),
+                errors);
+    }
+
+    @Test
+    void stopsAtTheFirstFailingRuleOfAField() {
+        Set<String> taken = Set.of("ana@clinic.test");
+        assertEquals(List.of("Email is required."), VALIDATOR.validate(new Account("Ana", null, null, null), taken));
+        assertEquals(List.of("Email already exists."),
+                VALIDATOR.validate(new Account("Ana", "ana@clinic.test", null, null), taken));
+    }
+
+    @Test
+    void appendsToTheGivenList() {
+        List<String> errors = new ArrayList<>(List.of("Row 3:"));
+        assertTrue(VALIDATOR.validate(new Account("Ana", "ana@clinic.test", null, null), Set.of(), errors));
+        assertFalse(VALIDATOR.validate(new Account(null, "ana@clinic.test", null, null), Set.of(), errors));
+        assertEquals(List.of("Row 3:", "Name is required."), errors);
+    }
+}
@@ -0,0 +1,73 @@
+package com.clinic.notificationservice.notificationservice.configs;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * DedupConfig class defines the store of activation emails already sent, used to drop the duplicates
+ * that rebalances and at-least-once redelivery produce.
+ * Entries are 64-bit hashes of (email, validationToken) mapped to the epoch millisecond they expire at,
+ * so the store is bounded both by time and by size. Size eviction follows Caffeine's W-TinyLFU policy,
+ * which keeps the entries seen most often, not strictly the most recent ones; a rarely seen entry may
+ * be evicted before its expiry while the store is full, and a duplicate of it is then sent again.
+ * Hits, misses and evictions are published as cache metrics with the name activationDedup, and the
+ * hit ratio as notifications.dedup.hit.ratio. Scheduling is enabled for the periodic snapshots of the store.
+ *
+ * @author caito
+ *
+ */
+@Configuration
+@EnableScheduling
+public class DedupConfig {
+    public static final String CACHE_NAME = "activationDedup";
+
+    @Value("${application.notifications.dedup.max-entries:200000}")
+    private long maxEntries;
+
+    /**
+     * Bean for the dedup store.
+     *
+     * @param meterRegistry the registry where the cache metrics are published
+     * @return the store, keyed by hash with the expiry time as value
+     */
+    @Bean
+    Cache<Long, Long> activationDedupCache(MeterRegistry meterRegistry) {
+        Cache<Long, Long> cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<Long, Long>() {
+                    @Override
+                    public long expireAfterCreate(Long key, Long expiresAt, long currentTime) {
+                        return remaining(expiresAt);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long key, Long expiresAt, long currentTime, long currentDuration) {
+                        return remaining(expiresAt);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long key, Long expiresAt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("notifications.dedup.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Share of activation emails dropped as duplicates")
+                .register(meterRegistry);
+        return cache;
+    }
+
+    private static long remaining(long expiresAt) {
+        return Math.max(0L, expiresAt - System.currentTimeMillis()) * 1_000_000L;
+    }
+}
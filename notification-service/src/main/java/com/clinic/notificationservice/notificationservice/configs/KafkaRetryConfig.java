@@ -0,0 +1,99 @@
+package com.clinic.notificationservice.notificationservice.configs;
+
+import com.clinic.commonservice.codecs.RegisterUserSerializer;
+import com.clinic.commonservice.models.RegisterUser;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.DeserializationException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * KafkaRetryConfig class defines where failed activation emails go, so they are retried out of band
+ * while the userTopic consumer keeps moving.
+ * <p>
+ * A record whose email cannot be sent is published to userTopic-failed, where it is retried once
+ * right away and then through the userTopic-failed-retry-&lt;delay&gt; topics with growing delays, and finally
+ * parked in userTopic-failed-dlt. Records that cannot be deserialized are never retried and go
+ * straight to the dead letter topic with their original bytes.
+ *
+ * @author caito
+ *
+ */
+@Configuration
+public class KafkaRetryConfig {
+    public static final String USER_TOPIC = "userTopic";
+    public static final String HIGH_TOPIC = USER_TOPIC + "-high";
+    public static final String FAILED_TOPIC = "userTopic-failed";
+    public static final String DEAD_LETTER_TOPIC = FAILED_TOPIC + "-dlt";
+    public static final String RETRY_CONTAINER_FACTORY = "retryListenerContainerFactory";
+
+    /**
+     * Bean for the template that republishes failed records. Values are either RegisterUser messages
+     * or the raw bytes of records that could not be deserialized.
+     *
+     * @param kafkaProperties the spring.kafka properties
+     * @return the template
+     */
+    @Bean
+    KafkaTemplate<String, Object> notificationKafkaTemplate(KafkaProperties kafkaProperties) {
+        Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+        serializers.put(RegisterUser.class, new RegisterUserSerializer());
+        serializers.put(byte[].class, new ByteArraySerializer());
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(kafkaProperties.buildProducerProperties(null),
+                new StringSerializer(), new DelegatingByTypeSerializer(serializers)));
+    }
+
+    /**
+     * Bean for the record listener containers of the retry topics. Non-blocking retries need one
+     * record per delivery, while the userTopic listener keeps the batch factory of spring.kafka.listener.
+     *
+     * @param configurer      the Spring Boot configurer applying the spring.kafka.listener properties
+     * @param consumerFactory the consumer factory
+     * @return the container factory
+     */
+    @Bean(RETRY_CONTAINER_FACTORY)
+    ConcurrentKafkaListenerContainerFactory<Object, Object> retryListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer, ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(false);
+        factory.setConcurrency(1);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.RECORD);
+        return factory;
+    }
+
+    /**
+     * Bean for the recoverer the userTopic listener hands failed records to. It adds the original
+     * topic, partition, offset and the exception to the record headers.
+     *
+     * @param notificationKafkaTemplate the template that publishes the failed records
+     * @return the recoverer, failing if the record cannot be published
+     */
+    @Bean
+    DeadLetterPublishingRecoverer registrationFailureRecoverer(KafkaTemplate<String, Object> notificationKafkaTemplate) {
+        return new DeadLetterPublishingRecoverer(notificationKafkaTemplate, (record, exception) ->
+                new TopicPartition(isDeserializationFailure(exception) ? DEAD_LETTER_TOPIC : FAILED_TOPIC, -1));
+    }
+
+    private static boolean isDeserializationFailure(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeserializationException) return true;
+        }
+        return false;
+    }
+}
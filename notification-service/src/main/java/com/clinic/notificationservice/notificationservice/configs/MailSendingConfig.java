@@ -0,0 +1,75 @@
+package com.clinic.notificationservice.notificationservice.configs;
+
+import com.clinic.notificationservice.notificationservice.models.MailPriority;
+import com.clinic.notificationservice.notificationservice.utils.mail.SendRateLimiter;
+import com.clinic.notificationservice.notificationservice.utils.mail.WeightedLaneExecutor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * MailSendingConfig class defines the executor that renders and sends the emails of a consumed batch,
+ * and the rate limiter shared by every email sent.
+ * Sending is bound by the SMTP round trip, not by the CPU, so the pool is sized by the number of
+ * concurrent SMTP conversations wanted. The threads are shared by the HIGH and NORMAL lanes by weight,
+ * and part of them is kept for the HIGH lane. When a lane is full the listener thread waits for room,
+ * which slows down polling instead of dropping work.
+ * The threads are platform threads even with spring.threads.virtual.enabled: Jakarta Mail sends and
+ * connects inside synchronized methods, which would pin the carrier of a virtual thread for the whole
+ * SMTP round trip. The listener threads only wait for the lanes, which does not pin them.
+ * The queued and active tasks of each lane are published as mail.sending.queued and mail.sending.active.
+ *
+ * @author caito
+ *
+ */
+@Configuration
+public class MailSendingConfig {
+
+    @Value("${application.mail.sender.threads:16}")
+    private int threads;
+    @Value("${application.mail.sender.queue-capacity:500}")
+    private int queueCapacity;
+    @Value("${application.mail.sender.lanes.high-weight:4}")
+    private int highWeight;
+    @Value("${application.mail.sender.lanes.normal-weight:1}")
+    private int normalWeight;
+    @Value("${application.mail.sender.lanes.normal-max-threads:12}")
+    private int normalMaxThreads;
+    @Value("${application.mail.rate-limit.per-second:0}")
+    private double permitsPerSecond;
+    @Value("${application.mail.rate-limit.burst:1}")
+    private int burst;
+
+    /**
+     * Bean for the mail sending executor with one bounded lane per priority.
+     *
+     * @param meterRegistry the registry where the lane metrics are published
+     * @return the executor
+     */
+    @Bean(destroyMethod = "shutdown")
+    WeightedLaneExecutor mailSendingExecutor(MeterRegistry meterRegistry) {
+        WeightedLaneExecutor executor = new WeightedLaneExecutor(threads, queueCapacity, highWeight, normalWeight,
+                normalMaxThreads, new CustomizableThreadFactory("mail-sending-"));
+        for (MailPriority priority : MailPriority.values()) {
+            String lane = priority.name().toLowerCase();
+            Gauge.builder("mail.sending.queued", executor, e -> e.queued(priority)).tag("lane", lane)
+                    .description("Emails waiting for a mail sending thread").register(meterRegistry);
+            Gauge.builder("mail.sending.active", executor, e -> e.active(priority)).tag("lane", lane)
+                    .description("Mail sending threads busy with the lane").register(meterRegistry);
+        }
+        return executor;
+    }
+
+    /**
+     * Bean for the token bucket matching the send quota of the SMTP provider.
+     *
+     * @return the rate limiter
+     */
+    @Bean
+    SendRateLimiter sendRateLimiter() {
+        return new SendRateLimiter(permitsPerSecond, burst);
+    }
+}
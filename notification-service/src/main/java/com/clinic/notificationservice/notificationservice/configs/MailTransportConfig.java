@@ -0,0 +1,59 @@
+package com.clinic.notificationservice.notificationservice.configs;
+
+import com.clinic.notificationservice.notificationservice.utils.mail.SmtpConnection;
+import com.clinic.notificationservice.notificationservice.utils.mail.SmtpTransportPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+
+/**
+ * MailTransportConfig class defines the pool of SMTP connections used to send emails.
+ * It reuses the session, host and credentials of the spring.mail configuration.
+ * The pool should be at least as large as the mail sending executor, so every sender thread
+ * can hold a connection.
+ *
+ * @author caito
+ *
+ */
+@Configuration
+public class MailTransportConfig {
+    @Value("${application.mail.pool.max-total:16}")
+    private int maxTotal;
+    @Value("${application.mail.pool.min-idle:0}")
+    private int minIdle;
+    @Value("${application.mail.pool.max-wait:10s}")
+    private Duration maxWait;
+    @Value("${application.mail.pool.max-idle-time:2m}")
+    private Duration maxIdleTime;
+    @Value("${application.mail.pool.eviction-interval:30s}")
+    private Duration evictionInterval;
+    @Value("${application.mail.pool.max-messages-per-connection:100}")
+    private int maxMessagesPerConnection;
+
+    /**
+     * Bean for the SMTP connection pool.
+     *
+     * @param mailSender the configured mail sender, providing the session and the server settings
+     * @return the pool, closing every connection on shutdown
+     */
+    @Bean(destroyMethod = "close")
+    SmtpTransportPool smtpTransportPool(JavaMailSenderImpl mailSender) {
+        GenericObjectPoolConfig<SmtpConnection> config = new GenericObjectPoolConfig<>();
+        config.setMaxTotal(maxTotal);
+        config.setMaxIdle(maxTotal);
+        config.setMinIdle(minIdle);
+        config.setMaxWait(maxWait);
+        config.setTestOnBorrow(true);
+        config.setTestWhileIdle(true);
+        config.setMinEvictableIdleDuration(maxIdleTime);
+        config.setTimeBetweenEvictionRuns(evictionInterval);
+        config.setJmxEnabled(false);
+        int port = mailSender.getPort() > 0 ? mailSender.getPort() : -1;
+        return new SmtpTransportPool(mailSender.getSession(), mailSender.getHost(), port,
+                mailSender.getUsername(), mailSender.getPassword(), maxMessagesPerConnection, config);
+    }
+}
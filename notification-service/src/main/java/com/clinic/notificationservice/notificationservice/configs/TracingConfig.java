@@ -0,0 +1,35 @@
+package com.clinic.notificationservice.notificationservice.configs;
+
+import com.clinic.commonservice.tracing.LogSpanExporter;
+import com.clinic.commonservice.tracing.MeterSpanExporter;
+import com.clinic.commonservice.tracing.SpanExporter;
+import com.clinic.commonservice.tracing.StageTracer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TracingConfig class defines the StageTracer of the notification-service stages: kafka.consume,
+ * mail.wait and mail.smtp. Spans go to the clinic.stage timer and, unless
+ * application.tracing.log-spans is false, to the JSON log file.
+ *
+ * @author caito
+ *
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    StageTracer stageTracer(@Value("${spring.application.name}") String service,
+                            @Value("${application.tracing.log-spans:true}") boolean logSpans,
+                            MeterRegistry meterRegistry) {
+        List<SpanExporter> exporters = new ArrayList<>();
+        exporters.add(new MeterSpanExporter(meterRegistry));
+        if (logSpans) exporters.add(new LogSpanExporter());
+        return new StageTracer(service, exporters);
+    }
+}
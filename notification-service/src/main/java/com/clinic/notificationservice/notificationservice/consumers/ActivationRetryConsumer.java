@@ -0,0 +1,138 @@
+package com.clinic.notificationservice.notificationservice.consumers;
+
+import com.clinic.commonservice.codecs.RegisterUserCodec;
+import com.clinic.commonservice.exceptions.MessageCodecException;
+import com.clinic.commonservice.models.RegisterUser;
+import com.clinic.commonservice.tracing.Correlation;
+import com.clinic.notificationservice.notificationservice.configs.KafkaRetryConfig;
+import com.clinic.notificationservice.notificationservice.models.MailPriority;
+import com.clinic.notificationservice.notificationservice.models.TemplatedEmail;
+import com.clinic.notificationservice.notificationservice.services.contracts.DeliveryDedupService;
+import com.clinic.notificationservice.notificationservice.services.contracts.MailSender;
+import com.clinic.notificationservice.notificationservice.utils.mail.SendRateLimiter;
+import com.clinic.notificationservice.notificationservice.utils.mail.WeightedLaneExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.DltHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Consumer for the activation emails that could not be sent from userTopic.
+ * Each record is retried on its own, with exponentially growing delays between the retry topics;
+ * waiting records pause only their retry topic partition, never userTopic.
+ * Records that still fail, or that cannot be deserialized, end in the dead letter topic. Its records
+ * are read as raw bytes, so a record that cannot be deserialized is still logged instead of failing
+ * again before reaching the dead letter handler.
+ * The retry topics keep the headers of the original record, so a retried email still carries the
+ * correlation id of its registration.
+ * The email is sent on the NORMAL lane of the mail sending executor, like the ones of userTopic, so
+ * the SMTP conversation never runs on the listener thread, which is virtual in the virtual thread mode.
+ *
+ * @author caito
+ *
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActivationRetryConsumer {
+    private final MailSender mailSender;
+    private final DeliveryDedupService deliveryDedupService;
+    private final SendRateLimiter sendRateLimiter;
+    private final WeightedLaneExecutor mailSendingExecutor;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Listens to the failed activation emails and sends them again.
+     *
+     * @param msg           the RegisterUser message whose email failed
+     * @param correlationId the correlation id header of the record, if any
+     * @throws InterruptedException if the thread is interrupted while waiting for the send quota
+     */
+    @RetryableTopic(
+            attempts = "${application.notifications.retry.attempts:5}",
+            backoff = @Backoff(
+                    delayExpression = "${application.notifications.retry.delay:30000}",
+                    multiplierExpression = "${application.notifications.retry.multiplier:4}",
+                    maxDelayExpression = "${application.notifications.retry.max-delay:1800000}"),
+            numPartitions = "${application.notifications.retry.partitions:3}",
+            replicationFactor = "-1",
+            kafkaTemplate = "notificationKafkaTemplate",
+            listenerContainerFactory = KafkaRetryConfig.RETRY_CONTAINER_FACTORY)
+    @KafkaListener(topics = KafkaRetryConfig.FAILED_TOPIC, groupId = "user-service-group", batch = "false",
+            containerFactory = KafkaRetryConfig.RETRY_CONTAINER_FACTORY, properties = {
+                    "spring.deserializer.value.delegate.class="
+                            + "org.springframework.kafka.support.serializer.DelegatingByTopicDeserializer",
+                    "spring.kafka.value.serialization.bytopic.config="
+                            + ".*-dlt:org.apache.kafka.common.serialization.ByteArrayDeserializer",
+                    "spring.kafka.value.serialization.bytopic.default="
+                            + "com.clinic.commonservice.codecs.RegisterUserDeserializer"})
+    public void handleFailed(RegisterUser msg,
+                             @Header(name = Correlation.KAFKA_HEADER, required = false) byte[] correlationId)
+            throws InterruptedException {
+        if (deliveryDedupService.alreadySent(msg.getEmail(), msg.getValidationToken())) return;
+        String id = correlationId == null ? null
+                : Correlation.sanitize(new String(correlationId, StandardCharsets.UTF_8));
+        try (MDC.MDCCloseable ignored = Correlation.open(id)) {
+            log.info("--> Retrying activation email to {}", msg.getEmail());
+            // retries run on the NORMAL lane, whichever topic the registration came from
+            sendRateLimiter.acquire(1, MailPriority.NORMAL);
+            Map<String, String> data = new HashMap<>();
+            data.put("name", msg.getUsername());
+            data.put("token", msg.getValidationToken());
+            TemplatedEmail email = new TemplatedEmail(new String[]{msg.getEmail()},
+                    "Account Activation - No Reply",
+                    "templates/account-activation.html",
+                    data,
+                    id);
+            try {
+                CompletableFuture.runAsync(() -> mailSender.sendEmailsWithTemplate(List.of(email)),
+                        mailSendingExecutor.lane(MailPriority.NORMAL)).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+            deliveryDedupService.markSent(msg.getEmail(), msg.getValidationToken());
+        }
+    }
+
+    /**
+     * Logs the activation emails that exhausted their retries, with the reason of the last failure,
+     * and counts them in the notifications.dead.letters counter, tagged by whether they could be decoded.
+     *
+     * @param record the dead letter record with the raw bytes of the message
+     */
+    @DltHandler
+    public void handleDeadLetter(ConsumerRecord<String, byte[]> record) {
+        String recipient;
+        boolean decodable = true;
+        try {
+            recipient = record.value() == null ? "no value" : RegisterUserCodec.decode(record.value()).getEmail();
+        } catch (MessageCodecException e) {
+            recipient = "undecodable value of " + record.value().length + " bytes";
+            decodable = false;
+        }
+        meterRegistry.counter("notifications.dead.letters", "decodable", String.valueOf(decodable)).increment();
+        log.error("Activation email given up, key {}, {}, from {}: {} {}", record.key(), recipient,
+                header(record, KafkaHeaders.DLT_ORIGINAL_TOPIC), header(record, KafkaHeaders.DLT_EXCEPTION_FQCN),
+                header(record, KafkaHeaders.DLT_EXCEPTION_MESSAGE));
+    }
+
+    private static String header(ConsumerRecord<?, ?> record, String name) {
+        var header = record.headers().lastHeader(name);
+        return header == null ? "" : new String(header.value(), StandardCharsets.UTF_8);
+    }
+}
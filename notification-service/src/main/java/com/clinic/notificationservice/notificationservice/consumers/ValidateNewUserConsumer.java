@@ -1,44 +1,258 @@
 package com.clinic.notificationservice.notificationservice.consumers;
 
+import com.clinic.commonservice.exceptions.EmailBatchSendingException;
+import com.clinic.commonservice.models.HighMsg;
 import com.clinic.commonservice.models.RegisterUser;
+import com.clinic.commonservice.tracing.Correlation;
+import com.clinic.commonservice.tracing.StageTracer;
+import com.clinic.notificationservice.notificationservice.configs.KafkaRetryConfig;
+import com.clinic.notificationservice.notificationservice.models.MailPriority;
+import com.clinic.notificationservice.notificationservice.models.TemplatedEmail;
+import com.clinic.notificationservice.notificationservice.services.contracts.DeliveryDedupService;
 import com.clinic.notificationservice.notificationservice.services.contracts.MailSender;
-import lombok.RequiredArgsConstructor;
+import com.clinic.notificationservice.notificationservice.utils.mail.SendRateLimiter;
+import com.clinic.notificationservice.notificationservice.utils.mail.WeightedLaneExecutor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.log.LogAccessor;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Consumer for user registration messages.
- * This class listens to the "userTopic" Kafka topic and processes incoming RegisterUser messages.
+ * This class listens to the "userTopic" Kafka topic for RegisterUser messages, such as the ones of a
+ * bulk import, and to the "userTopic-high" topic for HighMsg messages of users waiting for their email.
  * It is part of the notification service.
+ * <p>
+ * Records are consumed in batches, one batch per poll and partition assignment, and the activation
+ * emails of a batch are sent in parallel on the mail sending executor, a few consecutive emails per
+ * task over one pooled SMTP connection. Records whose email fails are handed to the failure recoverer,
+ * which publishes them for the ActivationRetryConsumer, and records that cannot be deserialized go to
+ * the dead letter topic; either way the batch is committed and userTopic keeps moving.
+ * Emails already sent, as remembered by the DeliveryDedupService, are dropped before any work.
+ * HighMsg batches are sent on the HIGH lane of the mail sending executor and ahead of NORMAL emails in
+ * the send quota, so they go out within seconds even while a userTopic backlog is draining.
+ * The correlationId header of each record follows its email to the MailSender. Each registration
+ * records the kafka.consume stage, from the creation of its record to the poll that returned it, and
+ * the mail.wait stage, from that poll to its turn in the send quota.
+ * <p>
+ * Metrics, by priority: notifications.batch (time to process a batch, failed if any of its records
+ * failed), notifications.consumer.lag (age of each record when its poll returned it) and
+ * notifications.records (records by result: sent, failed, poison, or dropped as duplicate or empty).
  *
  * @author caito
  *
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class ValidateNewUserConsumer {
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(ValidateNewUserConsumer.class);
     private final MailSender mailSender;
+    private final WeightedLaneExecutor mailSendingExecutor;
+    private final SendRateLimiter sendRateLimiter;
+    private final DeadLetterPublishingRecoverer registrationFailureRecoverer;
+    private final DeliveryDedupService deliveryDedupService;
+    private final StageTracer stageTracer;
+    private final Meter.MeterProvider<Timer> batchTimer;
+    private final Meter.MeterProvider<Timer> lagTimer;
+    private final Meter.MeterProvider<Counter> recordCounter;
+    @Value("${application.mail.sender.messages-per-task:10}")
+    private int messagesPerTask;
+
+    public ValidateNewUserConsumer(MailSender mailSender, WeightedLaneExecutor mailSendingExecutor,
+                                   SendRateLimiter sendRateLimiter,
+                                   DeadLetterPublishingRecoverer registrationFailureRecoverer,
+                                   DeliveryDedupService deliveryDedupService, StageTracer stageTracer,
+                                   MeterRegistry meterRegistry) {
+        this.mailSender = mailSender;
+        this.mailSendingExecutor = mailSendingExecutor;
+        this.sendRateLimiter = sendRateLimiter;
+        this.registrationFailureRecoverer = registrationFailureRecoverer;
+        this.deliveryDedupService = deliveryDedupService;
+        this.stageTracer = stageTracer;
+        this.batchTimer = Timer.builder("notifications.batch")
+                .description("Time to process a batch of registration messages")
+                .withRegistry(meterRegistry);
+        this.lagTimer = Timer.builder("notifications.consumer.lag")
+                .description("Time from the creation of a registration record to the poll that returned it")
+                .withRegistry(meterRegistry);
+        this.recordCounter = Counter.builder("notifications.records")
+                .description("Registration records consumed, by result")
+                .withRegistry(meterRegistry);
+    }
+
+    /**
+     * Listens to the "userTopic" Kafka topic and processes batches of RegisterUser messages
+     * on the NORMAL lane.
+     *
+     * @param records the RegisterUser records of one poll
+     * @throws BatchListenerFailedException with the index of a failed record that could not be published
+     * for retry, so the batch is redelivered from it
+     */
+    @KafkaListener(topics = KafkaRetryConfig.USER_TOPIC, groupId = "user-service-group")
+    public void handleRegister(List<ConsumerRecord<String, RegisterUser>> records) {
+        dispatch(records, MailPriority.NORMAL);
+    }
 
     /**
-     * Listens to the "userTopic" Kafka topic and processes RegisterUser messages.
+     * Listens to the "userTopic-high" Kafka topic and processes batches of HighMsg messages
+     * on the HIGH lane. The records are handled as RegisterUser records from then on, so failed
+     * ones follow the same retry topics.
      *
-     * @param msg the RegisterUser message received from the Kafka topic
+     * @param records the HighMsg records of one poll
+     * @throws BatchListenerFailedException with the index of a failed record that could not be published
+     * for retry, so the batch is redelivered from it
+     */
+    @KafkaListener(topics = KafkaRetryConfig.HIGH_TOPIC, groupId = "user-service-group",
+            properties = "spring.deserializer.value.delegate.class=com.clinic.commonservice.codecs.HighMsgDeserializer")
+    public void handleHighPriority(List<ConsumerRecord<String, HighMsg>> records) {
+        List<ConsumerRecord<String, RegisterUser>> registrations = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, HighMsg> record : records) registrations.add(toRegistration(record));
+        dispatch(registrations, MailPriority.HIGH);
+    }
+
+    private void dispatch(List<ConsumerRecord<String, RegisterUser>> records, MailPriority priority) {
+        log.info("--> Received {} {} registration messages", records.size(), priority);
+        long start = System.nanoTime();
+        Instant received = Instant.now();
+        Map<Integer, Exception> failures = new TreeMap<>();
+        List<Integer> pending = new ArrayList<>(records.size());
+        Set<String> batchKeys = new HashSet<>();
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, RegisterUser> record = records.get(i);
+            DeserializationException poison = SerializationUtils.getExceptionFromHeader(record,
+                    SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG_ACCESSOR);
+            RegisterUser msg = record.value();
+            if (poison != null) {
+                failures.put(i, poison);
+            } else if (msg != null && !deliveryDedupService.alreadySent(msg.getEmail(), msg.getValidationToken())
+                    && batchKeys.add(msg.getEmail() + '\0' + msg.getValidationToken())) {
+                pending.add(i);
+                if (record.timestamp() >= 0) {
+                    Instant created = Instant.ofEpochMilli(record.timestamp());
+                    Duration lag = Duration.between(created, received);
+                    stageTracer.record("kafka.consume", Correlation.read(record.headers()), created, lag, false);
+                    if (!lag.isNegative()) lagTimer.withTags(Tags.of("priority", priority.name())).record(lag);
+                }
+            }
+        }
+        int poisoned = failures.size();
+        if (pending.size() < records.size() - failures.size()) {
+            log.info("--> Dropped {} duplicate or empty registration messages",
+                    records.size() - failures.size() - pending.size());
+        }
+        List<CompletableFuture<Map<Integer, Exception>>> sends = new ArrayList<>();
+        for (int from = 0; from < pending.size(); from += messagesPerTask) {
+            List<Integer> chunk = pending.subList(from, Math.min(from + messagesPerTask, pending.size()));
+            sends.add(CompletableFuture.supplyAsync(() -> sendActivations(records, chunk, priority, received),
+                            mailSendingExecutor.lane(priority))
+                    .exceptionally(ex -> allFailed(chunk, ex)));
+        }
+        sends.forEach(send -> failures.putAll(send.join()));
+        count(priority, "poison", poisoned);
+        count(priority, "dropped", records.size() - poisoned - pending.size());
+        count(priority, "failed", failures.size() - poisoned);
+        count(priority, "sent", pending.size() - (failures.size() - poisoned));
+        batchTimer.withTags(Tags.of("priority", priority.name(), "outcome", failures.isEmpty() ? "ok" : "failed"))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        for (Map.Entry<Integer, Exception> failure : failures.entrySet()) {
+            ConsumerRecord<String, RegisterUser> record = records.get(failure.getKey());
+            try {
+                registrationFailureRecoverer.accept(record, failure.getValue());
+            } catch (RuntimeException e) {
+                log.error("Cannot hand over the failed record at offset {}: {}", record.offset(), e.getMessage());
+                throw new BatchListenerFailedException("Failed record could not be published", e, failure.getKey());
+            }
+        }
+    }
+
+    /*
+     * Sends the activation emails of the given records over one SMTP connection, remembers the ones sent
+     * and returns the failed records by index in the batch. When an email fails, the rest is still sent.
+     * Every email waits for its turn in the send quota first.
      */
-    @KafkaListener(topics = "userTopic", groupId = "user-service-group")
-    public void handleRegister(RegisterUser msg){
-        System.out.println("Recived message : " + msg.getEmail() + " " + msg.getUsername() + " "
-                + msg.getValidationToken());
-        Map<String, String> data = new HashMap<>();
-        data.put("name", msg.getUsername());
-        data.put("token", msg.getValidationToken());
-        mailSender.sendEmailWithTemplate(new String[]{msg.getEmail()},
-                "Account Activation - No Reply",
-                "templates/account-activation.html",
-                data);
+    private Map<Integer, Exception> sendActivations(List<ConsumerRecord<String, RegisterUser>> records,
+                                                    List<Integer> indexes, MailPriority priority, Instant received) {
+        Map<Integer, Exception> failures = new HashMap<>();
+        List<TemplatedEmail> emails = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            ConsumerRecord<String, RegisterUser> record = records.get(index);
+            RegisterUser msg = record.value();
+            Map<String, String> data = new HashMap<>();
+            data.put("name", msg.getUsername());
+            data.put("token", msg.getValidationToken());
+            emails.add(new TemplatedEmail(new String[]{msg.getEmail()},
+                    "Account Activation - No Reply",
+                    "templates/account-activation.html",
+                    data,
+                    Correlation.read(record.headers())));
+        }
+        try {
+            sendRateLimiter.acquire(emails.size(), priority);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (int index : indexes) failures.put(index, e);
+            return failures;
+        }
+        for (TemplatedEmail email : emails) stageTracer.record("mail.wait", email.correlationId(), received);
+        int next = 0;
+        while (next < emails.size()) {
+            try {
+                mailSender.sendEmailsWithTemplate(emails.subList(next, emails.size()));
+                markSent(records, indexes.subList(next, emails.size()));
+                break;
+            } catch (EmailBatchSendingException e) {
+                markSent(records, indexes.subList(next, next + e.getSent()));
+                failures.put(indexes.get(next + e.getSent()), e);
+                next += e.getSent() + 1;
+            } catch (RuntimeException e) {
+                for (int i = next; i < emails.size(); i++) failures.put(indexes.get(i), e);
+                break;
+            }
+        }
+        return failures;
+    }
+
+    private void count(MailPriority priority, String result, int records) {
+        if (records > 0) recordCounter.withTags(Tags.of("priority", priority.name(), "result", result)).increment(records);
+    }
+
+    private void markSent(List<ConsumerRecord<String, RegisterUser>> records, List<Integer> indexes) {
+        for (int index : indexes) {
+            RegisterUser msg = records.get(index).value();
+            deliveryDedupService.markSent(msg.getEmail(), msg.getValidationToken());
+        }
+    }
+
+    private static ConsumerRecord<String, RegisterUser> toRegistration(ConsumerRecord<String, HighMsg> record) {
+        HighMsg msg = record.value();
+        RegisterUser registration = msg == null ? null
+                : new RegisterUser(msg.getEmail(), msg.getUsername(), msg.getValidationToken());
+        return new ConsumerRecord<>(record.topic(), record.partition(), record.offset(), record.timestamp(),
+                record.timestampType(), record.serializedKeySize(), record.serializedValueSize(), record.key(),
+                registration, record.headers(), record.leaderEpoch());
+    }
+
+    private static Map<Integer, Exception> allFailed(List<Integer> indexes, Throwable ex) {
+        Exception cause = ex.getCause() instanceof Exception e ? e : new IllegalStateException(ex);
+        Map<Integer, Exception> failures = new HashMap<>();
+        for (int index : indexes) failures.put(index, cause);
+        return failures;
     }
 }
@@ -0,0 +1,13 @@
+package com.clinic.notificationservice.notificationservice.models;
+
+/**
+ * MailPriority enum defines the lanes emails are sent on.
+ * HIGH is for emails someone is waiting for, such as the activation of an account created at the
+ * front desk; NORMAL is for everything else, such as the activations of a bulk import.
+ *
+ * @author caito
+ */
+public enum MailPriority {
+    HIGH,
+    NORMAL
+}
@@ -0,0 +1,22 @@
+package com.clinic.notificationservice.notificationservice.models;
+
+import java.util.Map;
+
+/**
+ * TemplatedEmail record represents an email whose HTML body is rendered from a template.
+ *
+ * @param to            the recipient email addresses
+ * @param subject       the subject of the email
+ * @param templateName  the name of the template file located in the classpath
+ * @param data          the values that replace the placeholders of the template
+ * @param correlationId the correlation id of the registration the email is for, null if unknown
+ *
+ * @author caito
+ */
+public record TemplatedEmail(String[] to, String subject, String templateName, Map<String, String> data,
+                             String correlationId) {
+
+    public TemplatedEmail(String[] to, String subject, String templateName, Map<String, String> data) {
+        this(to, subject, templateName, data, null);
+    }
+}
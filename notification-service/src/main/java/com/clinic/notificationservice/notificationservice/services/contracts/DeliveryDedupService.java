@@ -0,0 +1,14 @@
+package com.clinic.notificationservice.notificationservice.services.contracts;
+
+/**
+ * Interface for remembering which activation emails were already sent,
+ * so redelivered registration messages do not send them twice.
+ *
+ * @author caito
+ *
+ */
+public interface DeliveryDedupService {
+    boolean alreadySent(String email, String validationToken);
+    void markSent(String email, String validationToken);
+    void snapshot();
+}
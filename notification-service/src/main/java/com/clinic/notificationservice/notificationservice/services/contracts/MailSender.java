@@ -1,11 +1,15 @@
 package com.clinic.notificationservice.notificationservice.services.contracts;
 
+import com.clinic.notificationservice.notificationservice.models.TemplatedEmail;
+
 import java.io.File;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Interface for sending emails.
- * Provides methods to send simple emails, emails with attachments, and templated emails.
+ * Provides methods to send simple emails, emails with attachments, and templated emails,
+ * one at a time or many over a single connection.
  * This interface can be implemented by various email service providers.
  *
  * @author caito
@@ -15,4 +19,5 @@ public interface MailSender {
     void sendEmail(String[] to, String subject, String body);
     void sendEmailWithAttachment(String[] to, String subject, String body, File file);
     void sendEmailWithTemplate(String[] to, String subject, String templateName, Map<String, String> data);
+    void sendEmailsWithTemplate(List<TemplatedEmail> emails);
 }
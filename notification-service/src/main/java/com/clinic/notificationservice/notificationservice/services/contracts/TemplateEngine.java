@@ -0,0 +1,14 @@
+package com.clinic.notificationservice.notificationservice.services.contracts;
+
+import java.util.Map;
+
+/**
+ * Interface for rendering the email templates.
+ * Templates are classpath resources with ${name} placeholders.
+ *
+ * @author caito
+ *
+ */
+public interface TemplateEngine {
+    String render(String templateName, Map<String, String> data);
+}
@@ -0,0 +1,132 @@
+package com.clinic.notificationservice.notificationservice.services.impl;
+
+import com.clinic.notificationservice.notificationservice.services.contracts.DeliveryDedupService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Implementation of the DeliveryDedupService interface.
+ * Each sent activation email is remembered as a 64-bit hash of its lower-cased email and its
+ * validation token, so a lookup is a single hash and map probe done before any rendering or SMTP work.
+ * The store is written to a local file periodically and on shutdown, and read back at startup,
+ * so duplicates are also dropped across restarts.
+ *
+ * @author caito
+ *
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DeliveryDedupServiceImpl implements DeliveryDedupService {
+    private static final int FILE_MAGIC = 0x44445550;
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final Cache<Long, Long> activationDedupCache;
+    @Value("${application.notifications.dedup.window:24h}")
+    private Duration window;
+    @Value("${application.notifications.dedup.file:data/activation-dedup.bin}")
+    private Path file;
+
+    /**
+     * Tells whether the activation email for this email and token was already sent.
+     *
+     * @param email           the recipient
+     * @param validationToken the validation token of the email
+     * @return true if the email was sent within the dedup window
+     */
+    @Override
+    public boolean alreadySent(String email, String validationToken) {
+        return activationDedupCache.getIfPresent(key(email, validationToken)) != null;
+    }
+
+    /**
+     * Remembers that the activation email for this email and token was sent.
+     *
+     * @param email           the recipient
+     * @param validationToken the validation token of the email
+     */
+    @Override
+    public void markSent(String email, String validationToken) {
+        activationDedupCache.put(key(email, validationToken), System.currentTimeMillis() + window.toMillis());
+    }
+
+    /**
+     * Writes the store to its file, replacing the previous snapshot atomically.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${application.notifications.dedup.snapshot-interval:30s}",
+            initialDelayString = "${application.notifications.dedup.snapshot-interval:30s}")
+    @PreDestroy
+    public void snapshot() {
+        Map<Long, Long> entries = Map.copyOf(activationDedupCache.asMap());
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(entries.size());
+                for (Map.Entry<Long, Long> entry : entries.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Cannot write the dedup snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the last snapshot, skipping the entries that expired meanwhile.
+     */
+    @PostConstruct
+    void load() {
+        if (!Files.exists(file)) return;
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                log.error("Ignoring dedup snapshot {}: unknown format", file);
+                return;
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                long key = in.readLong();
+                long expiresAt = in.readLong();
+                if (expiresAt > now) {
+                    activationDedupCache.put(key, expiresAt);
+                    loaded++;
+                }
+            }
+        } catch (IOException e) {
+            log.error("Cannot read the dedup snapshot {}: {}", file, e.getMessage());
+        }
+        log.info("--> Loaded {} sent activation emails from {}", loaded, file);
+    }
+
+    private static long key(String email, String validationToken) {
+        return HASH.newHasher()
+                .putString(email == null ? "" : email.toLowerCase(Locale.ROOT), StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putString(validationToken == null ? "" : validationToken, StandardCharsets.UTF_8)
+                .hash().asLong();
+    }
+}
@@ -1,34 +1,68 @@
 package com.clinic.notificationservice.notificationservice.services.impl;
 
+import com.clinic.commonservice.exceptions.EmailBatchSendingException;
 import com.clinic.commonservice.exceptions.EmailSendingException;
-import com.clinic.commonservice.logs.WriteLog;
+import com.clinic.commonservice.tracing.Correlation;
+import com.clinic.commonservice.tracing.StageTracer;
+import com.clinic.notificationservice.notificationservice.models.TemplatedEmail;
 import com.clinic.notificationservice.notificationservice.services.contracts.MailSender;
+import com.clinic.notificationservice.notificationservice.services.contracts.TemplateEngine;
+import com.clinic.notificationservice.notificationservice.utils.mail.SmtpConnection;
+import com.clinic.notificationservice.notificationservice.utils.mail.SmtpTransportPool;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.mail.MailException;
-import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
-import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Implementation of the MailSender interface.
+ * Emails are sent over the pooled SMTP connections of the SmtpTransportPool instead of opening
+ * a new connection per email.
+ * The correlation id of a templated email, or else the one of the current thread, is sent as its
+ * X-Correlation-Id header, and the SMTP round trip of every message is recorded as its mail.smtp stage
+ * and in the mail.smtp.send timer, tagged with its outcome.
+ *
+ * @author caito
+ *
+ */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class MailSenderImpl implements MailSender{
     private final JavaMailSenderImpl mailSender;
+    private final SmtpTransportPool smtpTransportPool;
+    private final TemplateEngine templateEngine;
+    private final StageTracer stageTracer;
+    private final Meter.MeterProvider<Timer> smtpTimer;
     @Value("${application.email}")
     private String email;
     private final String ERROR_MESSAGE = "no se pudo enviar el e-mail";
 
+    public MailSenderImpl(JavaMailSenderImpl mailSender, SmtpTransportPool smtpTransportPool,
+                          TemplateEngine templateEngine, StageTracer stageTracer, MeterRegistry meterRegistry) {
+        this.mailSender = mailSender;
+        this.smtpTransportPool = smtpTransportPool;
+        this.templateEngine = templateEngine;
+        this.stageTracer = stageTracer;
+        this.smtpTimer = Timer.builder("mail.smtp.send")
+                .description("Time to send a message over a pooled SMTP connection")
+                .withRegistry(meterRegistry);
+    }
+
     /**
      * Sends a simple email to the specified recipients.
      *
@@ -40,14 +74,15 @@ public class MailSenderImpl implements MailSender{
     @Override
     public void sendEmail(String[] to, String subject, String body) {
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(email);
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(body);
-            mailSender.send(message);
-        }catch (MailException e){
-            log.error(WriteLog.logError(ERROR_MESSAGE));
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, false, StandardCharsets.UTF_8.name());
+            helper.setFrom(email);
+            helper.setTo(to);
+            helper.setSubject(subject);
+            helper.setText(body);
+            send(List.of(message));
+        }catch (MessagingException e){
+            log.error(ERROR_MESSAGE);
             throw new EmailSendingException(ERROR_MESSAGE);
         }
 
@@ -70,34 +105,92 @@ public class MailSenderImpl implements MailSender{
      */
     @Override
     public void sendEmailWithTemplate(String[] to, String subject, String templateName, Map<String, String> data) {
+        sendEmailsWithTemplate(List.of(new TemplatedEmail(to, subject, templateName, data)));
+    }
+
+    /**
+     * Sends templated emails in order over one pooled SMTP connection, switching to a fresh
+     * connection when the current one reaches its message limit.
+     * Sending stops at the first email that cannot be sent.
+     *
+     * @param emails the emails to send
+     * @throws EmailBatchSendingException with the number of emails sent before the one that failed.
+     * @throws EmailSendingException if a template cannot be loaded.
+     */
+    @Override
+    public void sendEmailsWithTemplate(List<TemplatedEmail> emails) {
+        List<MimeMessage> messages = new ArrayList<>(emails.size());
+        MessagingException invalid = null;
+        for (TemplatedEmail templated : emails) {
+            try {
+                messages.add(render(templated));
+            } catch (MessagingException e) {
+                invalid = e;
+                break;
+            }
+        }
+        // the emails before an invalid one, such as a malformed address, are still sent
+        send(messages);
+        if (invalid != null) {
+            log.error(ERROR_MESSAGE + ": {}", invalid.getMessage());
+            throw new EmailBatchSendingException(ERROR_MESSAGE + ": " + invalid.getMessage(), messages.size(), invalid);
+        }
+    }
+
+    private MimeMessage render(TemplatedEmail templated) throws MessagingException {
         MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, false, StandardCharsets.UTF_8.name() );
+        helper.setFrom(email);
+        helper.setTo(templated.to());
+        helper.setSubject(templated.subject());
+        helper.setText(templateEngine.render(templated.templateName(), templated.data()), true); // true indicates HTML content
+        String correlationId = templated.correlationId() != null ? templated.correlationId() : Correlation.current();
+        if (correlationId != null) message.setHeader(Correlation.MAIL_HEADER, correlationId);
+        return message;
+    }
+
+    /*
+     * Sends the messages over one pooled connection. A connection that failed, with a messaging
+     * or any other exception, is closed instead of being given back, so a broken session is never
+     * reused and no connection is leaked.
+     */
+    private void send(List<MimeMessage> messages) {
+        if (messages.isEmpty()) return;
+        SmtpConnection connection = null;
+        int sent = 0;
         try {
-            MimeMessageHelper helper = new MimeMessageHelper(message, false, StandardCharsets.UTF_8.name() );
-            helper.setFrom(email);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            String template = getTemplate(templateName);
-            for (Map.Entry<String, String> entry : data.entrySet()) {
-                template = template.replace("${" + entry.getKey() + "}", entry.getValue());
+            connection = smtpTransportPool.borrow();
+            for (MimeMessage message : messages) {
+                if (connection.isExhausted()) {
+                    smtpTransportPool.release(connection);
+                    connection = null;
+                    connection = smtpTransportPool.borrow();
+                }
+                timedSend(connection, message);
+                sent++;
             }
-            helper.setText(template, true); // true indicates HTML content
-            mailSender.send(message);
-        }catch (MailException e){
-            log.error(WriteLog.logError(ERROR_MESSAGE));
-            throw new EmailSendingException(ERROR_MESSAGE);
+            smtpTransportPool.release(connection);
         } catch (MessagingException e) {
-            throw new RuntimeException(e);
+            if (connection != null) smtpTransportPool.invalidate(connection);
+            log.error(ERROR_MESSAGE + ": {}", e.getMessage());
+            throw new EmailBatchSendingException(ERROR_MESSAGE + ": " + e.getMessage(), sent, e);
+        } catch (RuntimeException e) {
+            if (connection != null) smtpTransportPool.invalidate(connection);
+            throw e;
         }
     }
 
-    private String getTemplate(String templateName){
-        ClassPathResource resource = new ClassPathResource(templateName);
+    private void timedSend(SmtpConnection connection, MimeMessage message) throws MessagingException {
+        Instant start = Instant.now();
+        long startNanos = System.nanoTime();
+        boolean failed = true;
         try {
-            return new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
-        }catch (IOException e){
-            String ERROR_TEMPLATE = "no se pudo cargar el template";
-            log.error(WriteLog.logError(ERROR_TEMPLATE));
-            throw new EmailSendingException(ERROR_TEMPLATE);
+            connection.send(message);
+            failed = false;
+        } finally {
+            Duration duration = Duration.ofNanos(System.nanoTime() - startNanos);
+            smtpTimer.withTags(Tags.of("outcome", failed ? "failed" : "ok")).record(duration);
+            stageTracer.record("mail.smtp", message.getHeader(Correlation.MAIL_HEADER, null), start, duration, failed);
         }
     }
 
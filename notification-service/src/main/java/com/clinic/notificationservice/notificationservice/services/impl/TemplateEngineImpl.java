@@ -0,0 +1,88 @@
+package com.clinic.notificationservice.notificationservice.services.impl;
+
+import com.clinic.commonservice.exceptions.EmailSendingException;
+import com.clinic.notificationservice.notificationservice.services.contracts.TemplateEngine;
+import com.clinic.notificationservice.notificationservice.utils.templates.CompiledTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementation of the TemplateEngine interface.
+ * Each template is read and compiled once and kept in memory; rendering appends the segments
+ * of the compiled template to a buffer reused by the rendering thread.
+ * With hot reload enabled, meant for development, a template is compiled again when its
+ * resource changes.
+ *
+ * @author caito
+ *
+ */
+@Service
+@Slf4j
+public class TemplateEngineImpl implements TemplateEngine {
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(4096));
+
+    private final Map<String, Entry> templates = new ConcurrentHashMap<>();
+    @Value("${application.mail.templates.hot-reload:false}")
+    private boolean hotReload;
+
+    /**
+     * Renders a template with the given data.
+     *
+     * @param templateName the name of the template file located in the classpath
+     * @param data         the values that replace the placeholders of the template
+     * @return the rendered text
+     * @throws EmailSendingException if the template cannot be loaded
+     */
+    @Override
+    public String render(String templateName, Map<String, String> data) {
+        CompiledTemplate template = getTemplate(templateName);
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        template.render(data, buffer);
+        String rendered = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) BUFFER.remove();
+        return rendered;
+    }
+
+    private CompiledTemplate getTemplate(String templateName) {
+        Entry entry = templates.get(templateName);
+        if (entry != null && (!hotReload || entry.lastModified() == lastModified(templateName))) {
+            return entry.template();
+        }
+        Entry loaded = load(templateName);
+        templates.put(templateName, loaded);
+        return loaded.template();
+    }
+
+    private Entry load(String templateName) {
+        ClassPathResource resource = new ClassPathResource(templateName);
+        try {
+            long lastModified = hotReload ? lastModified(templateName) : 0L;
+            String source = resource.getContentAsString(StandardCharsets.UTF_8);
+            return new Entry(CompiledTemplate.compile(source, templateName.endsWith(".html")), lastModified);
+        }catch (IOException e){
+            String ERROR_TEMPLATE = "no se pudo cargar el template";
+            log.error(ERROR_TEMPLATE);
+            throw new EmailSendingException(ERROR_TEMPLATE);
+        }
+    }
+
+    private static long lastModified(String templateName) {
+        try {
+            return new ClassPathResource(templateName).lastModified();
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+
+    private record Entry(CompiledTemplate template, long lastModified) {
+    }
+}
@@ -0,0 +1,87 @@
+package com.clinic.notificationservice.notificationservice.utils.mail;
+
+import com.clinic.notificationservice.notificationservice.models.MailPriority;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SendRateLimiter class is a token bucket shared by every email sent, so the service never goes
+ * over the send quota of the SMTP provider.
+ * Tokens are added at a fixed rate up to the burst size and each email takes one. While a HIGH
+ * priority caller is waiting, NORMAL callers do not get tokens, so urgent emails are next in line
+ * even when a bulk backlog is using the whole quota.
+ * A rate of zero or less disables the limit.
+ *
+ * @author caito
+ *
+ */
+public class SendRateLimiter {
+    private final double permitsPerNano;
+    private final double burst;
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition changed = lock.newCondition();
+    private double tokens;
+    private long refilledAt;
+    private int highWaiting;
+
+    /**
+     * Creates a limiter starting with a full bucket.
+     *
+     * @param permitsPerSecond the sustained number of emails per second, zero or less for no limit
+     * @param burst            the number of emails that can be sent at once after an idle period
+     */
+    public SendRateLimiter(double permitsPerSecond, int burst) {
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes the given number of tokens one at a time, waiting for each of them as needed.
+     * HIGH priority callers can take tokens between the ones of a NORMAL caller.
+     *
+     * @param permits  the number of emails about to be sent
+     * @param priority the lane of the emails
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire(int permits, MailPriority priority) throws InterruptedException {
+        if (permitsPerNano <= 0) return;
+        for (int i = 0; i < permits; i++) acquire(priority);
+    }
+
+    private void acquire(MailPriority priority) throws InterruptedException {
+        boolean high = priority == MailPriority.HIGH;
+        lock.lockInterruptibly();
+        try {
+            if (high) highWaiting++;
+            try {
+                while (true) {
+                    refill();
+                    boolean myTurn = high || highWaiting == 0;
+                    if (myTurn && tokens >= 1) {
+                        tokens -= 1;
+                        return;
+                    }
+                    if (myTurn) {
+                        changed.awaitNanos((long) Math.ceil((1 - tokens) / permitsPerNano));
+                    } else {
+                        changed.await();
+                    }
+                }
+            } finally {
+                if (high && --highWaiting == 0) changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+    }
+}
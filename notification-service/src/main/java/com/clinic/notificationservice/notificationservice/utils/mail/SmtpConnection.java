@@ -0,0 +1,52 @@
+package com.clinic.notificationservice.notificationservice.utils.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+
+import java.util.Date;
+
+/*
+ * SmtpConnection class wraps a connected and authenticated SMTP transport of the SmtpTransportPool
+ * and counts the messages sent through it, so the pool can retire it after the configured number
+ * of messages.
+ *
+ * @author caito
+ *
+ */
+public class SmtpConnection {
+    private final Transport transport;
+    private final int maxMessages;
+    private int sent;
+
+    SmtpConnection(Transport transport, int maxMessages) {
+        this.transport = transport;
+        this.maxMessages = maxMessages;
+    }
+
+    /**
+     * Sends one message over this connection.
+     *
+     * @param message the message to send
+     * @throws MessagingException if the server rejects the message or the connection is lost
+     */
+    public void send(MimeMessage message) throws MessagingException {
+        if (message.getSentDate() == null) message.setSentDate(new Date());
+        message.saveChanges();
+        transport.sendMessage(message, message.getAllRecipients());
+        sent++;
+    }
+
+    /**
+     * Tells whether this connection has sent as many messages as it is allowed to.
+     *
+     * @return true if the connection must not be used again
+     */
+    public boolean isExhausted() {
+        return maxMessages > 0 && sent >= maxMessages;
+    }
+
+    Transport transport() {
+        return transport;
+    }
+}
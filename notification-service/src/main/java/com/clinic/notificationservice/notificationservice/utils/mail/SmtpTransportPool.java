@@ -0,0 +1,134 @@
+package com.clinic.notificationservice.notificationservice.utils.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+/*
+ * SmtpTransportPool class keeps SMTP connections open between emails, so the TCP connect,
+ * STARTTLS handshake and AUTH are paid once per connection instead of once per email.
+ * Connections are checked with a NOOP when borrowed and while idle, evicted after staying idle
+ * for too long, and retired after a maximum number of messages, which keeps them below the limits
+ * mail providers put on a single session.
+ *
+ * @author caito
+ *
+ */
+public class SmtpTransportPool implements AutoCloseable {
+    private final GenericObjectPool<SmtpConnection> pool;
+
+    public SmtpTransportPool(Session session, String host, int port, String username, String password,
+                             int maxMessagesPerConnection, GenericObjectPoolConfig<SmtpConnection> config) {
+        this.pool = new GenericObjectPool<>(new ConnectionFactory(session, host, port, username, password,
+                maxMessagesPerConnection), config);
+    }
+
+    /**
+     * Borrows a healthy connection, opening a new one if none is idle.
+     *
+     * @return the connection, to be given back with release or invalidate
+     * @throws MessagingException if no connection can be opened within the configured wait time
+     */
+    public SmtpConnection borrow() throws MessagingException {
+        try {
+            return pool.borrowObject();
+        } catch (MessagingException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MessagingException("Cannot get an SMTP connection: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gives a connection back to the pool, or closes it if it reached its message limit.
+     *
+     * @param connection the borrowed connection
+     */
+    public void release(SmtpConnection connection) {
+        if (connection.isExhausted()) {
+            invalidate(connection);
+        } else {
+            pool.returnObject(connection);
+        }
+    }
+
+    /**
+     * Closes a connection that failed instead of giving it back to the pool.
+     *
+     * @param connection the borrowed connection
+     */
+    public void invalidate(SmtpConnection connection) {
+        try {
+            pool.invalidateObject(connection);
+        } catch (Exception ignored) {
+            // the connection is discarded either way
+        }
+    }
+
+    public int getNumActive() {
+        return pool.getNumActive();
+    }
+
+    public int getNumIdle() {
+        return pool.getNumIdle();
+    }
+
+    public long getCreatedCount() {
+        return pool.getCreatedCount();
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    private static class ConnectionFactory extends BasePooledObjectFactory<SmtpConnection> {
+        private final Session session;
+        private final String host;
+        private final int port;
+        private final String username;
+        private final String password;
+        private final int maxMessages;
+
+        ConnectionFactory(Session session, String host, int port, String username, String password, int maxMessages) {
+            this.session = session;
+            this.host = host;
+            this.port = port;
+            this.username = username;
+            this.password = password;
+            this.maxMessages = maxMessages;
+        }
+
+        @Override
+        public SmtpConnection create() throws MessagingException {
+            Transport transport = session.getTransport("smtp");
+            transport.connect(host, port, username, password);
+            return new SmtpConnection(transport, maxMessages);
+        }
+
+        @Override
+        public PooledObject<SmtpConnection> wrap(SmtpConnection connection) {
+            return new DefaultPooledObject<>(connection);
+        }
+
+        // isConnected sends a NOOP and reports false if the server does not answer
+        @Override
+        public boolean validateObject(PooledObject<SmtpConnection> pooled) {
+            return pooled.getObject().transport().isConnected();
+        }
+
+        @Override
+        public void destroyObject(PooledObject<SmtpConnection> pooled) {
+            try {
+                pooled.getObject().transport().close();
+            } catch (MessagingException ignored) {
+                // the server may already have dropped the connection
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.clinic.notificationservice.notificationservice.utils.mail;
+
+import com.clinic.notificationservice.notificationservice.models.MailPriority;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * WeightedLaneExecutor class shares a fixed set of mail sending threads between the priority lanes.
+ * Each lane has its own bounded queue. Free threads pick the next task with a smooth weighted round
+ * robin over the lanes that have work, so with weights 4 and 1 the HIGH lane gets four threads out of
+ * five while both are busy, and all of them while NORMAL is idle. NORMAL tasks never run on more than
+ * a configured number of threads, which keeps threads free for urgent emails during a bulk backlog.
+ * Submitting to a full lane blocks the caller until the lane has room, slowing down the consumer
+ * instead of dropping work. A task that throws, even an Error, is logged and does not stop its thread,
+ * so the number of mail sending threads stays fixed.
+ *
+ * @author caito
+ *
+ */
+@Slf4j
+public class WeightedLaneExecutor {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Map<MailPriority, Lane> lanes = new EnumMap<>(MailPriority.class);
+    private boolean shutdown;
+
+    /**
+     * Creates the executor and starts its threads.
+     *
+     * @param threads           the number of mail sending threads shared by the lanes
+     * @param queueCapacity     the number of tasks each lane can hold before submitting blocks
+     * @param highWeight        the share of the threads given to the HIGH lane
+     * @param normalWeight      the share of the threads given to the NORMAL lane
+     * @param normalMaxRunning  the maximum number of threads running NORMAL tasks at once
+     * @param threadFactory     the factory of the mail sending threads
+     */
+    public WeightedLaneExecutor(int threads, int queueCapacity, int highWeight, int normalWeight,
+                                int normalMaxRunning, ThreadFactory threadFactory) {
+        lanes.put(MailPriority.HIGH, new Lane(MailPriority.HIGH, queueCapacity, highWeight, threads));
+        lanes.put(MailPriority.NORMAL, new Lane(MailPriority.NORMAL, queueCapacity, normalWeight, Math.max(1, normalMaxRunning)));
+        for (int i = 0; i < threads; i++) {
+            threadFactory.newThread(this::work).start();
+        }
+    }
+
+    /**
+     * Returns an Executor that submits to the given lane.
+     *
+     * @param priority the lane
+     * @return the executor of the lane
+     */
+    public Executor lane(MailPriority priority) {
+        return task -> submit(priority, task);
+    }
+
+    /**
+     * Queues a task on the given lane, waiting while the lane is full.
+     *
+     * @param priority the lane
+     * @param task     the task to run
+     * @throws RejectedExecutionException if the executor is shut down or the caller is interrupted
+     */
+    public void submit(MailPriority priority, Runnable task) {
+        Lane lane = lanes.get(priority);
+        lock.lock();
+        try {
+            while (!shutdown && lane.queue.size() >= lane.capacity) lane.notFull.await();
+            if (shutdown) throw new RejectedExecutionException("Mail sending executor is shut down");
+            lane.queue.add(task);
+            workAvailable.signal();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for the " + priority + " lane", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued(MailPriority priority) {
+        lock.lock();
+        try {
+            return lanes.get(priority).queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int active(MailPriority priority) {
+        lock.lock();
+        try {
+            return lanes.get(priority).running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting tasks. The threads finish the queued tasks and then exit.
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            workAvailable.signalAll();
+            lanes.values().forEach(lane -> lane.notFull.signalAll());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Lane lane;
+            Runnable task;
+            lock.lock();
+            try {
+                while ((lane = nextLane()) == null) {
+                    if (shutdown && lanes.values().stream().allMatch(l -> l.queue.isEmpty())) return;
+                    workAvailable.awaitUninterruptibly();
+                }
+                task = lane.queue.poll();
+                lane.running++;
+                lane.notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                task.run();
+            } catch (Throwable e) {
+                // tasks report their own failures through the CompletableFuture they complete, so this
+                // is a task that escaped it; losing the thread would shrink the pool for good
+                log.error("Mail sending task on the {} lane failed: {}", lane.priority, e.getMessage(), e);
+            } finally {
+                lock.lock();
+                try {
+                    lane.running--;
+                    // a NORMAL task may have been waiting for this thread because of the running limit
+                    workAvailable.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /*
+     * Smooth weighted round robin: every lane with runnable work gains its weight, the lane with the
+     * highest current weight is picked and loses the total weight of the eligible lanes.
+     */
+    private Lane nextLane() {
+        Lane best = null;
+        int eligibleWeight = 0;
+        for (Lane lane : lanes.values()) {
+            if (lane.queue.isEmpty() || lane.running >= lane.maxRunning) continue;
+            lane.current += lane.weight;
+            eligibleWeight += lane.weight;
+            if (best == null || lane.current > best.current) best = lane;
+        }
+        if (best != null) best.current -= eligibleWeight;
+        return best;
+    }
+
+    private final class Lane {
+        private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        private final Condition notFull = lock.newCondition();
+        private final MailPriority priority;
+        private final int capacity;
+        private final int weight;
+        private final int maxRunning;
+        private int running;
+        private int current;
+
+        private Lane(MailPriority priority, int capacity, int weight, int maxRunning) {
+            this.priority = priority;
+            this.capacity = capacity;
+            this.weight = Math.max(1, weight);
+            this.maxRunning = maxRunning;
+        }
+    }
+}
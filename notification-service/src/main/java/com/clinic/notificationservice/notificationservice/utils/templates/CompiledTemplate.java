@@ -0,0 +1,91 @@
+package com.clinic.notificationservice.notificationservice.utils.templates;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * CompiledTemplate class holds a template parsed once into literal and ${name} placeholder segments,
+ * so rendering is a single pass that appends each segment to the output.
+ * Placeholders without a value in the data are rendered as written, like the former
+ * String.replace substitution did; values are HTML escaped when the template is HTML.
+ *
+ * @author caito
+ *
+ */
+public class CompiledTemplate {
+    private final String[] literals;
+    private final String[] placeholders;
+    private final boolean escapeHtml;
+    private final int literalLength;
+
+    private CompiledTemplate(String[] literals, String[] placeholders, boolean escapeHtml) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        this.escapeHtml = escapeHtml;
+        int length = 0;
+        for (String literal : literals) length += literal.length();
+        this.literalLength = length;
+    }
+
+    /**
+     * Parses a template. Literal i is followed by placeholder i, and the last literal ends the template.
+     *
+     * @param source     the template text
+     * @param escapeHtml whether the values must be HTML escaped
+     * @return the compiled template
+     */
+    public static CompiledTemplate compile(String source, boolean escapeHtml) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int from = 0;
+        int start;
+        while ((start = source.indexOf("${", from)) >= 0) {
+            int end = source.indexOf('}', start + 2);
+            if (end < 0) break;
+            literals.add(source.substring(from, start));
+            placeholders.add(source.substring(start + 2, end));
+            from = end + 1;
+        }
+        literals.add(source.substring(from));
+        return new CompiledTemplate(literals.toArray(String[]::new), placeholders.toArray(String[]::new), escapeHtml);
+    }
+
+    /**
+     * Renders the template into the given buffer.
+     *
+     * @param data the values of the placeholders
+     * @param out  the buffer the output is appended to
+     */
+    public void render(Map<String, String> data, StringBuilder out) {
+        out.ensureCapacity(out.length() + literalLength + 64 * placeholders.length);
+        for (int i = 0; i < placeholders.length; i++) {
+            out.append(literals[i]);
+            String name = placeholders[i];
+            if (!data.containsKey(name)) {
+                out.append("${").append(name).append('}');
+            } else if (escapeHtml) {
+                appendEscaped(data.get(name), out);
+            } else {
+                String value = data.get(name);
+                if (value != null) out.append(value);
+            }
+        }
+        out.append(literals[literals.length - 1]);
+    }
+
+    private static void appendEscaped(String value, StringBuilder out) {
+        if (value == null) return;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.clinic.notificationservice.notificationservice.consumers;
+
+import com.clinic.commonservice.codecs.HighMsgSerializer;
+import com.clinic.commonservice.codecs.RegisterUserSerializer;
+import com.clinic.commonservice.exceptions.EmailBatchSendingException;
+import com.clinic.commonservice.models.HighMsg;
+import com.clinic.commonservice.models.RegisterUser;
+import com.clinic.commonservice.tracing.Correlation;
+import com.clinic.notificationservice.notificationservice.configs.KafkaRetryConfig;
+import com.clinic.notificationservice.notificationservice.models.TemplatedEmail;
+import com.clinic.notificationservice.notificationservice.services.contracts.MailSender;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "eureka.client.enabled=false",
+        "application.mail.sender.threads=8",
+        "application.mail.sender.messages-per-task=2",
+        "application.mail.sender.lanes.normal-max-threads=6"})
+@EmbeddedKafka(partitions = 2, topics = {"userTopic", "userTopic-high"})
+@DirtiesContext
+class ValidateNewUserConsumerTest {
+    private static final int MESSAGES = 40;
+    private static final long SMTP_LATENCY_MS = 100;
+    private static final String FAILING = "patient7@clinic.test";
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @MockitoBean
+    private MailSender mailSender;
+
+    @Test
+    void sendsBatchesConcurrentlyAndRoutesFailuresOutOfBand() throws Exception {
+        Set<String> sent = ConcurrentHashMap.newKeySet();
+        AtomicInteger deliveries = new AtomicInteger();
+        AtomicBoolean failedOnce = new AtomicBoolean();
+        doAnswer(invocation -> {
+            List<TemplatedEmail> emails = invocation.getArgument(0);
+            for (int i = 0; i < emails.size(); i++) {
+                String to = emails.get(i).to()[0];
+                Thread.sleep(SMTP_LATENCY_MS);
+                if (to.equals(FAILING) && failedOnce.compareAndSet(false, true)) {
+                    throw new EmailBatchSendingException("smtp down", i, null);
+                }
+                sent.add(to);
+                deliveries.incrementAndGet();
+            }
+            return null;
+        }).when(mailSender).sendEmailsWithTemplate(anyList());
+        // the retry consumer sends one email at a time
+        doAnswer(invocation -> sent.add(((String[]) invocation.getArgument(0))[0]) && deliveries.incrementAndGet() > 0)
+                .when(mailSender).sendEmailWithTemplate(any(), anyString(), anyString(), anyMap());
+
+        long start = System.nanoTime();
+        try (KafkaProducer<String, RegisterUser> producer = new KafkaProducer<>(KafkaTestUtils.producerProps(broker),
+                new StringSerializer(), new RegisterUserSerializer());
+             KafkaProducer<String, byte[]> rawProducer = new KafkaProducer<>(KafkaTestUtils.producerProps(broker),
+                     new StringSerializer(), new ByteArraySerializer())) {
+            rawProducer.send(new ProducerRecord<>("userTopic", "poison", new byte[]{1, 2, 3}));
+            for (int i = 0; i < MESSAGES; i++) {
+                String email = "patient" + i + "@clinic.test";
+                producer.send(new ProducerRecord<>("userTopic", email, new RegisterUser(email, "Patient " + i, "t" + i)));
+            }
+        }
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (sent.size() < MESSAGES && System.currentTimeMillis() < deadline) Thread.sleep(50);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(MESSAGES, sent.size());
+        assertTrue(failedOnce.get());
+        assertTrue(elapsedMs < MESSAGES * SMTP_LATENCY_MS, "emails were not sent concurrently: " + elapsedMs + " ms");
+        assertEquals(endOffsets(), committedOffsets(deadline));
+
+        // redelivered registrations are dropped by the dedup store
+        try (KafkaProducer<String, RegisterUser> producer = new KafkaProducer<>(KafkaTestUtils.producerProps(broker),
+                new StringSerializer(), new RegisterUserSerializer())) {
+            for (int i = 0; i < 5; i++) {
+                String email = "patient" + i + "@clinic.test";
+                producer.send(new ProducerRecord<>("userTopic", email, new RegisterUser(email, "Patient " + i, "t" + i)));
+            }
+        }
+        assertEquals(endOffsets(), committedOffsets(System.currentTimeMillis() + 30_000));
+        assertEquals(MESSAGES, deliveries.get());
+
+        ConsumerRecord<String, byte[]> deadLetter = readDeadLetter();
+        assertEquals("poison", deadLetter.key());
+        assertArrayEquals(new byte[]{1, 2, 3}, deadLetter.value());
+        assertNotNull(deadLetter.headers().lastHeader(KafkaHeaders.DLT_EXCEPTION_FQCN));
+        // the dead letter handler reads the poison pill as raw bytes instead of failing on it again
+        while (undecodableDeadLetters() == 0 && System.currentTimeMillis() < deadline + 30_000) Thread.sleep(50);
+        assertEquals(1, undecodableDeadLetters());
+    }
+
+    @Test
+    void sendsUrgentActivationsAheadOfTheBacklog() throws Exception {
+        Map<String, Long> sentAt = new ConcurrentHashMap<>();
+        doAnswer(invocation -> {
+            for (TemplatedEmail email : invocation.<List<TemplatedEmail>>getArgument(0)) {
+                Thread.sleep(SMTP_LATENCY_MS);
+                sentAt.put(email.to()[0], System.nanoTime());
+            }
+            return null;
+        }).when(mailSender).sendEmailsWithTemplate(anyList());
+
+        int bulk = 120;
+        try (KafkaProducer<String, RegisterUser> producer = new KafkaProducer<>(KafkaTestUtils.producerProps(broker),
+                new StringSerializer(), new RegisterUserSerializer())) {
+            for (int i = 0; i < bulk; i++) {
+                String email = "imported" + i + "@clinic.test";
+                producer.send(new ProducerRecord<>("userTopic", email, new RegisterUser(email, "Imported " + i, "b" + i)));
+            }
+        }
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (sentAt.size() < 6 && System.currentTimeMillis() < deadline) Thread.sleep(20);
+
+        long start = System.nanoTime();
+        try (KafkaProducer<String, HighMsg> producer = new KafkaProducer<>(KafkaTestUtils.producerProps(broker),
+                new StringSerializer(), new HighMsgSerializer())) {
+            producer.send(new ProducerRecord<>("userTopic-high", "urgent@clinic.test",
+                    new HighMsg("urgent@clinic.test", "Front Desk Patient", "u1")));
+        }
+        while (!sentAt.containsKey("urgent@clinic.test") && System.currentTimeMillis() < deadline) Thread.sleep(20);
+        long urgentMs = TimeUnit.NANOSECONDS.toMillis(sentAt.get("urgent@clinic.test") - start);
+        long bulkSentBefore = sentAt.values().stream().filter(at -> at <= sentAt.get("urgent@clinic.test")).count() - 1;
+
+        assertTrue(urgentMs < 3_000, "urgent activation took " + urgentMs + " ms");
+        assertTrue(bulkSentBefore < bulk, "urgent activation waited for the whole backlog");
+        while (sentAt.size() < bulk + 1 && System.currentTimeMillis() < deadline) Thread.sleep(50);
+        assertEquals(bulk + 1, sentAt.size());
+    }
+
+    @Test
+    void carriesTheCorrelationIdOfTheRecordToTheMailSender() throws Exception {
+        CompletableFuture<TemplatedEmail> received = new CompletableFuture<>();
+        doAnswer(invocation -> {
+            for (TemplatedEmail email : invocation.<List<TemplatedEmail>>getArgument(0)) {
+                if (email.to()[0].equals("traced@clinic.test")) received.complete(email);
+            }
+            return null;
+        }).when(mailSender).sendEmailsWithTemplate(anyList());
+
+        try (KafkaProducer<String, HighMsg> producer = new KafkaProducer<>(KafkaTestUtils.producerProps(broker),
+                new StringSerializer(), new HighMsgSerializer())) {
+            ProducerRecord<String, HighMsg> record = new ProducerRecord<>("userTopic-high", "traced@clinic.test",
+                    new HighMsg("traced@clinic.test", "Traced Patient", "c1"));
+            Correlation.write(record.headers(), "registration-42");
+            producer.send(record);
+        }
+
+        assertEquals("registration-42", received.get(30, TimeUnit.SECONDS).correlationId());
+    }
+
+    private double undecodableDeadLetters() {
+        Counter counter = meterRegistry.find("notifications.dead.letters").tag("decodable", "false").counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private ConsumerRecord<String, byte[]> readDeadLetter() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("dlt-reader", "false", broker);
+        props.put("auto.offset.reset", "earliest");
+        try (Consumer<String, byte[]> consumer = new KafkaConsumer<>(props, new StringDeserializer(),
+                new ByteArrayDeserializer())) {
+            consumer.subscribe(List.of(KafkaRetryConfig.DEAD_LETTER_TOPIC));
+            return KafkaTestUtils.getSingleRecord(consumer, KafkaRetryConfig.DEAD_LETTER_TOPIC, Duration.ofSeconds(30));
+        }
+    }
+
+    private Map<TopicPartition, Long> endOffsets() throws Exception {
+        try (AdminClient admin = AdminClient.create(Map.of("bootstrap.servers", broker.getBrokersAsString()))) {
+            Map<TopicPartition, OffsetSpec> request = Set.of(new TopicPartition("userTopic", 0),
+                    new TopicPartition("userTopic", 1)).stream()
+                    .collect(Collectors.toMap(tp -> tp, tp -> OffsetSpec.latest()));
+            return admin.listOffsets(request).all().get().entrySet().stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().offset()));
+        }
+    }
+
+    private Map<TopicPartition, Long> committedOffsets(long deadline) throws Exception {
+        Map<TopicPartition, Long> end = endOffsets();
+        try (AdminClient admin = AdminClient.create(Map.of("bootstrap.servers", broker.getBrokersAsString()))) {
+            Map<TopicPartition, Long> committed = Map.of();
+            while (System.currentTimeMillis() < deadline) {
+                committed = admin.listConsumerGroupOffsets("user-service-group").partitionsToOffsetAndMetadata().get()
+                        .entrySet().stream()
+                        .filter(e -> e.getKey().topic().equals("userTopic"))
+                        .collect(Collectors.toMap(Map.Entry::getKey, e -> ((OffsetAndMetadata) e.getValue()).offset()));
+                if (committed.equals(end)) break;
+                Thread.sleep(50);
+            }
+            return committed;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.clinic.notificationservice.notificationservice.services.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeliveryDedupServiceImplTest {
+    @TempDir
+    Path dir;
+
+    private DeliveryDedupServiceImpl newService(Duration window) {
+        Cache<Long, Long> cache = Caffeine.newBuilder().maximumSize(1_000).build();
+        DeliveryDedupServiceImpl service = new DeliveryDedupServiceImpl(cache);
+        ReflectionTestUtils.setField(service, "window", window);
+        ReflectionTestUtils.setField(service, "file", dir.resolve("dedup.bin"));
+        service.load();
+        return service;
+    }
+
+    @Test
+    void remembersSentEmailsPerToken() {
+        DeliveryDedupServiceImpl service = newService(Duration.ofHours(1));
+        service.markSent("Ana@Clinic.test", "t1");
+        assertTrue(service.alreadySent("ana@clinic.test", "t1"));
+        assertFalse(service.alreadySent("ana@clinic.test", "t2"));
+    }
+
+    @Test
+    void survivesRestartsThroughTheSnapshot() {
+        DeliveryDedupServiceImpl service = newService(Duration.ofHours(1));
+        service.markSent("ana@clinic.test", "t1");
+        service.snapshot();
+        assertTrue(newService(Duration.ofHours(1)).alreadySent("ana@clinic.test", "t1"));
+    }
+
+    @Test
+    void skipsExpiredEntriesWhenLoading() {
+        DeliveryDedupServiceImpl service = newService(Duration.ofMillis(-1));
+        service.markSent("ana@clinic.test", "t1");
+        service.snapshot();
+        assertFalse(newService(Duration.ofHours(1)).alreadySent("ana@clinic.test", "t1"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.clinic.notificationservice.notificationservice.utils.mail;
+
+import com.clinic.notificationservice.notificationservice.models.MailPriority;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SendRateLimiterTest {
+
+    @Test
+    void holdsTheRateAfterTheBurst() throws Exception {
+        SendRateLimiter limiter = new SendRateLimiter(50, 5);
+        long start = System.nanoTime();
+        limiter.acquire(15, MailPriority.NORMAL);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // 5 from the burst, 10 more at 50 per second
+        assertTrue(elapsedMs >= 180, "the limit was not applied: " + elapsedMs + " ms");
+    }
+
+    @Test
+    void servesWaitingHighPriorityCallersFirst() throws Exception {
+        SendRateLimiter limiter = new SendRateLimiter(20, 1);
+        limiter.acquire(1, MailPriority.NORMAL);
+        List<MailPriority> served = new CopyOnWriteArrayList<>();
+        Thread bulk = new Thread(() -> acquire(limiter, 10, MailPriority.NORMAL, served));
+        bulk.start();
+        Thread.sleep(120);
+        Thread urgent = new Thread(() -> acquire(limiter, 1, MailPriority.HIGH, served));
+        urgent.start();
+        urgent.join();
+        bulk.join();
+        assertEquals(11, served.size());
+        assertTrue(served.indexOf(MailPriority.HIGH) <= 4, "urgent email waited for the bulk: " + served);
+    }
+
+    @Test
+    void zeroRateDisablesTheLimit() throws Exception {
+        SendRateLimiter limiter = new SendRateLimiter(0, 1);
+        long start = System.nanoTime();
+        limiter.acquire(100_000, MailPriority.NORMAL);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+    }
+
+    private static void acquire(SendRateLimiter limiter, int permits, MailPriority priority, List<MailPriority> served) {
+        try {
+            for (int i = 0; i < permits; i++) {
+                limiter.acquire(1, priority);
+                served.add(priority);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.clinic.notificationservice.notificationservice.utils.mail;
+
+import com.clinic.notificationservice.notificationservice.models.MailPriority;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeightedLaneExecutorTest {
+
+    @Test
+    void runsUrgentTasksWhileTheNormalLaneIsBacklogged() throws Exception {
+        WeightedLaneExecutor executor = new WeightedLaneExecutor(4, 100, 4, 1, 3,
+                new CustomizableThreadFactory("lane-test-"));
+        try {
+            AtomicInteger normalDone = new AtomicInteger();
+            for (int i = 0; i < 60; i++) {
+                executor.submit(MailPriority.NORMAL, () -> {
+                    sleep(50);
+                    normalDone.incrementAndGet();
+                });
+            }
+            Thread.sleep(100);
+            assertEquals(3, executor.active(MailPriority.NORMAL));
+            CountDownLatch urgent = new CountDownLatch(1);
+            long start = System.nanoTime();
+            executor.submit(MailPriority.HIGH, urgent::countDown);
+            assertTrue(urgent.await(2, TimeUnit.SECONDS));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 50,
+                    "the urgent task waited for a NORMAL task to finish");
+            assertTrue(normalDone.get() < 20);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void sharesTheThreadsByWeight() throws Exception {
+        WeightedLaneExecutor executor = new WeightedLaneExecutor(1, 100, 4, 1, 1,
+                new CustomizableThreadFactory("lane-test-"));
+        StringBuffer order = new StringBuffer();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(20);
+        try {
+            executor.submit(MailPriority.NORMAL, () -> awaitQuietly(blocked));
+            while (executor.active(MailPriority.NORMAL) == 0) Thread.sleep(5);
+            for (int i = 0; i < 10; i++) {
+                executor.submit(MailPriority.HIGH, () -> { order.append('H'); done.countDown(); });
+                executor.submit(MailPriority.NORMAL, () -> { order.append('N'); done.countDown(); });
+            }
+            blocked.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            // while both lanes have work, four HIGH tasks run for each NORMAL one
+            assertEquals(1, order.substring(0, 5).chars().filter(c -> c == 'N').count(), order.toString());
+            assertEquals(2, order.substring(0, 10).chars().filter(c -> c == 'N').count(), order.toString());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void keepsItsThreadsWhenATaskThrowsAnError() throws Exception {
+        WeightedLaneExecutor executor = new WeightedLaneExecutor(1, 100, 4, 1, 1,
+                new CustomizableThreadFactory("lane-test-"));
+        try {
+            executor.submit(MailPriority.HIGH, () -> {
+                throw new AssertionError("task failed");
+            });
+            executor.submit(MailPriority.NORMAL, () -> {
+                throw new IllegalStateException("task failed");
+            });
+            CountDownLatch done = new CountDownLatch(2);
+            executor.submit(MailPriority.HIGH, done::countDown);
+            executor.submit(MailPriority.NORMAL, done::countDown);
+            assertTrue(done.await(2, TimeUnit.SECONDS), "the only thread died with the failed task");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.clinic.notificationservice.notificationservice.utils.templates;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CompiledTemplateTest {
+
+    private static String render(String source, boolean escapeHtml, Map<String, String> data) {
+        StringBuilder out = new StringBuilder();
+        CompiledTemplate.compile(source, escapeHtml).render(data, out);
+        return out.toString();
+    }
+
+    @Test
+    void replacesEveryOccurrenceOfEachPlaceholder() {
+        assertEquals("Hola Ana, token t1. Bye Ana",
+                render("Hola ${name}, token ${token}. Bye ${name}", true, Map.of("name", "Ana", "token", "t1")));
+    }
+
+    @Test
+    void keepsPlaceholdersWithoutValueAndUnterminatedMarkers() {
+        assertEquals("${missing} and ${open", render("${missing} and ${open", true, Map.of()));
+    }
+
+    @Test
+    void rendersNullValuesAsEmpty() {
+        Map<String, String> data = new HashMap<>();
+        data.put("name", null);
+        assertEquals("[]", render("[${name}]", true, data));
+    }
+
+    @Test
+    void escapesValuesOnlyForHtml() {
+        Map<String, String> data = Map.of("name", "<b>\"O'Neil\" & co</b>");
+        assertEquals("<p>&lt;b&gt;&quot;O&#39;Neil&quot; &amp; co&lt;/b&gt;</p>", render("<p>${name}</p>", true, data));
+        assertEquals("<b>\"O'Neil\" & co</b>", render("${name}", false, data));
+    }
+}
@@ -1,7 +1,10 @@
 package com.clinic.userservice.userservice.api.controllers.contracts;
 
+import com.clinic.commonservice.enums.RoleName;
 import com.clinic.userservice.userservice.api.models.requests.UserEnabledRequest;
 import com.clinic.userservice.userservice.api.models.requests.UserRequest;
+import com.clinic.userservice.userservice.api.models.responses.CursorPageResponse;
+import com.clinic.userservice.userservice.api.models.responses.ImportReportResponse;
 import com.clinic.userservice.userservice.api.models.responses.UserResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,10 +13,13 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * UserController interface defines the contract for user-related operations.
@@ -34,6 +40,39 @@ public interface UserController {
     })
     public ResponseEntity<?> createUser(@RequestBody UserRequest request);
 
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @SecurityRequirement(name = "security token")
+    @Operation(description = "Import users in bulk from a CSV (with header row) or NDJSON stream")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "import processed, rejected rows are listed in the report"),
+            @ApiResponse(responseCode = "400", description = "Bad request, invalid CSV header"),
+            @ApiResponse(responseCode = "415", description = "Unsupported media type"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<ImportReportResponse> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                            @Parameter(hidden = true) InputStream body);
+
+    @GetMapping("/export")
+    @SecurityRequirement(name = "security token")
+    @Operation(description = "Stream the user directory as CSV or NDJSON")
+    @Parameters({
+            @Parameter(name = "format", description = "Export format, csv or ndjson", example = "ndjson"),
+            @Parameter(name = "role", description = "Only users with this role"),
+            @Parameter(name = "plan", description = "Only users with this plan"),
+            @Parameter(name = "socialWork", description = "Only users with this social work"),
+            @Parameter(name = "gzip", description = "Compress the export with gzip", example = "false")
+    })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "users exported successfully"),
+            @ApiResponse(responseCode = "400", description = "Bad request, unsupported format or role"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "ndjson") String format,
+                                                             @RequestParam(required = false) RoleName role,
+                                                             @RequestParam(required = false) String plan,
+                                                             @RequestParam(required = false) String socialWork,
+                                                             @RequestParam(defaultValue = "false") boolean gzip);
+
     @GetMapping
     @SecurityRequirement(name = "security token")
     @Operation(description = "Retrieve all users")
@@ -49,16 +88,41 @@ public interface UserController {
     public ResponseEntity<Page<UserResponse>> getAllUsers(@RequestParam(defaultValue = "0") int page,
                                                           @RequestParam(defaultValue = "10") int size);
 
+    @GetMapping(params = "cursor")
+    @SecurityRequirement(name = "security token")
+    @Operation(description = "Retrieve all users using keyset (cursor) pagination")
+    @Parameters({
+            @Parameter(name = "cursor", description = "Continuation token of the previous page, empty for the first page", example = ""),
+            @Parameter(name = "size", description = "Number of users per page", example = "10"),
+            @Parameter(name = "withTotal", description = "Include a cached approximate total of users", example = "false")
+    })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "users retrieved successfully"),
+            @ApiResponse(responseCode = "204", description = "No content"),
+            @ApiResponse(responseCode = "400", description = "Bad request, invalid cursor or size"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<CursorPageResponse<UserResponse>> getAllUsersByCursor(@RequestParam String cursor,
+                                                                               @RequestParam(defaultValue = "10") int size,
+                                                                               @RequestParam(defaultValue = "false") boolean withTotal);
+
     @GetMapping("/by-name/{name}")
     @SecurityRequirement(name = "security token")
-    @Operation(description = "Retrieve users by name")
-    @Parameter(name = "name", description = "name of user")
+    @Operation(description = "Retrieve users by name, ranked by relevance")
+    @Parameters({
+            @Parameter(name = "name", description = "name of user, case and accents are ignored"),
+            @Parameter(name = "page", description = "Page number for pagination", example = "0"),
+            @Parameter(name = "size", description = "Number of users per page", example = "20")
+    })
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "users retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Bad request, invalid name or page"),
             @ApiResponse(responseCode = "404", description = "Not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<List<UserResponse>> getUsersByName(@PathVariable String name);
+    public ResponseEntity<Page<UserResponse>> getUsersByName(@PathVariable String name,
+                                                             @RequestParam(defaultValue = "0") int page,
+                                                             @RequestParam(defaultValue = "20") int size);
 
     @GetMapping("/by-email/{email}")
     @SecurityRequirement(name = "security token")
@@ -114,8 +178,9 @@ public interface UserController {
             @ApiResponse(responseCode = "200", description = "user enabled successfully"),
             @ApiResponse(responseCode = "400", description = "Bad request, invalid input data"),
             @ApiResponse(responseCode = "404", description = "Not found"),
-            @ApiResponse(responseCode = "500", description = "Internal server error")
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "503", description = "Too many activations in progress, retry later")
     })
-    public ResponseEntity<?> enableUser(@RequestBody UserEnabledRequest request);
+    public CompletableFuture<ResponseEntity<?>> enableUser(@RequestBody UserEnabledRequest request);
 }
 
@@ -0,0 +1,64 @@
+package com.clinic.userservice.userservice.api.controllers.contracts;
+
+import com.clinic.userservice.userservice.api.models.responses.UserResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.Parameters;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * UserReadController interface defines the contract for the non-blocking user lookups.
+ * They return the same UserResponse payloads as the UserController, without holding a request
+ * thread or a JDBC connection while the database answers.
+ * Each method is annotated with OpenAPI annotations for documentation and security requirements.
+ *
+ * @author caito
+ *
+ */
+public interface UserReadController {
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @SecurityRequirement(name = "security token")
+    @Operation(description = "Stream users in id order, one JSON document per line")
+    @Parameters({
+            @Parameter(name = "after", description = "Id of the last user already received, 0 for the first one", example = "0"),
+            @Parameter(name = "limit", description = "Maximum number of users to stream", example = "1000")
+    })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "users streamed successfully"),
+            @ApiResponse(responseCode = "400", description = "Bad request, invalid limit"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public Flux<UserResponse> streamUsers(@RequestParam(defaultValue = "0") long after,
+                                          @RequestParam(defaultValue = "1000") int limit);
+
+    @GetMapping("/by-email/{email}")
+    @SecurityRequirement(name = "security token")
+    @Operation(description = "Retrieve users by email")
+    @Parameter(name = "email", description = "email of user")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "users retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public Mono<UserResponse> getUsersByEmail(@PathVariable String email);
+
+    @GetMapping("/by-dni/{dni}")
+    @SecurityRequirement(name = "security token")
+    @Operation(description = "Retrieve users by dni")
+    @Parameter(name = "dni", description = "dni of user")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "users retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public Mono<UserResponse> getUsersByDni(@PathVariable String dni);
+}
@@ -1,22 +1,43 @@
 package com.clinic.userservice.userservice.api.controllers.impl;
 
+import com.clinic.commonservice.enums.RoleName;
+import com.clinic.commonservice.exceptions.BadRequestException;
 import com.clinic.commonservice.exceptions.NotFoundException;
-import com.clinic.commonservice.logs.WriteLog;
+import com.clinic.commonservice.tracing.StageTracer;
 import com.clinic.userservice.userservice.api.controllers.contracts.UserController;
 import com.clinic.userservice.userservice.api.models.requests.UserEnabledRequest;
+import com.clinic.userservice.userservice.api.models.requests.UserExportFilter;
 import com.clinic.userservice.userservice.api.models.requests.UserRequest;
+import com.clinic.userservice.userservice.api.models.responses.CursorPageResponse;
+import com.clinic.userservice.userservice.api.models.responses.ImportReportResponse;
 import com.clinic.userservice.userservice.api.models.responses.UserResponse;
+import com.clinic.userservice.userservice.services.contracts.UserExportService;
+import com.clinic.userservice.userservice.services.contracts.UserImportService;
 import com.clinic.userservice.userservice.services.contracts.UserService;
+import com.clinic.userservice.userservice.utils.exports.ExportFormat;
+import com.clinic.userservice.userservice.utils.imports.ImportFormat;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * UserControlerImpl class implements the UserController interface.
@@ -33,13 +54,50 @@ import java.util.List;
 @Tag(name = "User Controller", description = "Endpoints for managing users")
 public class UserControlerImpl implements UserController {
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final UserExportService userExportService;
+    private final StageTracer stageTracer;
+    @Value("${application.users.export.timeout:30m}")
+    private Duration exportTimeout;
 
     @Override
     public ResponseEntity<?> createUser(UserRequest request) {
-        userService.createUser(request);
+        // the whole transaction, commit included: validation, the inserts and the outbox row
+        stageTracer.trace("user.transaction", () -> userService.createUser(request));
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
+    @Override
+    public ResponseEntity<ImportReportResponse> importUsers(String contentType, InputStream body) {
+        ImportFormat format = ImportFormat.fromContentType(contentType);
+        if (format == null) {
+            log.error("Unsupported import content type: {}", contentType);
+            throw new BadRequestException(List.of("Unsupported import content type: " + contentType));
+        }
+        return ResponseEntity.ok(userImportService.importUsers(body, format));
+    }
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> exportUsers(String format, RoleName role, String plan,
+                                                             String socialWork, boolean gzip) {
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        if (exportFormat == null) {
+            log.error("Unsupported export format: {}", format);
+            throw new BadRequestException(List.of("Unsupported export format: " + format));
+        }
+        UserExportFilter filter = UserExportFilter.builder().role(role).plan(plan).socialWork(socialWork).build();
+        String fileName = "users." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = output -> userExportService.exportUsers(filter, exportFormat,
+                gzip ? new GZIPOutputStream(output, 64 * 1024) : output);
+        // a large directory takes longer to stream than the async timeout of the other endpoints
+        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(exportTimeout.toMillis());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getMediaType()))
+                .body(body);
+    }
+
     @Override
     public ResponseEntity<Page<UserResponse>> getAllUsers(int page, int size) {
         Page<UserResponse> users = userService.getUsers(page, size);
@@ -49,10 +107,18 @@ public class UserControlerImpl implements UserController {
     }
 
     @Override
-    public ResponseEntity<List<UserResponse>> getUsersByName(String name) {
-        var users = userService.getUsers(name);
+    public ResponseEntity<CursorPageResponse<UserResponse>> getAllUsersByCursor(String cursor, int size, boolean withTotal) {
+        CursorPageResponse<UserResponse> users = userService.getUsers(cursor, size, withTotal);
+        if (users.getContent().isEmpty())
+            return ResponseEntity.noContent().build();
+        return ResponseEntity.ok(users);
+    }
+
+    @Override
+    public ResponseEntity<Page<UserResponse>> getUsersByName(String name, int page, int size) {
+        var users = userService.getUsers(name, page, size);
         if (users.isEmpty()){
-            log.error(WriteLog.logError("No users found with name: " + name));
+            log.error("No users found with name: {}", name);
             throw new NotFoundException("No users found with name: " + name);
         }
         return ResponseEntity.ok(users);
@@ -80,9 +146,8 @@ public class UserControlerImpl implements UserController {
     }
 
     @Override
-    public ResponseEntity<?> enableUser(UserEnabledRequest request) {
-        userService.enabledUser(request);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<?>> enableUser(UserEnabledRequest request) {
+        return userService.enabledUser(request).thenApply(done -> ResponseEntity.ok().build());
     }
 
 
@@ -0,0 +1,44 @@
+package com.clinic.userservice.userservice.api.controllers.impl;
+
+import com.clinic.userservice.userservice.api.controllers.contracts.UserReadController;
+import com.clinic.userservice.userservice.api.models.responses.UserResponse;
+import com.clinic.userservice.userservice.services.contracts.UserReadService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * UserReadControllerImpl class implements the UserReadController interface, next to the
+ * UserControlerImpl. Spring MVC subscribes to the returned publishers asynchronously: the request
+ * thread is released until the reactive driver answers, and a stream is written one user at a
+ * time, requesting the next one from the database only after the previous one was written.
+ * Those writes run on Boot's applicationTaskExecutor, the MVC async executor of the whole service.
+ *
+ * @author caito
+ *
+ */
+@RestController
+@RequestMapping("v1/clinical/reactive/users")
+@RequiredArgsConstructor
+@Tag(name = "User Read Controller", description = "Non-blocking endpoints for reading users")
+public class UserReadControllerImpl implements UserReadController {
+    private final UserReadService userReadService;
+
+    @Override
+    public Flux<UserResponse> streamUsers(long after, int limit) {
+        return userReadService.streamUsers(after, limit);
+    }
+
+    @Override
+    public Mono<UserResponse> getUsersByEmail(String email) {
+        return userReadService.getUserByEmail(email);
+    }
+
+    @Override
+    public Mono<UserResponse> getUsersByDni(String dni) {
+        return userReadService.getUserByDni(dni);
+    }
+}
@@ -0,0 +1,50 @@
+package com.clinic.userservice.userservice.api.exceptions;
+
+import com.clinic.commonservice.models.ErrorsResponse;
+import com.clinic.userservice.userservice.persistence.entities.UserApp;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Global exception handler for DataIntegrityViolationException.
+ * Unique constraint violations on the users table are the last guard against duplicated
+ * emails and DNIs that got past the service checks, e.g. when two registrations race;
+ * they are returned as a structured error response with HTTP status 400.
+ *
+ * @author caito
+ *
+ */
+@Slf4j
+@RestControllerAdvice
+public class DataIntegrityViolationExceptionHandler {
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    protected ResponseEntity<ErrorsResponse> dataIntegrityHandler(DataIntegrityViolationException e,
+                                                                  HttpServletRequest request) {
+        String cause = String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT);
+        String message = cause.contains(UserApp.UK_EMAIL) ? "Email already exists."
+                : cause.contains(UserApp.UK_DNI) ? "DNI already exists."
+                : "Data integrity violation";
+        log.error("{} {}", message, e.getMostSpecificCause().getMessage());
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(
+                        ErrorsResponse.builder()
+                                .code(HttpStatus.BAD_REQUEST.value())
+                                .status(HttpStatus.BAD_REQUEST.getReasonPhrase())
+                                .timestamp(LocalDateTime.now())
+                                .messages(List.of(message))
+                                .method(request.getMethod())
+                                .path(request.getRequestURL().toString())
+                                .build()
+                );
+    }
+}
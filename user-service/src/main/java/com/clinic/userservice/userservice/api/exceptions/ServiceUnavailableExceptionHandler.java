@@ -0,0 +1,41 @@
+package com.clinic.userservice.userservice.api.exceptions;
+
+import com.clinic.commonservice.exceptions.ServiceUnavailableException;
+import com.clinic.commonservice.models.ErrorResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.time.LocalDateTime;
+
+/**
+ * Global exception handler for ServiceUnavailableException.
+ * This class captures ServiceUnavailableException thrown in the application
+ * and returns a structured error response with HTTP status 503 and a Retry-After header.
+ *
+ * @author caito
+ *
+ */
+@RestControllerAdvice
+public class ServiceUnavailableExceptionHandler {
+    @ExceptionHandler(ServiceUnavailableException.class)
+    protected ResponseEntity<ErrorResponse> serviceUnavailableHandler(ServiceUnavailableException e,
+                                                                      HttpServletRequest request) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(
+                        ErrorResponse.builder()
+                                .code(HttpStatus.SERVICE_UNAVAILABLE.value())
+                                .status(HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase())
+                                .timestamp(LocalDateTime.now())
+                                .message(e.getMessage())
+                                .method(request.getMethod())
+                                .path(request.getRequestURL().toString())
+                                .build()
+                );
+    }
+}
@@ -0,0 +1,24 @@
+package com.clinic.userservice.userservice.api.models.requests;
+
+import com.clinic.commonservice.enums.RoleName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * UserExportFilter represents the optional filters of a user directory export.
+ * Null fields do not filter.
+ *
+ * @author caito
+ *
+ */
+@NoArgsConstructor@AllArgsConstructor
+@Data@Builder
+public class UserExportFilter implements Serializable {
+    private RoleName role;
+    private String plan;
+    private String socialWork;
+}
@@ -0,0 +1,27 @@
+package com.clinic.userservice.userservice.api.models.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/*
+ * CursorPageResponse model representing a slice of results retrieved with keyset pagination.
+ * Contains the opaque cursor needed to request the next slice and, optionally,
+ * a cached approximate total instead of an exact count.
+ *
+ * @author caito
+ *
+ */
+@NoArgsConstructor@AllArgsConstructor
+@Data@Builder
+public class CursorPageResponse<T> implements Serializable {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+    private Long approximateTotal;
+}
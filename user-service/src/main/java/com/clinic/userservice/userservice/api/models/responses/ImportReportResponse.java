@@ -0,0 +1,29 @@
+package com.clinic.userservice.userservice.api.models.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * ImportReportResponse model representing the outcome of a bulk user import.
+ * Only rejected rows are listed, up to a configured maximum; errorsTruncated
+ * tells whether more rows failed than the ones reported.
+ *
+ * @author caito
+ *
+ */
+@NoArgsConstructor@AllArgsConstructor
+@Data@Builder
+public class ImportReportResponse implements Serializable {
+    private long total;
+    private long imported;
+    private long failed;
+    private boolean errorsTruncated;
+    @Builder.Default
+    private List<ImportRowError> errors = new ArrayList<>();
+}
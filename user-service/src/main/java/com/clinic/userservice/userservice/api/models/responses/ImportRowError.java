@@ -0,0 +1,24 @@
+package com.clinic.userservice.userservice.api.models.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/*
+ * ImportRowError model representing a row rejected by the bulk user import.
+ * Implements Serializable for object serialization.
+ *
+ * @author caito
+ *
+ */
+@NoArgsConstructor@AllArgsConstructor
+@Data@Builder
+public class ImportRowError implements Serializable {
+    private long row;
+    private String email;
+    private List<String> messages;
+}
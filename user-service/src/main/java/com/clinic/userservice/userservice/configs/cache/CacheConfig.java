@@ -0,0 +1,36 @@
+package com.clinic.userservice.userservice.configs.cache;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Locale;
+
+/**
+ * CacheConfig class enables Spring caching for the application.
+ * The caches are backed by Caffeine; size, TTL and stats recording are set
+ * through the spring.cache properties, and hit/miss/eviction metrics are
+ * published through actuator.
+ *
+ * @author caito
+ *
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String USERS_BY_EMAIL = "usersByEmail";
+    public static final String USERS_BY_DNI = "usersByDni";
+    // SpEL keys of the lookups, normalized the way MySQL compares emails and DNIs
+    public static final String EMAIL_KEY = "T(com.clinic.userservice.userservice.configs.cache.CacheConfig).key(#email)";
+    public static final String DNI_KEY = "T(com.clinic.userservice.userservice.configs.cache.CacheConfig).key(#dni)";
+
+    /**
+     * Returns the cache key of an email or a DNI. The database looks them up ignoring case,
+     * so every spelling of a value shares one entry and one eviction removes it.
+     *
+     * @param value the email or DNI
+     * @return the value in lower case
+     */
+    public static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,46 @@
+package com.clinic.userservice.userservice.configs.kafka;
+
+import com.clinic.commonservice.codecs.HighMsgSerializer;
+import com.clinic.commonservice.codecs.RegisterUserSerializer;
+import com.clinic.commonservice.models.HighMsg;
+import com.clinic.commonservice.models.RegisterUser;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * KafkaProducerConfig class sets the value serializer of the producer: each message type
+ * published by the outbox relay is written with its own binary codec.
+ *
+ * @author caito
+ *
+ */
+@Configuration
+public class KafkaProducerConfig {
+
+    /**
+     * Bean customizing the Spring Boot producer factory with a serializer chosen by message type.
+     *
+     * @return the customizer
+     */
+    @Bean
+    DefaultKafkaProducerFactoryCustomizer messageTypeSerializerCustomizer() {
+        return KafkaProducerConfig::useMessageTypeSerializer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> void useMessageTypeSerializer(DefaultKafkaProducerFactory<K, V> producerFactory) {
+        producerFactory.setValueSerializerSupplier(() -> {
+            Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+            serializers.put(RegisterUser.class, new RegisterUserSerializer());
+            serializers.put(HighMsg.class, new HighMsgSerializer());
+            return (Serializer<V>) new DelegatingByTypeSerializer(serializers);
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package com.clinic.userservice.userservice.configs.metrics;
+
+import com.clinic.commonservice.exceptions.BadRequestException;
+import com.clinic.commonservice.exceptions.NotFoundException;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserServiceMetricsAspect records every call to the UserService in the users.service timer, tagged
+ * with the method, its outcome and the exception it threw. Failures the API answers with a 4xx status
+ * are tagged client_error, the others server_error. For a method returning a CompletionStage the call
+ * ends when the stage completes.
+ * The timer also counts the calls, by outcome.
+ *
+ * @author caito
+ *
+ */
+@Aspect
+@Component
+public class UserServiceMetricsAspect {
+    public static final String TIMER = "users.service";
+    private final Meter.MeterProvider<Timer> timer;
+
+    public UserServiceMetricsAspect(MeterRegistry meterRegistry) {
+        this.timer = Timer.builder(TIMER)
+                .description("Time of the calls to the user service")
+                .withRegistry(meterRegistry);
+    }
+
+    @Around("execution(public * com.clinic.userservice.userservice.services.contracts.UserService.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            stop(method, start, e);
+            throw e;
+        }
+        if (result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((value, e) -> stop(method, start, e));
+        } else {
+            stop(method, start, null);
+        }
+        return result;
+    }
+
+    private void stop(String method, long start, Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+        timer.withTags(Tags.of("method", method, "outcome", outcome(cause),
+                        "exception", cause == null ? "none" : cause.getClass().getSimpleName()))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static String outcome(Throwable cause) {
+        if (cause == null) return "success";
+        if (cause instanceof BadRequestException || cause instanceof NotFoundException
+                || cause instanceof DataIntegrityViolationException) return "client_error";
+        return "server_error";
+    }
+}
@@ -0,0 +1,25 @@
+package com.clinic.userservice.userservice.configs.outbox;
+
+import com.clinic.commonservice.models.HighMsg;
+import com.clinic.commonservice.models.RegisterUser;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Map;
+
+/**
+ * OutboxConfig class enables the scheduled outbox relay and declares the payload types
+ * that may be stored in the outbox. The relay only deserializes these types, so a row
+ * cannot make it instantiate arbitrary classes.
+ *
+ * @author caito
+ *
+ */
+@Configuration
+@EnableScheduling
+public class OutboxConfig {
+    public static final Map<String, Class<?>> PAYLOAD_TYPES = Map.of(
+            RegisterUser.class.getSimpleName(), RegisterUser.class,
+            HighMsg.class.getSimpleName(), HighMsg.class
+    );
+}
@@ -0,0 +1,56 @@
+package com.clinic.userservice.userservice.configs.persistence;
+
+import com.clinic.userservice.userservice.persistence.entities.UserApp;
+import com.clinic.userservice.userservice.persistence.entities.ValidationToken;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * IdSequencesInitializer aligns the id sequences of users and validation tokens with the existing rows.
+ * Those entities moved from IDENTITY to pooled SEQUENCE ids so Hibernate can batch their inserts.
+ * On MySQL the sequences are emulated with tables that start at 1, so before the first insert
+ * they are moved past the highest id already stored. The sequences only ever move forward.
+ *
+ * @author caito
+ *
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class IdSequencesInitializer implements SmartInitializingSingleton {
+    // same allocationSize as the @SequenceGenerator of the entities
+    private static final int ALLOCATION_SIZE = 50;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        boolean nativeSequences = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport().supportsSequences();
+        if (nativeSequences) return;
+        align("users", UserApp.ID_SEQUENCE);
+        align("validation_tokens", ValidationToken.ID_SEQUENCE);
+    }
+
+    /**
+     * Moves a table backed sequence past the highest id of its table.
+     * The pooled optimizer hands out the block that ends at the value it reads,
+     * so the sequence must be at least a full block ahead of the highest id.
+     *
+     * @param table    the table whose ids come from the sequence
+     * @param sequence the table emulating the sequence
+     */
+    private void align(String table, String sequence) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        long next = maxId + ALLOCATION_SIZE + 1;
+        int updated = jdbcTemplate.update("UPDATE " + sequence + " SET next_val = ? WHERE next_val < ?", next, next);
+        if (updated > 0) {
+            log.info("--> Sequence {} moved to {}", sequence, next);
+        }
+    }
+}
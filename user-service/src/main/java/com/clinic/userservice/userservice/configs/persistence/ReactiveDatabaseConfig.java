@@ -0,0 +1,51 @@
+package com.clinic.userservice.userservice.configs.persistence;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * ReactiveDatabaseConfig class declares the DatabaseClient of the non-blocking read API, on a pool
+ * of reactive driver connections to the same database as JPA, set through the spring.r2dbc properties.
+ * The pool is not published as a ConnectionFactory bean: Spring Boot does not configure the JDBC
+ * DataSource when one exists, and JPA keeps the DataSource, the transactions and the repositories.
+ *
+ * @author caito
+ *
+ */
+@Configuration
+public class ReactiveDatabaseConfig implements DisposableBean {
+    private final ConnectionPool connectionPool;
+
+    public ReactiveDatabaseConfig(@Value("${spring.r2dbc.url}") String url,
+                                  @Value("${spring.r2dbc.username:}") String username,
+                                  @Value("${spring.r2dbc.password:}") String password,
+                                  @Value("${spring.r2dbc.pool.initial-size:5}") int initialSize,
+                                  @Value("${spring.r2dbc.pool.max-size:20}") int maxSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("users-read")
+                .initialSize(initialSize)
+                .maxSize(maxSize)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient() {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+}
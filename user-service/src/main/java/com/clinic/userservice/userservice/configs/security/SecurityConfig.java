@@ -1,6 +1,9 @@
 package com.clinic.userservice.userservice.configs.security;
 
+import com.clinic.userservice.userservice.utils.security.BCryptCalibrator;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -10,6 +13,8 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.time.Duration;
+
 /**
  * SecurityConfig class configures the security settings for the application.
  * It defines the security filter chain and specifies that all requests are permitted.
@@ -21,7 +26,16 @@ import org.springframework.security.web.SecurityFilterChain;
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
+@Slf4j
 public class SecurityConfig {
+    @Value("${application.security.bcrypt.strength:0}")
+    private int strength;
+    @Value("${application.security.bcrypt.target-hash-time:250ms}")
+    private Duration targetHashTime;
+    @Value("${application.security.bcrypt.min-strength:10}")
+    private int minStrength;
+    @Value("${application.security.bcrypt.max-strength:14}")
+    private int maxStrength;
 
     /**
      * Configures the security filter chain for the application.
@@ -42,11 +56,21 @@ public class SecurityConfig {
 
     /**
      * Bean for password encoding using BCrypt.
+     * The strength is taken from application.security.bcrypt.strength when it is set; otherwise it is
+     * calibrated at startup as the highest strength, between min-strength and max-strength, that hashes
+     * within target-hash-time on this hardware. Hashes created with other strengths still match.
      *
      * @return a PasswordEncoder instance
      */
     @Bean
     PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        if (strength > 0) {
+            log.info("--> BCrypt strength set to {}", strength);
+            return new BCryptPasswordEncoder(strength);
+        }
+        BCryptCalibrator.Calibration calibration = BCryptCalibrator.calibrate(targetHashTime, minStrength, maxStrength);
+        log.info("--> BCrypt strength calibrated to {} (about {} ms per hash, target {} ms)", calibration.strength(),
+                calibration.estimatedHashTime().toMillis(), targetHashTime.toMillis());
+        return new BCryptPasswordEncoder(calibration.strength());
     }
 }
@@ -0,0 +1,114 @@
+package com.clinic.userservice.userservice.configs.tracing;
+
+import com.clinic.commonservice.tracing.Correlation;
+import com.clinic.commonservice.tracing.StageTracer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * CorrelationIdFilter gives every request a correlation id, the one of the X-Correlation-Id header
+ * when the caller sends an acceptable one, and returns it in the same response header.
+ * The id stays in the MDC while the request is handled, so the outbox stores it with the messages of
+ * the request, and the whole request is recorded as the http stage.
+ * Requests that go asynchronous, such as the streamed listings and the export, are recorded when the
+ * response completes, and the id is put back in the MDC for the async dispatch that writes the result.
+ * Work handed to the task executor gets the id through the decorator of TracingConfig.
+ *
+ * @author caito
+ *
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class CorrelationIdFilter extends OncePerRequestFilter {
+    private static final String ID_ATTRIBUTE = CorrelationIdFilter.class.getName() + ".id";
+    private final StageTracer stageTracer;
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            try (MDC.MDCCloseable ignored = Correlation.open((String) request.getAttribute(ID_ATTRIBUTE))) {
+                chain.doFilter(request, response);
+            }
+            return;
+        }
+        String id = Correlation.sanitize(request.getHeader(Correlation.HTTP_HEADER));
+        if (id == null) id = Correlation.newId();
+        request.setAttribute(ID_ATTRIBUTE, id);
+        response.setHeader(Correlation.HTTP_HEADER, id);
+        Instant start = Instant.now();
+        long startNanos = System.nanoTime();
+        boolean failed = true;
+        boolean async = false;
+        try (MDC.MDCCloseable ignored = Correlation.open(id)) {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new SpanListener(id, start, startNanos));
+                async = true;
+            }
+            failed = response.getStatus() >= 500;
+        } finally {
+            if (!async) stageTracer.record("http", id, start, Duration.ofNanos(System.nanoTime() - startNanos), failed);
+        }
+    }
+
+    /*
+     * Records the http stage of an asynchronous request once its response is complete.
+     */
+    private final class SpanListener implements AsyncListener {
+        private final String id;
+        private final Instant start;
+        private final long startNanos;
+        private volatile boolean failed;
+
+        private SpanListener(String id, Instant start, long startNanos) {
+            this.id = id;
+            this.start = start;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            boolean serverError = event.getSuppliedResponse() instanceof HttpServletResponse response
+                    && response.getStatus() >= 500;
+            stageTracer.record("http", id, start, Duration.ofNanos(System.nanoTime() - startNanos),
+                    failed || serverError);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // starting async again during the async dispatch drops the listeners of the previous cycle
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.clinic.userservice.userservice.configs.tracing;
+
+import com.clinic.commonservice.tracing.Correlation;
+import com.clinic.commonservice.tracing.LogSpanExporter;
+import com.clinic.commonservice.tracing.MeterSpanExporter;
+import com.clinic.commonservice.tracing.SpanExporter;
+import com.clinic.commonservice.tracing.StageTracer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TracingConfig class defines the StageTracer of the user-service stages: http, user.validation,
+ * user.transaction and outbox.publish. Spans go to the clinic.stage timer and, unless
+ * application.tracing.log-spans is false, to the JSON log file.
+ * It also defines the decorator Spring Boot applies to its task executor, so the tasks of asynchronous
+ * requests and the account activation run with the correlation id of the request that submitted them.
+ *
+ * @author caito
+ *
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    StageTracer stageTracer(@Value("${spring.application.name}") String service,
+                            @Value("${application.tracing.log-spans:true}") boolean logSpans,
+                            MeterRegistry meterRegistry) {
+        List<SpanExporter> exporters = new ArrayList<>();
+        exporters.add(new MeterSpanExporter(meterRegistry));
+        if (logSpans) exporters.add(new LogSpanExporter());
+        return new StageTracer(service, exporters);
+    }
+
+    @Bean
+    TaskDecorator correlationTaskDecorator() {
+        return Correlation::propagate;
+    }
+}
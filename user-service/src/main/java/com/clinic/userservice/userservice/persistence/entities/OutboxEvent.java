@@ -0,0 +1,45 @@
+package com.clinic.userservice.userservice.persistence.entities;
+
+import com.clinic.userservice.userservice.persistence.enums.OutboxStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/*
+ * OutboxEvent entity representing a message waiting to be published to the broker.
+ * Rows are written in the same transaction as the change they announce and published
+ * afterwards by the outbox relay, so a message is sent if and only if its transaction commits.
+ * The correlation id of the request that wrote the row is published as a record header.
+ * claimedAt marks a row a relay is publishing, and nextAttemptAt delays the retry of a failed one.
+ * Uses Lombok annotations for boilerplate code reduction.
+ *
+ * @author caito
+ *
+ */
+@Entity
+@Table(name = "outbox_events", indexes = @Index(name = "ix_outbox_events_status_id", columnList = "status, id"))
+@NoArgsConstructor@AllArgsConstructor
+@Getter@Setter@Builder
+public class OutboxEvent {
+    public static final String ID_SEQUENCE = "outbox_events_seq";
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = 50)
+    private Long id;
+    private String topic;
+    private String messageKey;
+    private String payloadType;
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+    @Enumerated(EnumType.STRING)
+    private OutboxStatus status;
+    private int attempts;
+    private Instant nextAttemptAt;
+    private Instant claimedAt;
+    private String lastError;
+    @Column(length = 64)
+    private String correlationId;
+    private Instant createdAt;
+    private Instant sentAt;
+}
@@ -15,17 +15,26 @@ import java.util.stream.Collectors;
  * Implements UserDetails for Spring Security integration.
  * Includes fields for user information and account status.
  * Uses Lombok annotations for boilerplate code reduction.
+ * Roles are loaded lazily; queries that need them fetch them explicitly
+ * (see UserRepository) so listings do not issue one query per user.
  *
  * @author caito
  *
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = UserApp.UK_EMAIL, columnNames = "email"),
+        @UniqueConstraint(name = UserApp.UK_DNI, columnNames = "dni")
+})
 @NoArgsConstructor@AllArgsConstructor
 @Getter@Setter@Builder
 public class UserApp implements UserDetails {
+    public static final String ID_SEQUENCE = "users_seq";
+    public static final String UK_EMAIL = "uk_users_email";
+    public static final String UK_DNI = "uk_users_dni";
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = 50)
     private Long id;
     private String fullName;
     private String email;
@@ -43,7 +52,7 @@ public class UserApp implements UserDetails {
     private boolean accountNonLocked;
     private boolean credentialsNonExpired;
     private boolean enabled;
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "users_roles",
             joinColumns = @JoinColumn(name = "user_id"),
             inverseJoinColumns = @JoinColumn(name = "role_id"))
@@ -18,8 +18,10 @@ import java.time.LocalDateTime;
 @NoArgsConstructor@AllArgsConstructor
 @Getter@Setter@Builder
 public class ValidationToken {
+    public static final String ID_SEQUENCE = "validation_tokens_seq";
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = 50)
     private Long id;
     private String token;
     private String email;
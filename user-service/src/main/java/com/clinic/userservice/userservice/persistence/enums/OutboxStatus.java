@@ -0,0 +1,13 @@
+package com.clinic.userservice.userservice.persistence.enums;
+
+/*
+ * Publication status of an outbox event.
+ *
+ * @author caito
+ *
+ */
+public enum OutboxStatus {
+    PENDING,
+    SENT,
+    FAILED
+}
@@ -0,0 +1,21 @@
+package com.clinic.userservice.userservice.persistence.projections;
+
+import com.clinic.commonservice.enums.RoleName;
+
+/*
+ * Read-only projection of one user and one of its roles, as streamed by the user directory export.
+ * A user with several roles yields one row per role, consecutive because rows are ordered by user id;
+ * a user without roles yields one row with null role columns.
+ *
+ * @author caito
+ *
+ */
+public record UserExportRow(Long id, String fullName, String email, String address, String phone, String gender,
+                            String dni, String tuition, String socialWork, String membershipNumber, String plan,
+                            Long roleId, RoleName role) {
+
+    public UserView view() {
+        return new UserView(id, fullName, email, address, phone, gender, dni, tuition, socialWork,
+                membershipNumber, plan);
+    }
+}
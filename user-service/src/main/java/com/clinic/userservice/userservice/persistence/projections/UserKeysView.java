@@ -0,0 +1,14 @@
+package com.clinic.userservice.userservice.persistence.projections;
+
+/*
+ * Projection of the UserApp entity with only the unique columns, used to warm the
+ * email and DNI membership index.
+ *
+ * @author caito
+ *
+ */
+public interface UserKeysView {
+    Long getId();
+    String getEmail();
+    String getDni();
+}
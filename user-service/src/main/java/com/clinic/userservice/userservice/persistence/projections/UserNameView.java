@@ -0,0 +1,12 @@
+package com.clinic.userservice.userservice.persistence.projections;
+
+/*
+ * Projection of the UserApp entity with only the columns needed by the name search index.
+ *
+ * @author caito
+ *
+ */
+public interface UserNameView {
+    Long getId();
+    String getFullName();
+}
@@ -0,0 +1,12 @@
+package com.clinic.userservice.userservice.persistence.projections;
+
+import com.clinic.commonservice.enums.RoleName;
+
+/*
+ * Read-only projection of one role assigned to a user.
+ *
+ * @author caito
+ *
+ */
+public record UserRoleView(Long userId, Long roleId, RoleName role) {
+}
@@ -0,0 +1,12 @@
+package com.clinic.userservice.userservice.persistence.projections;
+
+/*
+ * Read-only projection of the UserApp entity with the columns exposed by UserResponse.
+ * Built by JPQL constructor expressions, so it is never managed by the persistence context.
+ *
+ * @author caito
+ *
+ */
+public record UserView(Long id, String fullName, String email, String address, String phone, String gender,
+                       String dni, String tuition, String socialWork, String membershipNumber, String plan) {
+}
@@ -0,0 +1,45 @@
+package com.clinic.userservice.userservice.persistence.repository;
+
+import com.clinic.userservice.userservice.persistence.entities.OutboxEvent;
+import com.clinic.userservice.userservice.persistence.enums.OutboxStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+/*
+ * Repository interface for OutboxEvent entity.
+ * Extends JpaRepository to provide CRUD operations.
+ *
+ * @author caito
+ *
+ */
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    /*
+     * Rows that are due and not claimed, or whose claim expired. Lock timeout -2 is Hibernate's
+     * SKIP LOCKED: concurrent relays take disjoint batches.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.status = :status"
+            + " AND (e.nextAttemptAt IS NULL OR e.nextAttemptAt <= :now)"
+            + " AND (e.claimedAt IS NULL OR e.claimedAt < :claimExpiredBefore) ORDER BY e.id")
+    List<OutboxEvent> lockBatch(@Param("status") OutboxStatus status, @Param("now") Instant now,
+                                @Param("claimExpiredBefore") Instant claimExpiredBefore, Pageable pageable);
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = :status, e.sentAt = :sentAt, e.claimedAt = null WHERE e.id IN :ids")
+    int markSent(@Param("ids") List<Long> ids, @Param("status") OutboxStatus status, @Param("sentAt") Instant sentAt);
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.claimedAt = null WHERE e.id IN :ids")
+    int release(@Param("ids") List<Long> ids);
+    @Query("SELECT min(e.createdAt) FROM OutboxEvent e WHERE e.status = :status")
+    Instant findOldestCreatedAt(@Param("status") OutboxStatus status);
+    long countByStatus(OutboxStatus status);
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = :status AND e.sentAt < :before")
+    int deleteSentBefore(@Param("status") OutboxStatus status, @Param("before") Instant before);
+}
@@ -0,0 +1,18 @@
+package com.clinic.userservice.userservice.persistence.repository;
+
+import com.clinic.commonservice.enums.RoleName;
+import com.clinic.userservice.userservice.persistence.projections.UserExportRow;
+
+import java.util.stream.Stream;
+
+/*
+ * Repository fragment for the user export.
+ * The export query needs a fetch size read from the configuration, which a @QueryHints
+ * annotation cannot take, so it is built by UserExportRepositoryImpl.
+ *
+ * @author caito
+ *
+ */
+public interface UserExportRepository {
+    Stream<UserExportRow> streamExportRows(RoleName role, String plan, String socialWork);
+}
@@ -0,0 +1,45 @@
+package com.clinic.userservice.userservice.persistence.repository;
+
+import com.clinic.commonservice.enums.RoleName;
+import com.clinic.userservice.userservice.persistence.projections.UserExportRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.stream.Stream;
+
+/*
+ * Implementation of the UserExportRepository fragment.
+ * On MySQL the fetch size is Integer.MIN_VALUE, which makes Connector/J stream the result set
+ * row by row on this statement only, without useCursorFetch on the shared datasource URL.
+ * Databases that reject a negative fetch size configure a positive one.
+ *
+ * @author caito
+ *
+ */
+public class UserExportRepositoryImpl implements UserExportRepository {
+    private static final String EXPORT_ROWS =
+            "SELECT new com.clinic.userservice.userservice.persistence.projections.UserExportRow(" +
+            "u.id, u.fullName, u.email, u.address, u.phone, u.gender, u.dni, u.tuition, u.socialWork, " +
+            "u.membershipNumber, u.plan, r.id, r.role) FROM UserApp u LEFT JOIN u.roles r " +
+            "WHERE (:plan IS NULL OR u.plan = :plan) AND (:socialWork IS NULL OR u.socialWork = :socialWork) " +
+            "AND (:role IS NULL OR EXISTS (SELECT 1 FROM UserApp f JOIN f.roles fr WHERE f.id = u.id AND fr.role = :role)) " +
+            "ORDER BY u.id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Value("${application.users.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Override
+    public Stream<UserExportRow> streamExportRows(RoleName role, String plan, String socialWork) {
+        return entityManager.createQuery(EXPORT_ROWS, UserExportRow.class)
+                .setParameter("role", role)
+                .setParameter("plan", plan)
+                .setParameter("socialWork", socialWork)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+}
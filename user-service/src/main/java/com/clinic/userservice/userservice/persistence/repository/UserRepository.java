@@ -1,27 +1,68 @@
 package com.clinic.userservice.userservice.persistence.repository;
 
 import com.clinic.userservice.userservice.persistence.entities.UserApp;
+import com.clinic.userservice.userservice.persistence.projections.UserKeysView;
+import com.clinic.userservice.userservice.persistence.projections.UserNameView;
+import com.clinic.userservice.userservice.persistence.projections.UserRoleView;
+import com.clinic.userservice.userservice.persistence.projections.UserView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /*
  * Repository interface for UserApp entity.
- * Extends JpaRepository to provide CRUD operations.
+ * Extends JpaRepository to provide CRUD operations, and UserExportRepository for the export.
  *
  * @author caito
  *
  */
-public interface UserRepository extends JpaRepository<UserApp, Long> {
+public interface UserRepository extends JpaRepository<UserApp, Long>, UserExportRepository {
+    String VIEW = "SELECT new com.clinic.userservice.userservice.persistence.projections.UserView(" +
+            "u.id, u.fullName, u.email, u.address, u.phone, u.gender, u.dni, u.tuition, u.socialWork, " +
+            "u.membershipNumber, u.plan) FROM UserApp u ";
+
     Optional<UserApp> findByEmail(String email);
     boolean existsByEmail(String email);
-    List<UserApp> findByFullNameContainingIgnoreCase(String name);
     boolean existsByDni(String dni);
-    Optional<UserApp> findByDni(String dni);
-    @Query("SELECT u FROM UserApp u WHERE u.email = :email AND u.id <> :id")
-    boolean getByEmailAndIdNoEqual(@Param("email") String email, @Param("id") Long id);
+    @Query(value = VIEW + "ORDER BY u.id", countQuery = "SELECT count(u) FROM UserApp u")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    Page<UserView> findViews(Pageable pageable);
+    @Query(VIEW + "WHERE u.id > :lastId ORDER BY u.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    Slice<UserView> findViewsAfter(@Param("lastId") Long lastId, Pageable pageable);
+    @Query(VIEW + "WHERE u.id IN :ids")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<UserView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+    @Query(VIEW + "WHERE u.email = :email")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    Optional<UserView> findViewByEmail(@Param("email") String email);
+    @Query(VIEW + "WHERE u.dni = :dni")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    Optional<UserView> findViewByDni(@Param("dni") String dni);
+    @Query("SELECT new com.clinic.userservice.userservice.persistence.projections.UserRoleView(u.id, r.id, r.role) " +
+            "FROM UserApp u JOIN u.roles r WHERE u.id IN :ids")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<UserRoleView> findRolesByUserIdIn(@Param("ids") Collection<Long> ids);
+    @Query("SELECT u.id AS id, u.fullName AS fullName FROM UserApp u WHERE u.id > :lastId ORDER BY u.id")
+    Slice<UserNameView> findNamesAfter(@Param("lastId") Long lastId, Pageable pageable);
+    @Query("SELECT u.email FROM UserApp u WHERE u.email IN :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+    @Query("SELECT u.dni FROM UserApp u WHERE u.dni IN :dnis")
+    Set<String> findExistingDnis(@Param("dnis") Collection<String> dnis);
+    boolean existsByEmailAndIdNot(String email, Long id);
+    boolean existsByDniAndIdNot(String dni, Long id);
+    @Query("SELECT u.id AS id, u.email AS email, u.dni AS dni FROM UserApp u WHERE u.id > :lastId ORDER BY u.id")
+    Slice<UserKeysView> findKeysAfter(@Param("lastId") Long lastId, Pageable pageable);
 
 }
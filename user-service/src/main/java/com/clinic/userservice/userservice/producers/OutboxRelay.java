@@ -0,0 +1,287 @@
+package com.clinic.userservice.userservice.producers;
+
+import com.clinic.commonservice.tracing.Correlation;
+import com.clinic.commonservice.tracing.StageTracer;
+import com.clinic.userservice.userservice.configs.outbox.OutboxConfig;
+import com.clinic.userservice.userservice.persistence.entities.OutboxEvent;
+import com.clinic.userservice.userservice.persistence.enums.OutboxStatus;
+import com.clinic.userservice.userservice.persistence.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OutboxRelay publishes the pending outbox events to the broker.
+ * Each run claims a batch of due rows with SKIP LOCKED, stamps them with claimedAt and commits, so
+ * no row lock or database connection is held while talking to the broker. It then sends the batch,
+ * flushes the producer once and waits for the acknowledgements up to the send timeout, and finally
+ * marks the acknowledged rows SENT in a second short transaction. A failed row stays PENDING with
+ * its attempt counted and is retried after an exponential backoff, until it reaches the maximum
+ * number of attempts; rows that could not be handed to the producer are released without counting
+ * an attempt. A claim older than the claim timeout is taken over by the next run, so the rows of a
+ * relay that died while sending are published again. The producer is idempotent, so a retry after a
+ * lost acknowledgement does not duplicate the record within a partition.
+ * <p>
+ * Metrics: outbox.publish.delay (time from enqueue to acknowledgement), outbox.send (time from
+ * handing a record to the producer to its acknowledgement, by topic and outcome),
+ * outbox.send.failures (by topic and whether the event will be retried), outbox.pending
+ * and outbox.lag (age of the oldest pending event, in seconds, refreshed at most once per
+ * lag refresh interval).
+ * Each record carries the correlation id of its event as a header, and each acknowledged event is
+ * recorded as an outbox.publish stage of its registration.
+ * The relay can be switched off with application.outbox.relay-enabled, e.g. on instances
+ * that should only write to the outbox.
+ *
+ * @author caito
+ *
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "application.outbox.relay-enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+    // the length of the last_error column
+    private static final int MAX_ERROR_LENGTH = 255;
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final StageTracer stageTracer;
+    private final Timer publishDelay;
+    private final Meter.MeterProvider<Timer> sendTimer;
+    private final Meter.MeterProvider<Counter> sendFailures;
+    private volatile long pending;
+    private volatile double lagSeconds;
+    private Instant nextLagRefresh = Instant.MIN;
+    @Value("${application.outbox.batch-size:500}")
+    private int batchSize;
+    @Value("${application.outbox.send-timeout:10s}")
+    private Duration sendTimeout;
+    @Value("${application.outbox.claim-timeout:2m}")
+    private Duration claimTimeout;
+    @Value("${application.outbox.max-attempts:10}")
+    private int maxAttempts;
+    @Value("${application.outbox.retry-backoff:1s}")
+    private Duration retryBackoff;
+    @Value("${application.outbox.max-retry-backoff:5m}")
+    private Duration maxRetryBackoff;
+    @Value("${application.outbox.lag-refresh-interval:5s}")
+    private Duration lagRefreshInterval;
+    @Value("${application.outbox.retention:7d}")
+    private Duration retention;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, KafkaTemplate<String, Object> kafkaTemplate,
+                       TransactionTemplate transactionTemplate, ObjectMapper objectMapper, StageTracer stageTracer,
+                       MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.stageTracer = stageTracer;
+        this.publishDelay = Timer.builder("outbox.publish.delay")
+                .description("Time from enqueueing an outbox event to its acknowledgement by the broker")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.sendTimer = Timer.builder("outbox.send")
+                .description("Time from handing a record to the producer to its acknowledgement by the broker")
+                .withRegistry(meterRegistry);
+        this.sendFailures = Counter.builder("outbox.send.failures")
+                .description("Outbox events the broker did not acknowledge")
+                .withRegistry(meterRegistry);
+        Gauge.builder("outbox.pending", this, relay -> relay.pending)
+                .description("Outbox events waiting to be published")
+                .register(meterRegistry);
+        Gauge.builder("outbox.lag", this, relay -> relay.lagSeconds)
+                .description("Age of the oldest pending outbox event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publishes batches of due events until none is left or a batch has failures.
+     */
+    @Scheduled(fixedDelayString = "${application.outbox.poll-interval:200ms}")
+    public void relay() {
+        int published;
+        do {
+            published = publishBatch();
+        } while (published == batchSize);
+        if (!Instant.now().isBefore(nextLagRefresh)) {
+            refreshLag();
+            nextLagRefresh = Instant.now().plus(lagRefreshInterval);
+        }
+    }
+
+    /**
+     * Removes the events sent before the retention period.
+     */
+    @Scheduled(fixedDelayString = "${application.outbox.cleanup-interval:1h}")
+    public void cleanup() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteSentBefore(OutboxStatus.SENT, Instant.now().minus(retention)));
+        if (deleted != null && deleted > 0) {
+            log.info("--> Deleted {} sent outbox events", deleted);
+        }
+    }
+
+    /**
+     * Publishes one batch of due events.
+     *
+     * @return the number of events acknowledged by the broker
+     */
+    private int publishBatch() {
+        List<OutboxEvent> batch = claimBatch();
+        if (batch.isEmpty()) return 0;
+        List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>(batch.size());
+        boolean brokerDown = false;
+        for (OutboxEvent event : batch) {
+            // once the producer fails synchronously the broker is unreachable: release the rest
+            CompletableFuture<SendResult<String, Object>> send = brokerDown ? null : send(event);
+            brokerDown = brokerDown || (send != null && send.isCompletedExceptionally() && !isPoison(send));
+            sends.add(send);
+        }
+        kafkaTemplate.flush();
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        List<OutboxEvent> acknowledged = new ArrayList<>(batch.size());
+        Map<Long, Exception> failed = new LinkedHashMap<>();
+        List<Long> released = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            if (sends.get(i) == null) {
+                released.add(event.getId());
+                continue;
+            }
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                Duration delay = Duration.between(event.getCreatedAt(), Instant.now());
+                publishDelay.record(delay);
+                stageTracer.record("outbox.publish", event.getCorrelationId(), event.getCreatedAt(), delay, false);
+                acknowledged.add(event);
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+                failed.put(event.getId(), e);
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!acknowledged.isEmpty()) {
+                outboxEventRepository.markSent(acknowledged.stream().map(OutboxEvent::getId).toList(),
+                        OutboxStatus.SENT, Instant.now());
+            }
+            if (!released.isEmpty()) outboxEventRepository.release(released);
+            if (!failed.isEmpty()) {
+                outboxEventRepository.findAllById(failed.keySet())
+                        .forEach(event -> fail(event, failed.get(event.getId())));
+            }
+        });
+        return acknowledged.size();
+    }
+
+    /*
+     * Claims the next due rows in a transaction of its own and returns them detached.
+     */
+    private List<OutboxEvent> claimBatch() {
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<OutboxEvent> claimed = outboxEventRepository.lockBatch(OutboxStatus.PENDING, now,
+                    now.minus(claimTimeout), PageRequest.of(0, batchSize));
+            claimed.forEach(event -> event.setClaimedAt(now));
+            return claimed;
+        });
+        return batch == null ? List.of() : batch;
+    }
+
+    private CompletableFuture<SendResult<String, Object>> send(OutboxEvent event) {
+        Object payload;
+        try {
+            Class<?> type = OutboxConfig.PAYLOAD_TYPES.get(event.getPayloadType());
+            if (type == null) {
+                throw new IllegalArgumentException("Payload type not allowed: " + event.getPayloadType());
+            }
+            payload = objectMapper.readValue(event.getPayload(), type);
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new PoisonEventException(e));
+        }
+        try {
+            ProducerRecord<String, Object> record =
+                    new ProducerRecord<>(event.getTopic(), event.getMessageKey(), payload);
+            Correlation.write(record.headers(), event.getCorrelationId());
+            long start = System.nanoTime();
+            return kafkaTemplate.send(record).whenComplete((result, ex) ->
+                    sendTimer.withTags(Tags.of("topic", event.getTopic(), "outcome", ex == null ? "ok" : "failed"))
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void fail(OutboxEvent event, Exception e) {
+        Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+        event.setAttempts(event.getAttempts() + 1);
+        String error = String.valueOf(NestedExceptionUtils.getMostSpecificCause(cause).getMessage());
+        event.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        event.setClaimedAt(null);
+        boolean permanent = event.getAttempts() >= maxAttempts || cause instanceof PoisonEventException;
+        sendFailures.withTags(Tags.of("topic", event.getTopic(), "outcome", permanent ? "failed" : "retry",
+                "exception", cause.getClass().getSimpleName())).increment();
+        if (permanent) {
+            event.setStatus(OutboxStatus.FAILED);
+            log.error("Outbox event {} failed permanently: {}", event.getId(), cause.getMessage());
+        } else {
+            event.setNextAttemptAt(Instant.now().plus(backoff(event.getAttempts())));
+            log.error("Error publishing outbox event {}, attempt {}: {}", event.getId(), event.getAttempts(),
+                    cause.getMessage());
+        }
+    }
+
+    /*
+     * The retry backoff doubles with every attempt, up to the maximum.
+     */
+    private Duration backoff(int attempts) {
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 30));
+        return delay.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : delay;
+    }
+
+    private static boolean isPoison(CompletableFuture<?> send) {
+        return send.exceptionNow() instanceof PoisonEventException;
+    }
+
+    private void refreshLag() {
+        pending = outboxEventRepository.countByStatus(OutboxStatus.PENDING);
+        Instant oldest = pending == 0 ? null : outboxEventRepository.findOldestCreatedAt(OutboxStatus.PENDING);
+        lagSeconds = oldest == null ? 0 : Duration.between(oldest, Instant.now()).toMillis() / 1000.0;
+    }
+
+    /*
+     * An event whose payload can never be published: unknown type or invalid JSON.
+     */
+    private static final class PoisonEventException extends RuntimeException {
+        private PoisonEventException(Exception cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+}
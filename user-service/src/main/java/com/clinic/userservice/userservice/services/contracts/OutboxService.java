@@ -0,0 +1,13 @@
+package com.clinic.userservice.userservice.services.contracts;
+
+/**
+ * OutboxService interface defines the contract for queueing messages to the broker
+ * as part of the current transaction.
+ *
+ * @author caito
+ *
+ */
+public interface OutboxService {
+
+    void enqueue(String topic, String key, Object payload);
+}
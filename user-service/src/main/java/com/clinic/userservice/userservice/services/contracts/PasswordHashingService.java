@@ -0,0 +1,15 @@
+package com.clinic.userservice.userservice.services.contracts;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * PasswordHashingService interface defines the contract for hashing passwords
+ * off the request threads.
+ *
+ * @author caito
+ *
+ */
+public interface PasswordHashingService {
+
+    CompletableFuture<String> encode(String rawPassword);
+}
@@ -0,0 +1,16 @@
+package com.clinic.userservice.userservice.services.contracts;
+
+import com.clinic.commonservice.enums.RoleName;
+import com.clinic.userservice.userservice.persistence.entities.Role;
+
+/**
+ * RoleCatalogService interface defines the contract for looking up the roles
+ * that can be assigned to users.
+ *
+ * @author caito
+ *
+ */
+public interface RoleCatalogService {
+
+    Role getRole(RoleName name);
+}
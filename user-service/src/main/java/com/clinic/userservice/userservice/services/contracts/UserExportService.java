@@ -0,0 +1,18 @@
+package com.clinic.userservice.userservice.services.contracts;
+
+import com.clinic.userservice.userservice.api.models.requests.UserExportFilter;
+import com.clinic.userservice.userservice.utils.exports.ExportFormat;
+
+import java.io.OutputStream;
+
+/**
+ * UserExportService interface defines the contract for exporting the user directory,
+ * for audits and for the BI team.
+ *
+ * @author caito
+ *
+ */
+public interface UserExportService {
+
+    long exportUsers(UserExportFilter filter, ExportFormat format, OutputStream output);
+}
@@ -0,0 +1,18 @@
+package com.clinic.userservice.userservice.services.contracts;
+
+import com.clinic.userservice.userservice.api.models.responses.ImportReportResponse;
+import com.clinic.userservice.userservice.utils.imports.ImportFormat;
+
+import java.io.InputStream;
+
+/**
+ * UserImportService interface defines the contract for importing users in bulk,
+ * such as the patients of a new health-insurance partner.
+ *
+ * @author caito
+ *
+ */
+public interface UserImportService {
+
+    ImportReportResponse importUsers(InputStream input, ImportFormat format);
+}
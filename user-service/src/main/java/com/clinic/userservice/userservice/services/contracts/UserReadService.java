@@ -0,0 +1,19 @@
+package com.clinic.userservice.userservice.services.contracts;
+
+import com.clinic.userservice.userservice.api.models.responses.UserResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * UserReadService interface defines the contract for the non-blocking user lookups,
+ * answered over the reactive database driver.
+ *
+ * @author caito
+ *
+ */
+public interface UserReadService {
+
+    Mono<UserResponse> getUserByEmail(String email);
+    Mono<UserResponse> getUserByDni(String dni);
+    Flux<UserResponse> streamUsers(long afterId, int limit);
+}
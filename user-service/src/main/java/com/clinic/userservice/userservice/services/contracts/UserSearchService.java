@@ -0,0 +1,19 @@
+package com.clinic.userservice.userservice.services.contracts;
+
+import org.springframework.data.domain.Page;
+
+/**
+ * UserSearchService interface defines the contract for the in-memory user name index
+ * used to search users by name. The total of a search is capped: queries matching many users
+ * report a lower bound instead of scanning every match.
+ *
+ * @author caito
+ *
+ */
+public interface UserSearchService {
+
+    void index(Long id, String fullName);
+    void remove(Long id);
+    Page<Long> search(String name, int page, int size);
+    void rebuild();
+}
@@ -2,10 +2,11 @@ package com.clinic.userservice.userservice.services.contracts;
 
 import com.clinic.userservice.userservice.api.models.requests.UserEnabledRequest;
 import com.clinic.userservice.userservice.api.models.requests.UserRequest;
+import com.clinic.userservice.userservice.api.models.responses.CursorPageResponse;
 import com.clinic.userservice.userservice.api.models.responses.UserResponse;
 import org.springframework.data.domain.Page;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * UserService interface defines the contract for user-related operations
@@ -18,10 +19,11 @@ public interface UserService {
 
     void createUser(UserRequest request);
     Page<UserResponse> getUsers(int page, int size);
-    List<UserResponse> getUsers(String name);
+    CursorPageResponse<UserResponse> getUsers(String cursor, int size, boolean withTotal);
+    Page<UserResponse> getUsers(String name, int page, int size);
     UserResponse getUserByEmail(String email);
     UserResponse getUserByDni(String dni);
     UserResponse updateUser(Long id, UserRequest request);
     void deleteUser(Long id);
-    void enabledUser(UserEnabledRequest request);
+    CompletableFuture<Void> enabledUser(UserEnabledRequest request);
 }
@@ -0,0 +1,20 @@
+package com.clinic.userservice.userservice.services.contracts;
+
+/**
+ * UserUniquenessService interface defines the contract for checking whether an email
+ * or a DNI is already registered.
+ *
+ * @author caito
+ *
+ */
+public interface UserUniquenessService {
+
+    boolean mightContainEmail(String email);
+    boolean mightContainDni(String dni);
+    boolean emailExists(String email);
+    boolean dniExists(String dni);
+    boolean emailExistsForOtherUser(String email, Long id);
+    boolean dniExistsForOtherUser(String dni, Long id);
+    void register(String email, String dni);
+    void rebuild();
+}
@@ -0,0 +1,67 @@
+package com.clinic.userservice.userservice.services.impl;
+
+import com.clinic.commonservice.exceptions.BrokerMsgException;
+import com.clinic.commonservice.tracing.Correlation;
+import com.clinic.userservice.userservice.configs.outbox.OutboxConfig;
+import com.clinic.userservice.userservice.persistence.entities.OutboxEvent;
+import com.clinic.userservice.userservice.persistence.enums.OutboxStatus;
+import com.clinic.userservice.userservice.services.contracts.OutboxService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Implementation of the OutboxService interface.
+ * Messages are stored as JSON in the outbox_events table within the caller's transaction;
+ * the OutboxRelay publishes them once that transaction has committed, with the correlation id of
+ * the current request.
+ *
+ * @author caito
+ *
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class OutboxServiceImpl implements OutboxService {
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Queues a message for the broker as part of the current transaction.
+     *
+     * @param topic   the topic to publish to
+     * @param key     the record key, messages with the same key keep their order
+     * @param payload the message, its class must be one of OutboxConfig.PAYLOAD_TYPES
+     * @throws BrokerMsgException if the payload type is not allowed or cannot be serialized
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String topic, String key, Object payload) {
+        String type = payload.getClass().getSimpleName();
+        if (OutboxConfig.PAYLOAD_TYPES.get(type) != payload.getClass()) {
+            log.error("Payload type not allowed in the outbox: {}", payload.getClass().getName());
+            throw new BrokerMsgException("Payload type not allowed in the outbox: " + payload.getClass().getName());
+        }
+        try {
+            entityManager.persist(OutboxEvent.builder()
+                    .topic(topic)
+                    .messageKey(key)
+                    .payloadType(type)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .status(OutboxStatus.PENDING)
+                    .createdAt(Instant.now())
+                    .correlationId(Correlation.current())
+                    .build());
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing outbox message: {}", e.getMessage());
+            throw new BrokerMsgException("Error serializing outbox message: " + e.getMessage());
+        }
+    }
+}
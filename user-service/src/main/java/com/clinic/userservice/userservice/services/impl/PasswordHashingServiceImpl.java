@@ -0,0 +1,96 @@
+package com.clinic.userservice.userservice.services.impl;
+
+import com.clinic.commonservice.exceptions.ServiceUnavailableException;
+import com.clinic.commonservice.tracing.Correlation;
+import com.clinic.userservice.userservice.services.contracts.PasswordHashingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of the PasswordHashingService interface.
+ * Hashes are computed on a bounded pool owned by this service. BCrypt is CPU bound, so the pool has
+ * one thread per core by default and a short bounded queue; when both are full the request fails at
+ * once with ServiceUnavailableException (503) instead of waiting. The pool keeps platform threads
+ * when request threads are virtual, so the number of hashes running at once stays bounded by the cores.
+ * The pool is not a bean: an executor in the context would make Spring Boot skip its own task
+ * executor, which serves asynchronous requests and the work that follows a hash.
+ * The time of each hash is recorded in the users.password.hash timer, rejections in the
+ * users.password.hash.rejected counter, and queue depth and active threads are published as
+ * executor metrics with the name passwordHashing.
+ *
+ * @author caito
+ *
+ */
+@Service
+@Slf4j
+public class PasswordHashingServiceImpl implements PasswordHashingService, DisposableBean {
+    private static final String EXECUTOR_NAME = "passwordHashing";
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor passwordHashingExecutor;
+    private final Timer hashTimer;
+    private final Counter rejected;
+    @Value("${application.security.password-hashing.retry-after:2}")
+    private long retryAfterSeconds;
+
+    public PasswordHashingServiceImpl(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry,
+                                      @Value("${application.security.password-hashing.threads:0}") int threads,
+                                      @Value("${application.security.password-hashing.queue-capacity:32}")
+                                      int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.passwordHashingExecutor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        new ExecutorServiceMetrics(passwordHashingExecutor, EXECUTOR_NAME, Tags.empty()).bindTo(meterRegistry);
+        this.hashTimer = Timer.builder("users.password.hash")
+                .description("Time to hash a password")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("users.password.hash.rejected")
+                .description("Password hashes rejected because the executor was saturated")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Hashes a password on the password hashing executor, with the correlation id of the caller.
+     * The returned future completes on a hashing thread, so callers continue with the async
+     * variants and their own executor to keep the pool free for hashing.
+     *
+     * @param rawPassword the password to hash
+     * @return a future completed with the hash
+     * @throws ServiceUnavailableException if the executor is saturated
+     */
+    @Override
+    public CompletableFuture<String> encode(String rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> hashTimer.record(() -> passwordEncoder.encode(rawPassword)),
+                    task -> passwordHashingExecutor.execute(Correlation.propagate(task)));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.error("Password hashing rejected, executor saturated (queued {})",
+                    passwordHashingExecutor.getQueue().size());
+            throw new ServiceUnavailableException("Too many password operations in progress, retry later",
+                    retryAfterSeconds);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        passwordHashingExecutor.shutdown();
+    }
+}
@@ -0,0 +1,68 @@
+package com.clinic.userservice.userservice.services.impl;
+
+import com.clinic.commonservice.enums.RoleName;
+import com.clinic.commonservice.exceptions.NotFoundException;
+import com.clinic.userservice.userservice.persistence.entities.Role;
+import com.clinic.userservice.userservice.persistence.repository.RoleRepository;
+import com.clinic.userservice.userservice.services.contracts.RoleCatalogService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of the RoleCatalogService interface.
+ * The roles table only holds one row per RoleName, so it is read once into an immutable
+ * map and every lookup is answered from memory. The catalogue is read again only when a
+ * role is missing, for instance if it was inserted after the first lookup.
+ * Reloads are serialized with a ReentrantLock rather than a synchronized method, so a virtual
+ * thread waiting for the query does not pin its carrier thread.
+ *
+ * @author caito
+ *
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RoleCatalogServiceImpl implements RoleCatalogService {
+    private final RoleRepository roleRepository;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile Map<RoleName, Role> catalog = Collections.emptyMap();
+
+    /**
+     * Returns the role with the given name.
+     *
+     * @param name the name of the role
+     * @return the role, detached from any persistence context
+     * @throws NotFoundException if the role does not exist
+     */
+    @Override
+    public Role getRole(RoleName name) {
+        Role role = name == null ? null : catalog.get(name);
+        if (role == null && name != null) {
+            role = reload().get(name);
+        }
+        if (role == null) {
+            log.error("Role not found: {}", name);
+            throw new NotFoundException("Role not found: " + name);
+        }
+        return role;
+    }
+
+    private Map<RoleName, Role> reload() {
+        reloadLock.lock();
+        try {
+            log.info("--> Loading role catalogue");
+            Map<RoleName, Role> roles = new EnumMap<>(RoleName.class);
+            roleRepository.findAll().forEach(role -> roles.put(role.getRole(), role));
+            catalog = Collections.unmodifiableMap(roles);
+            return catalog;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.clinic.userservice.userservice.services.impl;
+
+import com.clinic.commonservice.exceptions.FileIOException;
+import com.clinic.userservice.userservice.api.models.requests.UserExportFilter;
+import com.clinic.userservice.userservice.api.models.responses.RoleResponse;
+import com.clinic.userservice.userservice.api.models.responses.UserResponse;
+import com.clinic.userservice.userservice.persistence.projections.UserExportRow;
+import com.clinic.userservice.userservice.persistence.repository.UserRepository;
+import com.clinic.userservice.userservice.services.contracts.UserExportService;
+import com.clinic.userservice.userservice.utils.exports.ExportFormat;
+import com.clinic.userservice.userservice.utils.exports.UserExportWriter;
+import com.clinic.userservice.userservice.utils.mappers.UserMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of the UserExportService interface.
+ * Users are read as a stream of UserExportRow projections: rows are fetched with the export fetch
+ * size of UserExportRepositoryImpl, nothing is attached to the persistence context,
+ * and each user is written as soon as its last role row has been read. Heap use therefore stays
+ * flat however many users are exported.
+ *
+ * @author caito
+ *
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UserExportServiceImpl implements UserExportService {
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Writes the users matching the filter to the given stream, ordered by id.
+     *
+     * @param filter the optional role, plan and social work filters
+     * @param format the format of the export
+     * @param output the stream to write to, it is closed when the export ends
+     * @return the number of exported users
+     * @throws FileIOException if the export cannot be written
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportUsers(UserExportFilter filter, ExportFormat format, OutputStream output) {
+        log.info("--> Exporting users service");
+        long exported = 0;
+        try (Stream<UserExportRow> rows = userRepository.streamExportRows(filter.getRole(), filter.getPlan(),
+                filter.getSocialWork());
+             UserExportWriter writer = new UserExportWriter(output, format, objectMapper)) {
+            Iterator<UserExportRow> iterator = rows.iterator();
+            UserExportRow current = null;
+            Set<RoleResponse> roles = new HashSet<>();
+            while (iterator.hasNext()) {
+                UserExportRow row = iterator.next();
+                if (current != null && !current.id().equals(row.id())) {
+                    writer.write(UserMapper.mapToDto(current.view(), roles));
+                    exported++;
+                    roles = new HashSet<>();
+                }
+                current = row;
+                if (row.roleId() != null) {
+                    roles.add(RoleResponse.builder().id(row.roleId()).rol(row.role()).build());
+                }
+            }
+            if (current != null) {
+                writer.write(UserMapper.mapToDto(current.view(), roles));
+                exported++;
+            }
+        } catch (IOException e) {
+            log.error("Error writing the export: {}", e.getMessage());
+            throw new FileIOException("Error writing the export: " + e.getMessage());
+        }
+        log.info("--> Export finished: {} users", exported);
+        return exported;
+    }
+}
@@ -0,0 +1,225 @@
+package com.clinic.userservice.userservice.services.impl;
+
+import com.clinic.commonservice.enums.RoleName;
+import com.clinic.commonservice.exceptions.FileIOException;
+import com.clinic.commonservice.exceptions.NotFoundException;
+import com.clinic.commonservice.models.RegisterUser;
+import com.clinic.userservice.userservice.api.models.requests.UserRequest;
+import com.clinic.userservice.userservice.api.models.responses.ImportReportResponse;
+import com.clinic.userservice.userservice.api.models.responses.ImportRowError;
+import com.clinic.userservice.userservice.persistence.entities.Role;
+import com.clinic.userservice.userservice.persistence.entities.UserApp;
+import com.clinic.userservice.userservice.persistence.entities.ValidationToken;
+import com.clinic.userservice.userservice.persistence.repository.UserRepository;
+import com.clinic.userservice.userservice.services.contracts.OutboxService;
+import com.clinic.userservice.userservice.services.contracts.RoleCatalogService;
+import com.clinic.userservice.userservice.services.contracts.UserImportService;
+import com.clinic.userservice.userservice.services.contracts.UserSearchService;
+import com.clinic.userservice.userservice.services.contracts.UserUniquenessService;
+import com.clinic.userservice.userservice.utils.imports.ImportFormat;
+import com.clinic.userservice.userservice.utils.imports.ImportRow;
+import com.clinic.userservice.userservice.utils.imports.UserImportReader;
+import com.clinic.userservice.userservice.utils.mappers.UserMapper;
+import com.clinic.userservice.userservice.utils.tokens.ValidationTokens;
+import com.clinic.userservice.userservice.utils.validators.UserRequestValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of the UserImportService interface.
+ * Reads the import as a stream and processes it in chunks: each chunk is validated with
+ * one query for existing emails and one for existing DNIs, persisted in a single transaction
+ * with batched inserts, and its registration messages are written to the outbox in that same transaction.
+ * A chunk that rolls back, for example on a user inserted concurrently, is retried in halves down to
+ * the rows that cannot be saved.
+ *
+ * @author caito
+ *
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UserImportServiceImpl implements UserImportService {
+    private final UserRepository userRepository;
+    private final RoleCatalogService roleCatalogService;
+    private final UserSearchService userSearchService;
+    private final UserUniquenessService userUniquenessService;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    @Value("${application.users.import.chunk-size:500}")
+    private int chunkSize;
+    @Value("${application.users.import.max-errors:1000}")
+    private int maxErrors;
+
+    /**
+     * Imports users from a CSV or NDJSON stream.
+     * Valid rows are created as new, not yet enabled users with ROLE_USER unless another role is given.
+     * Rows that fail validation are skipped and reported; they do not stop the import.
+     *
+     * @param input  the stream with the users to import
+     * @param format the format of the stream
+     * @return the report with the totals and the rejected rows
+     * @throws FileIOException if the stream cannot be read
+     */
+    @Override
+    public ImportReportResponse importUsers(InputStream input, ImportFormat format) {
+        log.info("--> Importing users service");
+        ImportReportResponse report = ImportReportResponse.builder().build();
+        try (UserImportReader reader = new UserImportReader(input, format, objectMapper)) {
+            List<ImportRow> chunk = new ArrayList<>(chunkSize);
+            while (reader.hasNext()) {
+                chunk.add(reader.next());
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) importChunk(chunk, report);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Error reading the import: {}", e.getMessage());
+            throw new FileIOException("Error reading the import: " + e.getMessage());
+        }
+        log.info("--> Import finished: {} imported, {} failed", report.getImported(), report.getFailed());
+        return report;
+    }
+
+    /**
+     * Validates and persists one chunk of rows in its own transaction.
+     * If the transaction fails, the rows rejected by validation stay rejected and the other rows
+     * are retried in halves, so only the rows that cannot be saved fail, each with its cause.
+     *
+     * @param chunk  the rows of the chunk
+     * @param report the report to update
+     */
+    private void importChunk(List<ImportRow> chunk, ImportReportResponse report) {
+        report.setTotal(report.getTotal() + chunk.size());
+        importRows(chunk, report);
+    }
+
+    private void importRows(List<ImportRow> rows, ImportReportResponse report) {
+        List<ImportRowError> rejected = new ArrayList<>();
+        List<UserApp> created = new ArrayList<>(rows.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> persistRows(rows, rejected, created));
+        } catch (RuntimeException e) {
+            Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+            if (rows.size() == 1) {
+                ImportRow row = rows.get(0);
+                log.warn("Import row {} rolled back: {}", row.row(), cause.getMessage());
+                reject(report, rowError(row.row(), row.request() == null ? null : row.request().getEmail(),
+                        List.of("The row was not imported: " + cause.getMessage())));
+                return;
+            }
+            log.warn("Import chunk of {} rows rolled back, retrying it in halves: {}", rows.size(), cause.getMessage());
+            rejected.forEach(error -> reject(report, error));
+            Set<Long> rejectedRows = rejected.stream().map(ImportRowError::getRow).collect(Collectors.toSet());
+            List<ImportRow> retry = rows.stream().filter(row -> !rejectedRows.contains(row.row())).toList();
+            int half = retry.size() / 2;
+            if (half > 0) importRows(retry.subList(0, half), report);
+            if (!retry.isEmpty()) importRows(retry.subList(half, retry.size()), report);
+            return;
+        }
+        // the rows are committed at this point; their registration messages are in the outbox
+        created.forEach(user -> userSearchService.index(user.getId(), user.getFullName()));
+        report.setImported(report.getImported() + created.size());
+        rejected.forEach(error -> reject(report, error));
+    }
+
+    /*
+     * Runs inside the transaction of importRows. Rows failing validation are added to rejected,
+     * the others are persisted with their validation token and registration message.
+     */
+    private void persistRows(List<ImportRow> rows, List<ImportRowError> rejected, List<UserApp> created) {
+        List<UserRequest> requests = rows.stream().map(ImportRow::request).filter(Objects::nonNull).toList();
+        Set<String> takenEmails = existing(requests, UserRequest::getEmail,
+                userUniquenessService::mightContainEmail, userRepository::findExistingEmails);
+        Set<String> takenDnis = existing(requests, UserRequest::getDni,
+                userUniquenessService::mightContainDni, userRepository::findExistingDnis);
+        for (ImportRow row : rows) {
+            if (!row.errors().isEmpty()) {
+                rejected.add(rowError(row.row(), null, row.errors()));
+                continue;
+            }
+            UserRequest request = row.request();
+            List<String> errors = new ArrayList<>(UserRequestValidator.validate(request,
+                    email -> takenEmails.contains(normalize(email)), dni -> takenDnis.contains(normalize(dni))));
+            Role role = null;
+            try {
+                role = roleCatalogService.getRole(request.getRole() == null ? RoleName.ROLE_USER : request.getRole());
+            } catch (NotFoundException e) {
+                errors.add(e.getMessage());
+            }
+            if (!errors.isEmpty()) {
+                rejected.add(rowError(row.row(), request.getEmail(), errors));
+                continue;
+            }
+            takenEmails.add(normalize(request.getEmail()));
+            takenDnis.add(normalize(request.getDni()));
+            UserApp user = UserMapper.mapToEntity(request);
+            user.setRoles(new HashSet<>(Set.of(role)));
+            userUniquenessService.register(user.getEmail(), user.getDni());
+            entityManager.persist(user);
+            ValidationToken vt = ValidationTokens.generate(request.getEmail());
+            entityManager.persist(vt);
+            created.add(user);
+            outboxService.enqueue("userTopic", request.getEmail(), RegisterUser.builder()
+                    .email(request.getEmail())
+                    .username(request.getFullName())
+                    .validationToken(vt.getToken())
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void reject(ImportReportResponse report, ImportRowError error) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxErrors) {
+            report.getErrors().add(error);
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    private static ImportRowError rowError(long row, String email, List<String> messages) {
+        return ImportRowError.builder().row(row).email(email).messages(messages).build();
+    }
+
+    /*
+     * Returns which values of the chunk are already registered, normalized. Only the values the
+     * membership index reports as possible hits are looked up in the database.
+     */
+    private static Set<String> existing(List<UserRequest> requests,
+                                        Function<UserRequest, String> field,
+                                        Predicate<String> mightExist,
+                                        Function<Collection<String>, Set<String>> lookup) {
+        Set<String> values = requests.stream().map(field).filter(Objects::nonNull).filter(mightExist)
+                .collect(Collectors.toSet());
+        if (values.isEmpty()) return new HashSet<>();
+        return lookup.apply(values).stream().map(UserImportServiceImpl::normalize)
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    /*
+     * Emails and DNIs are unique ignoring case in the database, so they are compared in lower case.
+     */
+    private static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,154 @@
+package com.clinic.userservice.userservice.services.impl;
+
+import com.clinic.commonservice.enums.RoleName;
+import com.clinic.commonservice.exceptions.BadRequestException;
+import com.clinic.commonservice.exceptions.NotFoundException;
+import com.clinic.userservice.userservice.api.models.responses.RoleResponse;
+import com.clinic.userservice.userservice.api.models.responses.UserResponse;
+import com.clinic.userservice.userservice.configs.cache.CacheConfig;
+import com.clinic.userservice.userservice.persistence.projections.UserView;
+import com.clinic.userservice.userservice.services.contracts.UserReadService;
+import com.clinic.userservice.userservice.utils.mappers.UserMapper;
+import io.r2dbc.spi.Readable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Implementation of the UserReadService interface.
+ * Users are read with the reactive driver, one statement per request: the columns of UserResponse
+ * joined with the roles, one row per role, folded into one UserResponse per user as the rows arrive.
+ * Listings are streamed in id order and read from the database only as fast as the client takes them.
+ * Lookups by email and DNI share the caches of the UserService, with the same keys ignoring case,
+ * so both APIs see the same evictions.
+ *
+ * @author caito
+ *
+ */
+@Service
+@Slf4j
+public class UserReadServiceImpl implements UserReadService {
+    private static final String SELECT = "SELECT u.id, u.full_name, u.email, u.address, u.phone, u.gender, u.dni, " +
+            "u.tuition, u.social_work, u.membership_number, u.plan, r.id AS role_id, r.role FROM ";
+    private static final String JOIN_ROLES = " u LEFT JOIN users_roles ur ON ur.user_id = u.id " +
+            "LEFT JOIN roles r ON r.id = ur.role_id ";
+    private final DatabaseClient databaseClient;
+    private final Cache usersByEmail;
+    private final Cache usersByDni;
+    @Value("${application.users.stream.max-limit:10000}")
+    private int maxLimit;
+
+    public UserReadServiceImpl(DatabaseClient databaseClient, CacheManager cacheManager) {
+        this.databaseClient = databaseClient;
+        this.usersByEmail = cacheManager.getCache(CacheConfig.USERS_BY_EMAIL);
+        this.usersByDni = cacheManager.getCache(CacheConfig.USERS_BY_DNI);
+    }
+
+    /**
+     * Retrieves a user by email, from the usersByEmail cache if present.
+     *
+     * @param email the email of the user
+     * @return the UserResponse of the user, or a NotFoundException error if the user is not found
+     */
+    @Override
+    public Mono<UserResponse> getUserByEmail(String email) {
+        return Mono.defer(() -> {
+            String key = CacheConfig.key(email);
+            UserResponse cached = usersByEmail.get(key, UserResponse.class);
+            if (cached != null) return Mono.just(cached);
+            return users(databaseClient.sql(SELECT + "users" + JOIN_ROLES + "WHERE u.email = :email")
+                    .bind("email", email))
+                    .next()
+                    .doOnNext(user -> usersByEmail.put(key, user))
+                    .switchIfEmpty(Mono.error(() -> {
+                        log.error("User not found with email: {}", email);
+                        return new NotFoundException("User not found with email: " + email);
+                    }));
+        });
+    }
+
+    /**
+     * Retrieves a user by DNI, from the usersByDni cache if present.
+     *
+     * @param dni the DNI of the user
+     * @return the UserResponse of the user, or a NotFoundException error if the user is not found
+     */
+    @Override
+    public Mono<UserResponse> getUserByDni(String dni) {
+        return Mono.defer(() -> {
+            String key = CacheConfig.key(dni);
+            UserResponse cached = usersByDni.get(key, UserResponse.class);
+            if (cached != null) return Mono.just(cached);
+            return users(databaseClient.sql(SELECT + "users" + JOIN_ROLES + "WHERE u.dni = :dni")
+                    .bind("dni", dni))
+                    .next()
+                    .doOnNext(user -> usersByDni.put(key, user))
+                    .switchIfEmpty(Mono.error(() -> {
+                        log.error("User not found with DNI: {}", dni);
+                        return new NotFoundException("User not found with DNI: " + dni);
+                    }));
+        });
+    }
+
+    /**
+     * Streams the users with an id greater than the given one, in id order.
+     *
+     * @param afterId the id of the last user already received, 0 for the first one
+     * @param limit   the maximum number of users to stream
+     * @return the users, or a BadRequestException error if the limit is out of range
+     */
+    @Override
+    public Flux<UserResponse> streamUsers(long afterId, int limit) {
+        if (limit < 1 || limit > maxLimit) {
+            log.error("Invalid stream limit: {}", limit);
+            return Flux.error(new BadRequestException(List.of("limit must be between 1 and " + maxLimit)));
+        }
+        // the limit applies to users, not to the joined rows
+        return users(databaseClient.sql(SELECT +
+                        "(SELECT * FROM users WHERE id > :afterId ORDER BY id LIMIT :limit)" + JOIN_ROLES +
+                        "ORDER BY u.id")
+                .bind("afterId", afterId)
+                .bind("limit", limit));
+    }
+
+    /*
+     * Runs the statement and folds the consecutive rows of each user, one per role, into its UserResponse.
+     */
+    private static Flux<UserResponse> users(DatabaseClient.GenericExecuteSpec statement) {
+        return statement.map(UserReadServiceImpl::row)
+                .all()
+                .bufferUntilChanged(row -> row.view().id())
+                .map(UserReadServiceImpl::toResponse);
+    }
+
+    private static UserRow row(Readable row) {
+        UserView view = new UserView(row.get("id", Long.class), row.get("full_name", String.class),
+                row.get("email", String.class), row.get("address", String.class), row.get("phone", String.class),
+                row.get("gender", String.class), row.get("dni", String.class), row.get("tuition", String.class),
+                row.get("social_work", String.class), row.get("membership_number", String.class),
+                row.get("plan", String.class));
+        String role = row.get("role", String.class);
+        return new UserRow(view, role == null ? null
+                : RoleResponse.builder().id(row.get("role_id", Long.class)).rol(RoleName.valueOf(role)).build());
+    }
+
+    private static UserResponse toResponse(List<UserRow> rows) {
+        Set<RoleResponse> roles = new HashSet<>();
+        for (UserRow row : rows) {
+            if (row.role() != null) roles.add(row.role());
+        }
+        return UserMapper.mapToDto(rows.getFirst().view(), roles);
+    }
+
+    private record UserRow(UserView view, RoleResponse role) {
+    }
+}
@@ -0,0 +1,319 @@
+package com.clinic.userservice.userservice.services.impl;
+
+import com.clinic.commonservice.exceptions.BadRequestException;
+import com.clinic.userservice.userservice.persistence.projections.UserNameView;
+import com.clinic.userservice.userservice.persistence.repository.UserRepository;
+import com.clinic.userservice.userservice.services.contracts.UserSearchService;
+import com.clinic.userservice.userservice.utils.search.NameNormalizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Implementation of the UserSearchService interface.
+ * Keeps an in-memory trigram index over the normalized full names of the users.
+ * A lookup intersects the posting lists of the query trigrams starting with the shortest one, and
+ * stops once it has the hits of the requested page plus a fixed look-ahead, so a common name costs
+ * no more than a rare one and its cost does not grow with the size of the users table.
+ *
+ * @author caito
+ *
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UserSearchServiceImpl implements UserSearchService {
+    private static final int REBUILD_BATCH = 5_000;
+    private static final int EXACT = 3;
+    private static final int PREFIX = 2;
+    private static final int CONTAINS = 1;
+    // matches collected past the requested page before the scan stops
+    static final int MATCH_LOOK_AHEAD = 1_000;
+    private static final Comparator<Match> RANKING = Comparator.comparingInt(Match::score).reversed()
+            .thenComparingInt(Match::tokens)
+            .thenComparingLong(Match::id);
+
+    private final UserRepository userRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // guarded by lock: the index searched, and while rebuilding the one replacing it
+    // with the ids changed since the rebuild started, which the rebuild must not overwrite
+    private Index index = new Index();
+    private Index building;
+    private Set<Long> changedWhileBuilding;
+
+    /**
+     * Adds a user to the index, replacing any previous entry for the same id.
+     *
+     * @param id       the id of the user
+     * @param fullName the full name of the user
+     */
+    @Override
+    public void index(Long id, String fullName) {
+        String[] tokens = NameNormalizer.tokens(fullName);
+        lock.writeLock().lock();
+        try {
+            index.put(id, tokens);
+            if (building != null) {
+                building.put(id, tokens);
+                changedWhileBuilding.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a user from the index.
+     *
+     * @param id the id of the user
+     */
+    @Override
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            index.remove(id);
+            if (building != null) {
+                building.remove(id);
+                changedWhileBuilding.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches users by name, ignoring case and accents.
+     * Every query token must match a name token: exact matches rank first,
+     * then prefixes, then tokens containing the query. Ties go to shorter names.
+     * The scan stops after (page + 1) * size + MATCH_LOOK_AHEAD matches in id order, so for common
+     * names the ranking covers those matches only, and the total is capped at that number: a total
+     * equal to the cap means at least that many users match.
+     *
+     * @param name the name to search
+     * @param page the page number to retrieve
+     * @param size the number of ids per page
+     * @return a page of ranked user ids with the total of matches, capped as described above
+     * @throws BadRequestException if the name has no searchable characters or the page is invalid
+     */
+    @Override
+    public Page<Long> search(String name, int page, int size) {
+        if (page < 0 || size < 1) {
+            log.error("Invalid page: {}, size: {}", page, size);
+            throw new BadRequestException(List.of("page must not be negative and size must be greater than zero"));
+        }
+        String[] query = NameNormalizer.tokens(name);
+        Set<String> grams = new HashSet<>();
+        for (String token : query) grams.addAll(NameNormalizer.queryGrams(token));
+        if (grams.isEmpty()) {
+            log.error("Name without searchable characters: {}", name);
+            throw new BadRequestException(List.of("name must contain at least 2 letters or digits"));
+        }
+        long limit = (long) (page + 1) * size;
+        long cap = limit + MATCH_LOOK_AHEAD;
+        PriorityQueue<Match> top = new PriorityQueue<>(RANKING.reversed());
+        long total = 0;
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(grams.size());
+            for (String gram : grams) {
+                Postings list = index.postings.get(gram);
+                if (list == null) return Page.empty(PageRequest.of(page, size));
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(Postings::size));
+            Postings shortest = lists.getFirst();
+            for (int i = 0; i < shortest.size() && total < cap; i++) {
+                long id = shortest.get(i);
+                if (!containedInAll(lists, id)) continue;
+                String[] tokens = index.names.get(id);
+                int score = score(query, tokens);
+                if (score == 0) continue;
+                total++;
+                top.offer(new Match(id, score, tokens.length));
+                if (top.size() > limit) top.poll();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Match> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING);
+        List<Long> ids = ranked.stream()
+                .skip((long) page * size)
+                .map(Match::id)
+                .toList();
+        return new PageImpl<>(ids, PageRequest.of(page, size), total);
+    }
+
+    /**
+     * Rebuilds the index from the database, reading the users in id order.
+     * The new index is built next to the current one, which keeps serving searches until it is
+     * replaced at once. Users indexed or removed meanwhile are applied to both, and the rows read
+     * for them by the rebuild are skipped, as they may be older. Runs once the application is ready.
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            log.info("--> Rebuilding user name index...");
+            lock.writeLock().lock();
+            try {
+                building = new Index();
+                changedWhileBuilding = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            long lastId = 0;
+            long indexed = 0;
+            Slice<UserNameView> slice;
+            try {
+                do {
+                    slice = userRepository.findNamesAfter(lastId, PageRequest.of(0, REBUILD_BATCH));
+                    lock.writeLock().lock();
+                    try {
+                        for (UserNameView user : slice) {
+                            if (!changedWhileBuilding.contains(user.getId())) {
+                                building.put(user.getId(), NameNormalizer.tokens(user.getFullName()));
+                            }
+                            lastId = user.getId();
+                        }
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                    indexed += slice.getNumberOfElements();
+                } while (slice.hasNext());
+                lock.writeLock().lock();
+                try {
+                    index = building;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    building = null;
+                    changedWhileBuilding = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            log.info("--> User name index rebuilt with {} users", indexed);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private static Set<String> gramsOf(String[] tokens) {
+        Set<String> grams = new HashSet<>();
+        for (String token : tokens) grams.addAll(NameNormalizer.indexGrams(token));
+        return grams;
+    }
+
+    private static boolean containedInAll(List<Postings> lists, long id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) return false;
+        }
+        return true;
+    }
+
+    private static int score(String[] query, String[] tokens) {
+        int total = 0;
+        for (String q : query) {
+            int best = 0;
+            for (String token : tokens) {
+                if (token.equals(q)) {
+                    best = EXACT;
+                    break;
+                }
+                if (token.startsWith(q)) {
+                    best = PREFIX;
+                } else if (best == 0 && q.length() >= NameNormalizer.GRAM && token.contains(q)) {
+                    best = CONTAINS;
+                }
+            }
+            if (best == 0) return 0;
+            total += best;
+        }
+        return total;
+    }
+
+    private record Match(long id, int score, int tokens) {
+    }
+
+    /*
+     * Normalized name tokens by user id, and the posting list of each trigram.
+     */
+    private static final class Index {
+        private final Map<String, Postings> postings = new HashMap<>();
+        private final Map<Long, String[]> names = new HashMap<>();
+
+        void put(Long id, String[] tokens) {
+            remove(id);
+            if (tokens.length == 0) return;
+            names.put(id, tokens);
+            for (String gram : gramsOf(tokens)) {
+                postings.computeIfAbsent(gram, g -> new Postings()).add(id);
+            }
+        }
+
+        void remove(Long id) {
+            String[] tokens = names.remove(id);
+            if (tokens == null) return;
+            for (String gram : gramsOf(tokens)) {
+                Postings list = postings.get(gram);
+                if (list != null && list.remove(id) && list.size() == 0) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    /*
+     * Sorted, growable list of user ids for one trigram.
+     */
+    private static final class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i >= 0) return;
+            i = -i - 1;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+            ids[i] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i < 0) return false;
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        long get(int index) {
+            return ids[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -1,39 +1,59 @@
 package com.clinic.userservice.userservice.services.impl;
 
 import com.clinic.commonservice.exceptions.BadRequestException;
-import com.clinic.commonservice.exceptions.BrokerMsgException;
 import com.clinic.commonservice.exceptions.NotFoundException;
-import com.clinic.commonservice.helpers.ValidationHelper;
-import com.clinic.commonservice.logs.WriteLog;
-import com.clinic.commonservice.models.RegisterUser;
+import com.clinic.commonservice.models.HighMsg;
+import com.clinic.commonservice.tracing.StageTracer;
 import com.clinic.userservice.userservice.api.models.requests.UserEnabledRequest;
 import com.clinic.userservice.userservice.api.models.requests.UserRequest;
+import com.clinic.userservice.userservice.api.models.responses.CursorPageResponse;
+import com.clinic.userservice.userservice.api.models.responses.RoleResponse;
 import com.clinic.userservice.userservice.api.models.responses.UserResponse;
+import com.clinic.userservice.userservice.configs.cache.CacheConfig;
 import com.clinic.userservice.userservice.persistence.entities.Role;
 import com.clinic.userservice.userservice.persistence.entities.UserApp;
 import com.clinic.userservice.userservice.persistence.entities.ValidationToken;
-import com.clinic.userservice.userservice.persistence.repository.RoleRepository;
+import com.clinic.userservice.userservice.persistence.projections.UserView;
 import com.clinic.userservice.userservice.persistence.repository.UserRepository;
 import com.clinic.userservice.userservice.persistence.repository.ValidationTokenRepository;
+import com.clinic.userservice.userservice.services.contracts.OutboxService;
+import com.clinic.userservice.userservice.services.contracts.PasswordHashingService;
+import com.clinic.userservice.userservice.services.contracts.RoleCatalogService;
+import com.clinic.userservice.userservice.services.contracts.UserSearchService;
 import com.clinic.userservice.userservice.services.contracts.UserService;
+import com.clinic.userservice.userservice.services.contracts.UserUniquenessService;
 import com.clinic.userservice.userservice.utils.mappers.UserMapper;
+import com.clinic.userservice.userservice.utils.pagination.CursorCodec;
+import com.clinic.userservice.userservice.utils.tokens.ValidationTokens;
+import com.clinic.userservice.userservice.utils.transactions.TransactionHooks;
+import com.clinic.userservice.userservice.utils.validators.UserEnabledRequestValidator;
+import com.clinic.userservice.userservice.utils.validators.UserRequestValidator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.security.SecureRandom;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of the UserService interface.
@@ -47,10 +67,20 @@ import java.util.concurrent.CompletableFuture;
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final RoleCatalogService roleCatalogService;
     private final ValidationTokenRepository validationTokenRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final KafkaTemplate<String, RegisterUser> userTemplate;
+    private final UserSearchService userSearchService;
+    private final UserUniquenessService userUniquenessService;
+    private final CacheManager cacheManager;
+    private final PasswordHashingService passwordHashingService;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxService outboxService;
+    private final StageTracer stageTracer;
+    private final AsyncTaskExecutor applicationTaskExecutor;
+    @Value("${application.users.count-ttl:60s}")
+    private Duration countTtl;
+    private volatile long cachedUserCount = -1;
+    private volatile long cachedUserCountExpiresAt;
 
     /**
      * Creates a new user based on the provided UserRequest.
@@ -58,49 +88,41 @@ public class UserServiceImpl implements UserService {
      * @param request the user request containing user details
      * @throws BadRequestException if validation fails
      * @throws NotFoundException if the specified role is not found
+     * @throws DataIntegrityViolationException if the email or DNI was registered concurrently
      */
     @Override
     @Transactional
     public void createUser(UserRequest request) {
-        log.info(WriteLog.logInfo("--> Creating new user service"));
-        validateUser(request);
+        log.debug("--> Creating new user service");
+        stageTracer.trace("user.validation", () -> validateUser(request));
         Set<Role> roles = new HashSet<>();
         UserApp user = UserMapper.mapToEntity(request);
-        Role userRole = roleRepository.findByRole(request.getRole())
-                .orElseThrow(() -> {
-                    log.error(WriteLog.logError("Role not found: " + request.getRole()));
-                    return new NotFoundException("Role not found: " + request.getRole());
-                });
-        roles.add(userRole);
+        roles.add(roleCatalogService.getRole(request.getRole()));
         user.setRoles(roles);
-        userRepository.save(user);
-        log.info(WriteLog.logInfo("--> new user created"));
-        log.info(WriteLog.logInfo("--> generate validation token..."));
-        ValidationToken vt = generateValidationToken(request.getEmail());
+        userUniquenessService.register(user.getEmail(), user.getDni());
+        // flushed here so a duplicate that got past validation fails as a DataIntegrityViolationException
+        userRepository.saveAndFlush(user);
+        TransactionHooks.afterCommit(() -> userSearchService.index(user.getId(), user.getFullName()));
+        log.debug("--> new user created");
+        log.debug("--> generate validation token...");
+        ValidationToken vt = ValidationTokens.generate(request.getEmail());
         validationTokenRepository.save(vt);
-        log.info(WriteLog.logInfo("--> send message to broker..."));
-        CompletableFuture<SendResult<String, RegisterUser>> future = userTemplate.send(
-                "userTopic",
-                RegisterUser.builder()
+        log.debug("--> queue message to broker...");
+        // a patient waiting at the front desk: published on the high priority lane
+        outboxService.enqueue("userTopic-high", request.getEmail(),
+                HighMsg.builder()
                         .email(request.getEmail())
                         .username(request.getFullName())
                         .validationToken(vt.getToken())
-                        .build()
-        );
-        future.whenCompleteAsync((r,t) -> {
-            if (t != null){
-                log.error(WriteLog.logError("Error sending message to broker: " + t.getMessage()));
-                throw new BrokerMsgException("Error sending message to broker: " + t.getMessage());
-            } else {
-                log.info(WriteLog.logInfo("Message sent to broker successfully " ));
-            }
-        });
+                        .build());
     }
 
 
 
     /**
-     * Retrieves a paginated list of users.
+     * Retrieves a paginated list of users ordered by id.
+     * The page is read as UserView projections and the roles of the whole page are loaded with
+     * one more query, so the number of statements does not depend on the page size.
      *
      * @param page the page number to retrieve
      * @param size the number of users per page
@@ -109,36 +131,104 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional(readOnly = true)
     public Page<UserResponse> getUsers(int page, int size) {
-        log.info(WriteLog.logInfo("--> Getting users service"));
+        log.debug("--> Getting users service");
         var pr = PageRequest.of(page, size);
-        return userRepository.findAll(pr).map(UserMapper::mapToDto);
+        Page<UserView> views = userRepository.findViews(pr);
+        return new PageImpl<>(withRoles(views.getContent()), pr, views.getTotalElements());
     }
 
+    /**
+     * Retrieves a slice of users using keyset pagination.
+     * Seeks on the user id instead of skipping rows, so every slice costs the same
+     * regardless of its depth, and no count query is executed.
+     *
+     * @param cursor    the continuation token returned by the previous slice, null or empty for the first one
+     * @param size      the number of users per slice
+     * @param withTotal whether to include a cached approximate total of users
+     * @return a slice of UserResponse objects with the cursor of the next slice
+     * @throws BadRequestException if the cursor or the size are invalid
+     */
     @Override
     @Transactional(readOnly = true)
-    public List<UserResponse> getUsers(String name) {
-        log.info(WriteLog.logInfo("--> Getting users by name service"));
-        return userRepository.findByFullNameContainingIgnoreCase(name).stream().map(UserMapper::mapToDto).toList();
+    public CursorPageResponse<UserResponse> getUsers(String cursor, int size, boolean withTotal) {
+        log.debug("--> Getting users by cursor service");
+        if (size < 1) {
+            log.error("Invalid page size: {}", size);
+            throw new BadRequestException(List.of("size must be greater than zero"));
+        }
+        long lastId = CursorCodec.decode(cursor);
+        Slice<UserView> slice = userRepository.findViewsAfter(lastId, PageRequest.of(0, size));
+        List<UserResponse> content = withRoles(slice.getContent());
+        return CursorPageResponse.<UserResponse>builder()
+                .content(content)
+                .size(content.size())
+                .hasNext(slice.hasNext())
+                .nextCursor(slice.hasNext() ? CursorCodec.encode(content.getLast().getId()) : null)
+                .approximateTotal(withTotal ? approximateUserCount() : null)
+                .build();
     }
 
+    /**
+     * Retrieves a page of users whose name matches the given one, ranked by relevance.
+     * The lookup is answered by the in-memory name index; only the users of the requested
+     * page are loaded from the database.
+     *
+     * @param name the name to search, case and accents are ignored
+     * @param page the page number to retrieve
+     * @param size the number of users per page
+     * @return a ranked page of UserResponse objects
+     * @throws BadRequestException if the name or the page are invalid
+     */
     @Override
     @Transactional(readOnly = true)
+    public Page<UserResponse> getUsers(String name, int page, int size) {
+        log.debug("--> Getting users by name service");
+        Page<Long> ids = userSearchService.search(name, page, size);
+        if (ids.isEmpty()) return Page.empty(ids.getPageable());
+        Map<Long, UserResponse> users = withRoles(userRepository.findViewsByIdIn(ids.getContent())).stream()
+                .collect(Collectors.toMap(UserResponse::getId, Function.identity()));
+        List<UserResponse> content = ids.getContent().stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(content, ids.getPageable(), ids.getTotalElements());
+    }
+
+    /**
+     * Retrieves a user by email. Results are cached by email, ignoring case, until the user changes.
+     *
+     * @param email the email of the user
+     * @return the UserResponse of the user
+     * @throws NotFoundException if the user is not found
+     */
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.USERS_BY_EMAIL, key = CacheConfig.EMAIL_KEY)
     public UserResponse getUserByEmail(String email) {
-        log.info(WriteLog.logInfo("--> Getting user by email service"));
-        return UserMapper.mapToDto(userRepository.findByEmail(email).orElseThrow(
+        log.debug("--> Getting user by email service");
+        return withRoles(userRepository.findViewByEmail(email).orElseThrow(
                 () -> {
-                    log.error(WriteLog.logError("User not found with email: " + email));
+                    log.error("User not found with email: {}", email);
                     return new NotFoundException("User not found with email: " + email);
                 }
         ));
     }
 
+    /**
+     * Retrieves a user by DNI. Results are cached by DNI, ignoring case, until the user changes.
+     *
+     * @param dni the DNI of the user
+     * @return the UserResponse of the user
+     * @throws NotFoundException if the user is not found
+     */
     @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.USERS_BY_DNI, key = CacheConfig.DNI_KEY)
     public UserResponse getUserByDni(String dni) {
-        log.info(WriteLog.logInfo("--> Getting user by DNI service"));
-        return UserMapper.mapToDto(userRepository.findByDni(dni).orElseThrow(
+        log.debug("--> Getting user by DNI service");
+        return withRoles(userRepository.findViewByDni(dni).orElseThrow(
                 () -> {
-                    log.error(WriteLog.logError("User not found with DNI: " + dni));
+                    log.error("User not found with DNI: {}", dni);
                     return new NotFoundException("User not found with DNI: " + dni);
                 }
         ));
@@ -152,29 +242,31 @@ public class UserServiceImpl implements UserService {
      * @return the updated UserResponse object
      * @throws NotFoundException   if the user is not found
      * @throws BadRequestException if validation fails
+     * @throws DataIntegrityViolationException if the email or DNI was registered concurrently
      */
     @Override
     @Transactional
     public UserResponse updateUser(Long id, UserRequest request) {
-        log.info(WriteLog.logInfo("--> Updating user service"));
+        log.debug("--> Updating user service");
         var user = userRepository.findById(id).orElseThrow(
                 () -> {
-                    log.error(WriteLog.logError("User not found with id: " + id));
+                    log.error("User not found with id: {}", id);
                     return new NotFoundException("User not found with id: " + id);
                 }
         );
+        String previousEmail = user.getEmail();
+        String previousDni = user.getDni();
+        List<String> errors = UserRequestValidator.validateUpdate(request,
+                email -> userUniquenessService.emailExistsForOtherUser(email, id),
+                dni -> userUniquenessService.dniExistsForOtherUser(dni, id));
+        if (!errors.isEmpty()) {
+            log.error("User validation failed: {}", String.join(", ", errors));
+            throw new BadRequestException(errors);
+        }
         if(request.getFullName() != null && !request.getFullName().isEmpty()) {
             user.setFullName(request.getFullName());
         }
         if (request.getEmail() != null && !request.getEmail().isEmpty()) {
-            if (!ValidationHelper.validateEmail(request.getEmail())) {
-                log.error(WriteLog.logError("Invalid email"));
-                throw new BadRequestException(List.of("Invalid email"));
-            }
-            if (userRepository.getByEmailAndIdNoEqual(request.getEmail(), id)) {
-                log.error(WriteLog.logError("Email already exists"));
-                throw new BadRequestException(List.of("Email already exists"));
-            }
             user.setEmail(request.getEmail());
         }
         if (request.getAddress() != null && !request.getAddress().isEmpty()) {
@@ -201,7 +293,17 @@ public class UserServiceImpl implements UserService {
         if (request.getPlan() != null && !request.getPlan().isEmpty()) {
             user.setPlan(request.getPlan());
         }
-        return UserMapper.mapToDto(userRepository.save(user));
+        // only values the user did not have take room in the membership filters
+        String newEmail = previousEmail != null && previousEmail.equalsIgnoreCase(user.getEmail()) ? null : user.getEmail();
+        String newDni = previousDni != null && previousDni.equalsIgnoreCase(user.getDni()) ? null : user.getDni();
+        if (newEmail != null || newDni != null) userUniquenessService.register(newEmail, newDni);
+        var saved = userRepository.saveAndFlush(user);
+        TransactionHooks.afterCommit(() -> {
+            userSearchService.index(saved.getId(), saved.getFullName());
+            evictUserCaches(previousEmail, previousDni);
+            evictUserCaches(saved.getEmail(), saved.getDni());
+        });
+        return UserMapper.mapToDto(saved);
     }
 
     /**
@@ -213,61 +315,76 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public void deleteUser(Long id) {
-        log.info(WriteLog.logInfo("--> Deleting user service"));
+        log.debug("--> Deleting user service");
         var user = userRepository.findById(id).orElseThrow(
                 () -> {
-                    log.error(WriteLog.logError("User not found with id: " + id));
+                    log.error("User not found with id: {}", id);
                     throw new NotFoundException("User not found with id: " + id);
                 }
         );
         userRepository.delete(user);
+        TransactionHooks.afterCommit(() -> {
+            userSearchService.remove(id);
+            evictUserCaches(user.getEmail(), user.getDni());
+        });
     }
 
     /**
      * Enables a user account based on the provided UserEnabledRequest.
+     * The password is hashed on the password hashing pool, and the account is activated on the
+     * application task executor so the database work does not hold a hashing thread.
      *
      * @param request the user enabled request containing the token and new password
      * @throws BadRequestException if validation fails
      * @throws NotFoundException   if the validation token or user is not found
      */
     @Override
-    @Transactional
-    public void enabledUser(UserEnabledRequest request) {
-        log.info(WriteLog.logInfo("--> Enabled user service"));
-        if (request.getPassword() != null && request.getPassword().isEmpty()) {
-            log.error(WriteLog.logError("password must be null or empty"));
-            throw new BadRequestException(List.of("password must be null or empty"));
-        } else if (request.getConfirmPassword() != null && request.getConfirmPassword().isEmpty()) {
-            log.error(WriteLog.logError("confirmPassword must be null or empty"));
-            throw new BadRequestException(List.of("confirmPassword must be null or empty"));
-        } else if (!request.getPassword().equals(request.getConfirmPassword())) {
-            log.error(WriteLog.logError("Passwords do not match"));
-            throw new BadRequestException(List.of("Passwords do not match"));
-        } else if (!ValidationHelper.validatePassword(request.getPassword())) {
-            log.error(WriteLog.logError("Invalid password"));
-            throw new BadRequestException(List.of("Invalid password"));
+    public CompletableFuture<Void> enabledUser(UserEnabledRequest request) {
+        log.debug("--> Enabled user service");
+        List<String> errors = UserEnabledRequestValidator.validate(request);
+        if (!errors.isEmpty()) {
+            log.error("Password validation failed: {}", String.join(", ", errors));
+            throw new BadRequestException(errors);
         }
-        var vt = validationTokenRepository.findByToken(request.getToken()).orElseThrow(
-                () -> {
-                    log.error(WriteLog.logError("Invalid validation token: " + request.getToken()));
-                    return new NotFoundException("Invalid validation token: " + request.getToken());
-                }
-        );
+        findValidationToken(request.getToken());
+        return passwordHashingService.encode(request.getPassword())
+                .thenAcceptAsync(hash -> transactionTemplate.executeWithoutResult(
+                        status -> activateUser(request.getToken(), hash)), applicationTaskExecutor);
+    }
+
+    /**
+     * Activates the account of the user a validation token was issued to, and consumes the token.
+     *
+     * @param token        the validation token
+     * @param passwordHash the hash of the new password
+     * @throws NotFoundException if the validation token or user is not found
+     */
+    private void activateUser(String token, String passwordHash) {
+        var vt = findValidationToken(token);
         var user = userRepository.findByEmail(vt.getEmail()).orElseThrow(
                 () -> {
-                    log.error(WriteLog.logError("User not found with email: " + vt.getEmail()));
+                    log.error("User not found with email: {}", vt.getEmail());
                     return new NotFoundException("User not found with email: " + vt.getEmail());
                 }
         );
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHash);
         user.setAccountNonExpired(true);
         user.setAccountNonLocked(true);
         user.setCredentialsNonExpired(true);
         user.setEnabled(true);
         userRepository.save(user);
         validationTokenRepository.delete(vt);
-        log.info(WriteLog.logInfo("--> User is enabled successfully"));
+        TransactionHooks.afterCommit(() -> evictUserCaches(user.getEmail(), user.getDni()));
+        log.debug("--> User is enabled successfully");
+    }
 
+    private ValidationToken findValidationToken(String token) {
+        return validationTokenRepository.findByToken(token).orElseThrow(
+                () -> {
+                    log.error("Invalid validation token: {}", token);
+                    return new NotFoundException("Invalid validation token: " + token);
+                }
+        );
     }
 
     /**
@@ -277,45 +394,60 @@ public class UserServiceImpl implements UserService {
      * @throws BadRequestException if validation fails with a list of errors
      */
     private void validateUser(UserRequest request) {
-        log.info(WriteLog.logInfo("--> Validating user..."));
-        List<String> errors = new ArrayList<>();
-        if (request.getFullName() == null || request.getFullName().isEmpty()) {
-            errors.add("Full name is required.");
-        }
-        if (request.getEmail() == null || request.getEmail().isEmpty()) {
-            errors.add("Email is required.");
-        } else if (userRepository.existsByEmail(request.getEmail())) {
-            errors.add("Email already exists.");
-        } else if (!ValidationHelper.validateEmail(request.getEmail())) {
-            errors.add("Invalid email format.");
-        }
-        if (request.getAddress() == null || request.getAddress().isEmpty()) {
-            errors.add("Address is required.");
-        }
-        if (request.getPhone() == null || request.getPhone().isEmpty()) {
-            errors.add("Phone number is required.");
-        }
-        if (request.getGender() == null || request.getGender().isEmpty()) {
-            errors.add("Gender is required.");
-        }
-        if (request.getDni() == null || request.getDni().isEmpty()) {
-            errors.add("DNI is required.");
-        }
+        log.debug("--> Validating user...");
+        List<String> errors = UserRequestValidator.validate(request, userUniquenessService::emailExists,
+                userUniquenessService::dniExists);
         if (!errors.isEmpty()) {
-            log.error(WriteLog.logError("User validation failed: " + String.join(", ", errors)));
+            log.error("User validation failed: {}", String.join(", ", errors));
             throw new BadRequestException(errors);
         }
     }
 
-    private ValidationToken generateValidationToken(String email) {
-        final int MIN = 100000;
-        final int MAX = 999999;
-        SecureRandom secureRandom = new SecureRandom();
-        int token = secureRandom.nextInt((MAX - MIN) + 1) + MIN;
-        return ValidationToken.builder()
-                .token(String.valueOf(token))
-                .email(email)
-                .expiryDate(LocalDateTime.now().plusDays(1))
-                .build();
+    /**
+     * Maps the given user projections to UserResponse, loading the roles of all of them in a single query.
+     *
+     * @param views the user projections
+     * @return the users mapped to UserResponse, in the order of the projections
+     */
+    private List<UserResponse> withRoles(List<UserView> views) {
+        if (views.isEmpty()) return List.of();
+        Map<Long, Set<RoleResponse>> roles = new HashMap<>(views.size() * 2);
+        userRepository.findRolesByUserIdIn(views.stream().map(UserView::id).toList())
+                .forEach(role -> roles.computeIfAbsent(role.userId(), id -> new HashSet<>())
+                        .add(RoleResponse.builder().id(role.roleId()).rol(role.role()).build()));
+        return views.stream()
+                .map(view -> UserMapper.mapToDto(view, roles.getOrDefault(view.id(), new HashSet<>())))
+                .toList();
+    }
+
+    private UserResponse withRoles(UserView view) {
+        return withRoles(List.of(view)).getFirst();
+    }
+
+    /**
+     * Returns the total of users, refreshing the cached value once its TTL has expired.
+     *
+     * @return the approximate total of users
+     */
+    private long approximateUserCount() {
+        long now = System.currentTimeMillis();
+        if (cachedUserCount < 0 || now >= cachedUserCountExpiresAt) {
+            cachedUserCount = userRepository.count();
+            cachedUserCountExpiresAt = now + countTtl.toMillis();
+        }
+        return cachedUserCount;
+    }
+
+    /**
+     * Evicts the cached lookups of a user by email and by DNI.
+     *
+     * @param email the email key to evict, ignored if null
+     * @param dni   the DNI key to evict, ignored if null
+     */
+    private void evictUserCaches(String email, String dni) {
+        Cache byEmail = cacheManager.getCache(CacheConfig.USERS_BY_EMAIL);
+        Cache byDni = cacheManager.getCache(CacheConfig.USERS_BY_DNI);
+        if (byEmail != null && email != null) byEmail.evict(CacheConfig.key(email));
+        if (byDni != null && dni != null) byDni.evict(CacheConfig.key(dni));
     }
 }
@@ -0,0 +1,226 @@
+package com.clinic.userservice.userservice.services.impl;
+
+import com.clinic.userservice.userservice.persistence.projections.UserKeysView;
+import com.clinic.userservice.userservice.persistence.repository.UserRepository;
+import com.clinic.userservice.userservice.services.contracts.UserUniquenessService;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Implementation of the UserUniquenessService interface.
+ * Keeps a Bloom filter over the registered emails and another one over the DNIs.
+ * A negative answer from a filter is definite and the database is not queried; only
+ * possible hits are confirmed against the database. Emails are lower-cased before they are
+ * hashed, so a case-insensitive match in the database is always a possible hit in the filter.
+ * <p>
+ * Filters cannot forget values: deleted users and replaced emails remain possible hits until
+ * the next rebuild, which only costs a database query. Users registered by another instance are
+ * not in the filters of this one, so the unique constraints of the users table stay the final guard.
+ *
+ * @author caito
+ *
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UserUniquenessServiceImpl implements UserUniquenessService {
+    private static final int REBUILD_BATCH = 5_000;
+
+    private final UserRepository userRepository;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    // register() holds the read lock, rebuild() the write lock only to start and to swap generations
+    private final ReadWriteLock generationLock = new ReentrantReadWriteLock();
+    private volatile Filters current;
+    private List<Keys> pending;
+    @Value("${application.users.uniqueness.expected-insertions:1000000}")
+    private long expectedInsertions;
+    @Value("${application.users.uniqueness.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    /**
+     * Tells whether an email may be registered, without querying the database.
+     *
+     * @param email the email to check
+     * @return false if the email is certainly not registered, true if it may be
+     */
+    @Override
+    public boolean mightContainEmail(String email) {
+        Filters filters = current;
+        return filters == null || filters.emails.mightContain(normalize(email));
+    }
+
+    /**
+     * Tells whether a DNI may be registered, without querying the database.
+     *
+     * @param dni the DNI to check
+     * @return false if the DNI is certainly not registered, true if it may be
+     */
+    @Override
+    public boolean mightContainDni(String dni) {
+        Filters filters = current;
+        return filters == null || filters.dnis.mightContain(normalize(dni));
+    }
+
+    @Override
+    public boolean emailExists(String email) {
+        return mightContainEmail(email) && userRepository.existsByEmail(email);
+    }
+
+    @Override
+    public boolean dniExists(String dni) {
+        return mightContainDni(dni) && userRepository.existsByDni(dni);
+    }
+
+    @Override
+    public boolean emailExistsForOtherUser(String email, Long id) {
+        return mightContainEmail(email) && userRepository.existsByEmailAndIdNot(email, id);
+    }
+
+    @Override
+    public boolean dniExistsForOtherUser(String dni, Long id) {
+        return mightContainDni(dni) && userRepository.existsByDniAndIdNot(dni, id);
+    }
+
+    /**
+     * Adds the new email and DNI of a user being saved to the filters: both on create, only the
+     * changed ones on update. Called before the transaction commits, so a concurrent check never
+     * misses a committed user; if the transaction rolls back the values only remain as possible hits.
+     *
+     * @param email the email of the user, ignored if null
+     * @param dni   the DNI of the user, ignored if null
+     */
+    @Override
+    public void register(String email, String dni) {
+        boolean saturated = false;
+        generationLock.readLock().lock();
+        try {
+            Filters filters = current;
+            if (filters != null) {
+                filters.put(email, dni);
+                saturated = filters.isSaturated();
+            }
+            if (pending != null) {
+                synchronized (pending) {
+                    pending.add(new Keys(email, dni));
+                }
+            }
+        } finally {
+            generationLock.readLock().unlock();
+        }
+        if (saturated) rebuildAsync();
+    }
+
+    /**
+     * Rebuilds the filters from the database, reading the users in id order and sizing the
+     * filters for twice the current number of users. Writes made from the start of the rebuild,
+     * before the users are counted, are kept aside and added to the new filters before they
+     * replace the current ones. Runs once the application is ready.
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) return;
+        try {
+            log.info("--> Rebuilding email and DNI membership index...");
+            swap(() -> pending = new ArrayList<>());
+            long capacity = Math.max(expectedInsertions, userRepository.count() * 2);
+            Filters building = new Filters(capacity, falsePositiveRate);
+            long lastId = 0;
+            Slice<UserKeysView> slice;
+            do {
+                slice = userRepository.findKeysAfter(lastId, PageRequest.of(0, REBUILD_BATCH));
+                for (UserKeysView user : slice) {
+                    building.put(user.getEmail(), user.getDni());
+                    lastId = user.getId();
+                }
+            } while (slice.hasNext());
+            swap(() -> {
+                pending.forEach(keys -> building.put(keys.email(), keys.dni()));
+                current = building;
+                pending = null;
+            });
+            log.info("--> Membership index rebuilt with {} users, capacity {}", building.size(), capacity);
+        } catch (RuntimeException e) {
+            swap(() -> pending = null);
+            log.error("Error rebuilding the membership index: {}", e.getMessage());
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private void swap(Runnable change) {
+        generationLock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            generationLock.writeLock().unlock();
+        }
+    }
+
+    private void rebuildAsync() {
+        if (rebuilding.get()) return;
+        log.info("--> Membership index is full, rebuilding with a larger capacity");
+        CompletableFuture.runAsync(this::rebuild);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Keys(String email, String dni) {
+    }
+
+    /*
+     * The email and DNI filters of one generation, with the number of users put in them.
+     */
+    private static final class Filters {
+        private final BloomFilter<String> emails;
+        private final BloomFilter<String> dnis;
+        private final long capacity;
+        private long size;
+
+        private Filters(long capacity, double falsePositiveRate) {
+            this.emails = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), capacity, falsePositiveRate);
+            this.dnis = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), capacity, falsePositiveRate);
+            this.capacity = capacity;
+        }
+
+        /*
+         * Counts the user only if a value was not in the filters yet, so registering a value
+         * again does not bring the filters closer to saturation.
+         */
+        private void put(String email, String dni) {
+            boolean added = email != null && emails.put(normalize(email));
+            added |= dni != null && dnis.put(normalize(dni));
+            if (!added) return;
+            synchronized (this) {
+                size++;
+            }
+        }
+
+        private synchronized long size() {
+            return size;
+        }
+
+        private boolean isSaturated() {
+            return size() > capacity;
+        }
+    }
+}
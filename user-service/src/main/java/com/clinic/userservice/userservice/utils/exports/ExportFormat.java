@@ -0,0 +1,42 @@
+package com.clinic.userservice.userservice.utils.exports;
+
+/*
+ * Formats produced by the user directory export, with their media types and file extensions.
+ *
+ * @author caito
+ *
+ */
+public enum ExportFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String mediaType;
+    private final String extension;
+
+    ExportFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /*
+     * Resolves a format from its name or file extension, ignoring case.
+     *
+     * @param name the requested format, e.g. csv or ndjson
+     * @return the matching format, or null if it is not supported
+     */
+    public static ExportFormat fromName(String name) {
+        if (name == null) return null;
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name) || format.extension.equalsIgnoreCase(name)) return format;
+        }
+        return null;
+    }
+}
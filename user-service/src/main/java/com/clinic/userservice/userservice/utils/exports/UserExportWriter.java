@@ -0,0 +1,77 @@
+package com.clinic.userservice.userservice.utils.exports;
+
+import com.clinic.userservice.userservice.api.models.responses.UserResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+
+/*
+ * UserExportWriter class for writing the user directory export one user at a time.
+ * Output is buffered and nothing else is retained, so the memory used does not depend
+ * on the number of exported users.
+ * CSV output starts with a header row and lists the roles of a user separated by '|';
+ * NDJSON output carries one UserResponse object per line.
+ *
+ * @author caito
+ *
+ */
+public class UserExportWriter implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "id,fullName,email,address,phone,gender,dni,tuition,socialWork," +
+            "membershipNumber,plan,roles";
+
+    private final Writer writer;
+    private final ExportFormat format;
+    private final ObjectMapper objectMapper;
+
+    public UserExportWriter(OutputStream output, ExportFormat format, ObjectMapper objectMapper) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.format = format;
+        this.objectMapper = objectMapper;
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+    }
+
+    public void write(UserResponse user) throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(user));
+        } else {
+            writer.write(String.valueOf(user.getId()));
+            for (String value : new String[]{user.getFullName(), user.getEmail(), user.getAddress(), user.getPhone(),
+                    user.getGender(), user.getDni(), user.getTuition(), user.getSocialWork(),
+                    user.getMembershipNumber(), user.getPlan()}) {
+                writer.write(',');
+                writeCsv(value);
+            }
+            writer.write(',');
+            writeCsv(user.getRoles() == null ? null : user.getRoles().stream()
+                    .map(role -> role.getRol().name())
+                    .sorted()
+                    .collect(Collectors.joining("|")));
+        }
+        writer.write('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /*
+     * Writes a CSV value, quoting it when it contains a separator, a quote or a line break.
+     */
+    private void writeCsv(String value) throws IOException {
+        if (value == null) return;
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,37 @@
+package com.clinic.userservice.userservice.utils.imports;
+
+/*
+ * Formats accepted by the bulk user import, with their media types.
+ *
+ * @author caito
+ *
+ */
+public enum ImportFormat {
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final String mediaType;
+
+    ImportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /*
+     * Resolves the format of a request from its content type.
+     *
+     * @param contentType the content type of the request, parameters such as charset are ignored
+     * @return the matching format, or null if the content type is not supported
+     */
+    public static ImportFormat fromContentType(String contentType) {
+        if (contentType == null) return null;
+        String mediaType = contentType.split(";", 2)[0].trim();
+        for (ImportFormat format : values()) {
+            if (format.mediaType.equalsIgnoreCase(mediaType)) return format;
+        }
+        return null;
+    }
+}
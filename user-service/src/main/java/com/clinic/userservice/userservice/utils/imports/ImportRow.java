@@ -0,0 +1,26 @@
+package com.clinic.userservice.userservice.utils.imports;
+
+import com.clinic.userservice.userservice.api.models.requests.UserRequest;
+
+import java.util.List;
+
+/*
+ * One row of a bulk user import: the parsed request, or the reasons it could not be parsed.
+ *
+ * @param row      the 1-based number of the data row in the imported file
+ * @param request  the parsed user request, null if the row is malformed
+ * @param errors   the parsing errors of the row, empty if it was parsed
+ *
+ * @author caito
+ *
+ */
+public record ImportRow(long row, UserRequest request, List<String> errors) {
+
+    public static ImportRow parsed(long row, UserRequest request) {
+        return new ImportRow(row, request, List.of());
+    }
+
+    public static ImportRow malformed(long row, String error) {
+        return new ImportRow(row, null, List.of(error));
+    }
+}
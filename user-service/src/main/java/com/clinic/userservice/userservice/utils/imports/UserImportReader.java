@@ -0,0 +1,199 @@
+package com.clinic.userservice.userservice.utils.imports;
+
+import com.clinic.commonservice.enums.RoleName;
+import com.clinic.commonservice.exceptions.BadRequestException;
+import com.clinic.userservice.userservice.api.models.requests.UserRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/*
+ * UserImportReader class for reading a bulk user import one row at a time.
+ * Only the current record is kept in memory, so files of any size can be imported.
+ * CSV files need a header row naming the UserRequest fields (fullName, email, ..., role), and may
+ * quote values containing commas, quotes or line breaks (RFC 4180), as the user export writes them;
+ * NDJSON files carry one UserRequest object per line.
+ *
+ * @author caito
+ *
+ */
+public class UserImportReader implements Iterator<ImportRow>, Closeable {
+    private static final List<String> CSV_COLUMNS = List.of("fullName", "email", "address", "phone", "gender",
+            "dni", "tuition", "socialWork", "membershipNumber", "plan", "role");
+    // a quoted value left open would otherwise read the rest of the file into one record
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private final BufferedReader reader;
+    private final ImportFormat format;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private String nextLine;
+    private long row;
+
+    public UserImportReader(InputStream input, ImportFormat format, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        this.format = format;
+        this.objectMapper = objectMapper;
+        if (format == ImportFormat.CSV) readHeader();
+        this.nextLine = readRecord();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextLine != null;
+    }
+
+    @Override
+    public ImportRow next() {
+        if (nextLine == null) throw new NoSuchElementException();
+        String line = nextLine;
+        row++;
+        nextLine = readRecord();
+        return format == ImportFormat.CSV ? parseCsv(line) : parseJson(line);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readHeader() {
+        String header = readRecord();
+        if (header == null) throw new BadRequestException(List.of("CSV header row is required"));
+        List<String> names = splitCsv(header);
+        if (names == null) throw new BadRequestException(List.of("Malformed CSV header row"));
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i).trim();
+            for (String column : CSV_COLUMNS) {
+                if (column.equalsIgnoreCase(name)) columns.put(column, i);
+            }
+        }
+        if (!columns.containsKey("email")) {
+            throw new BadRequestException(List.of("CSV header must contain an email column"));
+        }
+    }
+
+    private ImportRow parseCsv(String line) {
+        List<String> values = splitCsv(line);
+        if (values == null) return ImportRow.malformed(row, "Unterminated quoted value");
+        UserRequest request = UserRequest.builder()
+                .fullName(column(values, "fullName"))
+                .email(column(values, "email"))
+                .address(column(values, "address"))
+                .phone(column(values, "phone"))
+                .gender(column(values, "gender"))
+                .dni(column(values, "dni"))
+                .tuition(column(values, "tuition"))
+                .socialWork(column(values, "socialWork"))
+                .membershipNumber(column(values, "membershipNumber"))
+                .plan(column(values, "plan"))
+                .build();
+        String role = column(values, "role");
+        if (role != null && !role.isEmpty()) {
+            try {
+                request.setRole(RoleName.valueOf(role.trim()));
+            } catch (IllegalArgumentException e) {
+                return ImportRow.malformed(row, "Invalid role: " + role);
+            }
+        }
+        return ImportRow.parsed(row, request);
+    }
+
+    private ImportRow parseJson(String line) {
+        try {
+            return ImportRow.parsed(row, objectMapper.readValue(line, UserRequest.class));
+        } catch (JsonProcessingException e) {
+            return ImportRow.malformed(row, "Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private String column(List<String> values, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.size()) return null;
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /*
+     * Reads the next record: a line of NDJSON, or a CSV record, whose quoted values may span
+     * line breaks. While a quote is open the following lines belong to the same record and are
+     * joined with \n. A record still open at the end of the file or past MAX_RECORD_LENGTH is
+     * returned as it is, and reported as an unterminated quoted value.
+     */
+    private String readRecord() {
+        String line = readDataLine();
+        if (format != ImportFormat.CSV || line == null || !oddQuotes(line)) return line;
+        StringBuilder record = new StringBuilder(line);
+        try {
+            boolean open = true;
+            while (open && record.length() <= MAX_RECORD_LENGTH) {
+                String next = reader.readLine();
+                if (next == null) break;
+                record.append('\n').append(next);
+                open ^= oddQuotes(next);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return record.toString();
+    }
+
+    /*
+     * An escaped quote ("") counts twice, so a line leaves a quote open when its number of quotes is odd.
+     */
+    private static boolean oddQuotes(String line) {
+        int quotes = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') quotes++;
+        }
+        return quotes % 2 == 1;
+    }
+
+    private String readDataLine() {
+        try {
+            String line;
+            do {
+                line = reader.readLine();
+            } while (line != null && line.isBlank());
+            return line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * Splits a CSV record honouring double quoted values and escaped quotes ("").
+     * Returns null if a quoted value is not terminated.
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) return null;
+        values.add(value.toString());
+        return values;
+    }
+}
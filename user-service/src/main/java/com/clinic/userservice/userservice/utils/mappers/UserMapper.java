@@ -1,9 +1,12 @@
 package com.clinic.userservice.userservice.utils.mappers;
 
 import com.clinic.userservice.userservice.api.models.requests.UserRequest;
+import com.clinic.userservice.userservice.api.models.responses.RoleResponse;
 import com.clinic.userservice.userservice.api.models.responses.UserResponse;
 import com.clinic.userservice.userservice.persistence.entities.UserApp;
+import com.clinic.userservice.userservice.persistence.projections.UserView;
 
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -58,4 +61,27 @@ public class UserMapper {
                 .roles(userApp.getRoles().stream().map(RoleMapper::mapToDto).collect(Collectors.toSet()))
                 .build();
     }
+
+    /** Maps a UserView projection and its roles to a UserResponse DTO.
+     *
+     * @param view  the UserView projection to be mapped
+     * @param roles the roles of the user
+     * @return the corresponding UserResponse DTO
+     */
+    public static UserResponse mapToDto(UserView view, Set<RoleResponse> roles) {
+        return UserResponse.builder()
+                .id(view.id())
+                .fullName(view.fullName())
+                .email(view.email())
+                .address(view.address())
+                .phone(view.phone())
+                .gender(view.gender())
+                .dni(view.dni())
+                .tuition(view.tuition())
+                .socialWork(view.socialWork())
+                .membershipNumber(view.membershipNumber())
+                .plan(view.plan())
+                .roles(roles)
+                .build();
+    }
 }
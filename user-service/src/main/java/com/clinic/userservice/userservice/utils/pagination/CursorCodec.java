@@ -0,0 +1,51 @@
+package com.clinic.userservice.userservice.utils.pagination;
+
+import com.clinic.commonservice.exceptions.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/*
+ * CursorCodec class for encoding and decoding the opaque continuation tokens
+ * used by keyset pagination. A token carries the last id returned by the previous slice.
+ *
+ * @author caito
+ *
+ */
+public class CursorCodec {
+    private static final String PREFIX = "v1:";
+    private static final String INVALID_CURSOR = "Invalid cursor";
+
+    /*
+     * Encodes the last id of a slice into an opaque cursor.
+     *
+     * @param lastId the id of the last element returned
+     * @return the opaque cursor
+     */
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+     * Decodes an opaque cursor into the last id of the previous slice.
+     * A null or empty cursor means the first slice.
+     *
+     * @param cursor the opaque cursor
+     * @return the last id of the previous slice, 0 for the first slice
+     * @throws BadRequestException if the cursor is malformed
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) return 0L;
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) throw new BadRequestException(List.of(INVALID_CURSOR));
+            long lastId = Long.parseLong(value.substring(PREFIX.length()));
+            if (lastId < 0) throw new BadRequestException(List.of(INVALID_CURSOR));
+            return lastId;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(List.of(INVALID_CURSOR));
+        }
+    }
+}
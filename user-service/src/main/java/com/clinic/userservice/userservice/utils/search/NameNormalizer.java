@@ -0,0 +1,75 @@
+package com.clinic.userservice.userservice.utils.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * NameNormalizer class for turning person names into search tokens and trigrams.
+ * Folds case and accents (so "Peña" and "pena", or "José" and "jose", are the same token)
+ * and treats anything that is not a letter or a digit as a separator.
+ *
+ * @author caito
+ *
+ */
+public class NameNormalizer {
+    public static final int GRAM = 3;
+
+    /*
+     * Normalizes a name into lower case, accent free tokens.
+     *
+     * @param name the name to normalize
+     * @return the tokens of the name, empty if the name is null or blank
+     */
+    public static String[] tokens(String name) {
+        if (name == null || name.isBlank()) return new String[0];
+        String folded = Normalizer.normalize(name, Normalizer.Form.NFD);
+        StringBuilder token = new StringBuilder();
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (!token.isEmpty()) tokens.add(token.toString());
+        return tokens.toArray(String[]::new);
+    }
+
+    /*
+     * Returns the trigrams stored in the index for a name token.
+     * The token is padded with a blank on both sides so prefixes and suffixes get their own grams.
+     *
+     * @param token a normalized token
+     * @return the trigrams of the padded token
+     */
+    public static List<String> indexGrams(String token) {
+        return grams(" " + token + " ");
+    }
+
+    /*
+     * Returns the trigrams a name token must contain to match a query token.
+     * Tokens shorter than a trigram are looked up as prefixes; single characters have no grams.
+     *
+     * @param token a normalized query token
+     * @return the trigrams required by the query token
+     */
+    public static List<String> queryGrams(String token) {
+        if (token.length() < GRAM - 1) return List.of();
+        if (token.length() < GRAM) return List.of(" " + token);
+        return grams(token);
+    }
+
+    private static List<String> grams(String value) {
+        List<String> grams = new ArrayList<>(value.length());
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
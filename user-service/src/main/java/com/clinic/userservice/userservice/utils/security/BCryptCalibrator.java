@@ -0,0 +1,48 @@
+package com.clinic.userservice.userservice.utils.security;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.time.Duration;
+
+/*
+ * BCryptCalibrator class for choosing the BCrypt work factor on the current hardware.
+ * Each extra unit of strength doubles the hashing time, so timing a few hashes at the
+ * minimum strength is enough to estimate the time of the others.
+ *
+ * @author caito
+ *
+ */
+public class BCryptCalibrator {
+    private static final int SAMPLES = 3;
+
+    /*
+     * The chosen strength and the estimated time of one hash at that strength.
+     */
+    public record Calibration(int strength, Duration estimatedHashTime) {
+    }
+
+    /*
+     * Returns the highest strength whose estimated hashing time does not exceed the target.
+     *
+     * @param target      the target time of one hash
+     * @param minStrength the lowest strength accepted, chosen even if it is slower than the target
+     * @param maxStrength the highest strength accepted
+     * @return the calibrated strength
+     */
+    public static Calibration calibrate(Duration target, int minStrength, int maxStrength) {
+        BCrypt.hashpw("warm-up", BCrypt.gensalt(4));
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", BCrypt.gensalt(minStrength));
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        int strength = minStrength;
+        long estimate = best;
+        while (strength < maxStrength && estimate * 2 <= target.toNanos()) {
+            strength++;
+            estimate *= 2;
+        }
+        return new Calibration(strength, Duration.ofNanos(estimate));
+    }
+}
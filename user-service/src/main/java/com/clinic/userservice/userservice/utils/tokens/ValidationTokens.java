@@ -0,0 +1,33 @@
+package com.clinic.userservice.userservice.utils.tokens;
+
+import com.clinic.userservice.userservice.persistence.entities.ValidationToken;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+
+/*
+ * ValidationTokens class for generating the account activation tokens sent to new users.
+ *
+ * @author caito
+ *
+ */
+public class ValidationTokens {
+    private static final int MIN = 100000;
+    private static final int MAX = 999999;
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    /*
+     * Generates a six digit validation token for the given email, valid for one day.
+     *
+     * @param email the email the token belongs to
+     * @return a new, not yet persisted ValidationToken
+     */
+    public static ValidationToken generate(String email) {
+        int token = SECURE_RANDOM.nextInt((MAX - MIN) + 1) + MIN;
+        return ValidationToken.builder()
+                .token(String.valueOf(token))
+                .email(email)
+                .expiryDate(LocalDateTime.now().plusDays(1))
+                .build();
+    }
+}
@@ -0,0 +1,33 @@
+package com.clinic.userservice.userservice.utils.transactions;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+ * TransactionHooks class for running side effects (index updates, cache evictions,
+ * broker messages) only once the surrounding transaction has committed.
+ *
+ * @author caito
+ *
+ */
+public class TransactionHooks {
+
+    /*
+     * Runs the given action once the current transaction commits,
+     * or immediately when there is no active transaction.
+     *
+     * @param action the action to run
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,34 @@
+package com.clinic.userservice.userservice.utils.validators;
+
+import com.clinic.commonservice.validation.Rule;
+import com.clinic.commonservice.validation.Validator;
+import com.clinic.userservice.userservice.api.models.requests.UserEnabledRequest;
+
+import java.util.List;
+
+/*
+ * UserEnabledRequestValidator class for validating the password chosen when an account is enabled.
+ *
+ * @author caito
+ *
+ */
+public class UserEnabledRequestValidator {
+
+    private static final Validator<UserEnabledRequest, Void> VALIDATOR = Validator.<UserEnabledRequest, Void>builder()
+            .field(UserEnabledRequest::getPassword, Rule.required("password must not be null or empty"),
+                    Rule.password("Invalid password"))
+            .field(UserEnabledRequest::getConfirmPassword, Rule.required("confirmPassword must not be null or empty"))
+            .check((request, none) -> request.getPassword() == null || request.getConfirmPassword() == null
+                    || request.getPassword().equals(request.getConfirmPassword()), "Passwords do not match")
+            .build();
+
+    /*
+     * Validates the passwords of the request.
+     *
+     * @param request the request to enable an account
+     * @return the validation errors, empty if the request is valid
+     */
+    public static List<String> validate(UserEnabledRequest request) {
+        return VALIDATOR.validate(request, null);
+    }
+}
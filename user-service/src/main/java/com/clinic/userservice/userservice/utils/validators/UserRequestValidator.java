@@ -0,0 +1,66 @@
+package com.clinic.userservice.userservice.utils.validators;
+
+import com.clinic.commonservice.validation.Rule;
+import com.clinic.commonservice.validation.Validator;
+import com.clinic.userservice.userservice.api.models.requests.UserRequest;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/*
+ * UserRequestValidator class for validating the fields of a new or updated user.
+ * Shared by the single user registration, the user update and the bulk import.
+ * Registered emails and DNIs are only looked up for values that are present and well formed.
+ *
+ * @author caito
+ *
+ */
+public class UserRequestValidator {
+
+    private record Registered(Predicate<String> email, Predicate<String> dni) {
+    }
+
+    private static final Validator<UserRequest, Registered> NEW_USER = Validator.<UserRequest, Registered>builder()
+            .field(UserRequest::getFullName, Rule.required("Full name is required."))
+            .field(UserRequest::getEmail, Rule.required("Email is required."),
+                    Rule.email("Invalid email format."),
+                    Rule.of((email, registered) -> !registered.email().test(email), "Email already exists."))
+            .field(UserRequest::getAddress, Rule.required("Address is required."))
+            .field(UserRequest::getPhone, Rule.required("Phone number is required."))
+            .field(UserRequest::getGender, Rule.required("Gender is required."))
+            .field(UserRequest::getDni, Rule.required("DNI is required."),
+                    Rule.of((dni, registered) -> !registered.dni().test(dni), "DNI already exists."))
+            .build();
+
+    private static final Validator<UserRequest, Registered> UPDATE = Validator.<UserRequest, Registered>builder()
+            .optionalField(UserRequest::getEmail, Rule.email("Invalid email"),
+                    Rule.of((email, registered) -> !registered.email().test(email), "Email already exists"))
+            .optionalField(UserRequest::getDni,
+                    Rule.of((dni, registered) -> !registered.dni().test(dni), "DNI already exists"))
+            .build();
+
+    /*
+     * Validates the user request data of a new user.
+     *
+     * @param request    the user request to validate
+     * @param emailTaken tells whether an email is already registered
+     * @param dniTaken   tells whether a DNI is already registered
+     * @return the validation errors, an immutable empty list if the request is valid
+     */
+    public static List<String> validate(UserRequest request, Predicate<String> emailTaken, Predicate<String> dniTaken) {
+        return NEW_USER.validate(request, new Registered(emailTaken, dniTaken));
+    }
+
+    /*
+     * Validates the fields present in the update of a user; absent fields are left unchanged.
+     *
+     * @param request    the user request with the fields to update
+     * @param emailTaken tells whether an email is registered to another user
+     * @param dniTaken   tells whether a DNI is registered to another user
+     * @return the validation errors, empty if the request is valid
+     */
+    public static List<String> validateUpdate(UserRequest request, Predicate<String> emailTaken,
+                                              Predicate<String> dniTaken) {
+        return UPDATE.validate(request, new Registered(emailTaken, dniTaken));
+    }
+}
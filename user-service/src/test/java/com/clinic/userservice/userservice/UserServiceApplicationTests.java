@@ -1,13 +1,26 @@
 package com.clinic.userservice.userservice;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
 class UserServiceApplicationTests {
+    @Autowired
+    private ApplicationContext context;
 
     @Test
     void contextLoads() {
     }
 
+    @Test
+    void applicationTaskExecutorIsNotReplacedByThePasswordHashingPool() {
+        assertThat(context.containsBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME))
+                .isTrue();
+    }
+
 }
@@ -0,0 +1,57 @@
+package com.clinic.userservice.userservice.configs.metrics;
+
+import com.clinic.commonservice.exceptions.NotFoundException;
+import com.clinic.userservice.userservice.services.contracts.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureObservability(tracing = false)
+class UserServiceMetricsAspectTest {
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private PrometheusMeterRegistry prometheusMeterRegistry;
+
+    @Test
+    void tagsTheCallsByMethodAndOutcome() {
+        long before = count("getUsers", "success");
+        userService.getUsers(0, 10);
+        assertThrows(NotFoundException.class, () -> userService.getUserByEmail("nobody@clinic.test"));
+
+        assertEquals(before + 1, count("getUsers", "success"));
+        Timer notFound = meterRegistry.find(UserServiceMetricsAspect.TIMER)
+                .tags("method", "getUserByEmail", "outcome", "client_error", "exception", "NotFoundException")
+                .timer();
+        assertNotNull(notFound);
+        assertEquals(1, notFound.count());
+    }
+
+    @Test
+    void exposesHistogramBucketsInPrometheusFormat() {
+        userService.getUsers(0, 10);
+
+        String scrape = prometheusMeterRegistry.scrape();
+        assertTrue(scrape.contains("users_service_seconds_bucket{"), "users.service histogram");
+        assertTrue(scrape.contains("spring_data_repository_invocations_seconds_bucket{"), "repository histogram");
+    }
+
+    private long count(String method, String outcome) {
+        Timer timer = meterRegistry.find(UserServiceMetricsAspect.TIMER)
+                .tags("method", method, "outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,60 @@
+package com.clinic.userservice.userservice.configs.tracing;
+
+import com.clinic.commonservice.tracing.Correlation;
+import com.clinic.commonservice.tracing.StageSpan;
+import com.clinic.commonservice.tracing.StageTracer;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CorrelationIdFilterTest {
+    private final List<StageSpan> spans = new ArrayList<>();
+    private final CorrelationIdFilter filter = new CorrelationIdFilter(new StageTracer("user-service", List.of(spans::add)));
+
+    @Test
+    void recordsASynchronousRequestWhenItReturns() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users");
+        request.addHeader(Correlation.HTTP_HEADER, "req-1");
+        List<String> seen = new ArrayList<>();
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> seen.add(Correlation.current()));
+
+        assertEquals(List.of("req-1"), seen);
+        assertEquals(1, spans.size());
+        assertEquals("req-1", spans.get(0).correlationId());
+        assertNull(Correlation.current());
+    }
+
+    @Test
+    void recordsAnAsynchronousRequestWhenItsResponseCompletes() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/stream");
+        request.setAsyncSupported(true);
+        request.addHeader(Correlation.HTTP_HEADER, "req-2");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> req.startAsync());
+        assertTrue(spans.isEmpty(), "the span ended when the request went async");
+
+        // the async dispatch writes the result with the id of the request
+        List<String> seen = new ArrayList<>();
+        request.setDispatcherType(DispatcherType.ASYNC);
+        Thread.sleep(20);
+        filter.doFilter(request, response, (req, res) -> seen.add(Correlation.current()));
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+
+        assertEquals(List.of("req-2"), seen);
+        assertEquals(1, spans.size());
+        assertEquals("req-2", spans.get(0).correlationId());
+        assertTrue(spans.get(0).duration().compareTo(Duration.ofMillis(20)) >= 0);
+    }
+}
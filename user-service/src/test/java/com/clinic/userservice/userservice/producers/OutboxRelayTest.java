@@ -0,0 +1,189 @@
+package com.clinic.userservice.userservice.producers;
+
+import com.clinic.commonservice.models.RegisterUser;
+import com.clinic.commonservice.tracing.StageTracer;
+import com.clinic.userservice.userservice.persistence.entities.OutboxEvent;
+import com.clinic.userservice.userservice.persistence.enums.OutboxStatus;
+import com.clinic.userservice.userservice.persistence.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// its own database, as the relay publishes every pending event it finds
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;DB_CLOSE_DELAY=-1")
+class OutboxRelayTest {
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private StageTracer stageTracer;
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+    private final List<Boolean> inTransaction = new CopyOnWriteArrayList<>();
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepository.deleteAll();
+        relay = new OutboxRelay(outboxEventRepository, kafkaTemplate, transactionTemplate, objectMapper, stageTracer,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(relay, "batchSize", 500);
+        ReflectionTestUtils.setField(relay, "sendTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(relay, "claimTimeout", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(relay, "maxAttempts", MAX_ATTEMPTS);
+        ReflectionTestUtils.setField(relay, "retryBackoff", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(relay, "maxRetryBackoff", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(relay, "lagRefreshInterval", Duration.ofSeconds(5));
+        doAnswer(invocation -> inTransaction.add(TransactionSynchronizationManager.isActualTransactionActive()))
+                .when(kafkaTemplate).flush();
+    }
+
+    @Test
+    void publishesOutsideAnyTransactionAndMarksTheEventsSent() throws Exception {
+        List<Long> ids = List.of(save(event("ana")).getId(), save(event("bruno")).getId());
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            inTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return CompletableFuture.completedFuture(null);
+        });
+
+        relay.relay();
+
+        assertEquals(List.of(false, false, false), inTransaction, "a transaction was open while sending");
+        for (OutboxEvent event : outboxEventRepository.findAllById(ids)) {
+            assertEquals(OutboxStatus.SENT, event.getStatus());
+            assertNotNull(event.getSentAt());
+            assertNull(event.getClaimedAt());
+        }
+    }
+
+    @Test
+    void backsOffAndReleasesTheBatchWhileTheBrokerIsDown() throws Exception {
+        OutboxEvent first = save(event("ana"));
+        OutboxEvent second = save(event("bruno"));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenThrow(new KafkaException("broker down"));
+
+        relay.relay();
+
+        verify(kafkaTemplate, times(1)).send(any(ProducerRecord.class));
+        OutboxEvent failed = outboxEventRepository.findById(first.getId()).orElseThrow();
+        assertEquals(OutboxStatus.PENDING, failed.getStatus());
+        assertEquals(1, failed.getAttempts());
+        assertEquals("broker down", failed.getLastError());
+        assertTrue(failed.getNextAttemptAt().isAfter(Instant.now()));
+        assertNull(failed.getClaimedAt());
+        OutboxEvent released = outboxEventRepository.findById(second.getId()).orElseThrow();
+        assertEquals(0, released.getAttempts());
+        assertNull(released.getClaimedAt());
+
+        // the failed event is not retried before its backoff; the released one is tried next
+        relay.relay();
+        verify(kafkaTemplate, times(2)).send(any(ProducerRecord.class));
+        assertEquals(1, outboxEventRepository.findById(first.getId()).orElseThrow().getAttempts());
+        assertEquals(1, outboxEventRepository.findById(second.getId()).orElseThrow().getAttempts());
+    }
+
+    @Test
+    void failsPoisonPayloadsAtOnceAndPublishesTheRest() throws Exception {
+        OutboxEvent unknownType = event("ana");
+        unknownType.setPayloadType("UserApp");
+        OutboxEvent invalidJson = event("bruno");
+        invalidJson.setPayload("{");
+        save(unknownType);
+        save(invalidJson);
+        OutboxEvent valid = save(event("carla"));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        verify(kafkaTemplate, times(1)).send(any(ProducerRecord.class));
+        for (OutboxEvent poison : outboxEventRepository.findAllById(List.of(unknownType.getId(), invalidJson.getId()))) {
+            assertEquals(OutboxStatus.FAILED, poison.getStatus());
+            assertEquals(1, poison.getAttempts());
+            assertNotNull(poison.getLastError());
+        }
+        assertEquals(OutboxStatus.SENT, outboxEventRepository.findById(valid.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void givesUpAfterTheMaximumNumberOfAttempts() throws Exception {
+        OutboxEvent event = event("ana");
+        event.setAttempts(MAX_ATTEMPTS - 1);
+        save(event);
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new KafkaException("not acknowledged")));
+
+        relay.relay();
+
+        OutboxEvent failed = outboxEventRepository.findById(event.getId()).orElseThrow();
+        assertEquals(OutboxStatus.FAILED, failed.getStatus());
+        assertEquals(MAX_ATTEMPTS, failed.getAttempts());
+    }
+
+    @Test
+    void leavesRowsClaimedByAnotherRelayUntilTheClaimExpires() throws Exception {
+        OutboxEvent claimed = event("ana");
+        claimed.setClaimedAt(Instant.now());
+        OutboxEvent abandoned = event("bruno");
+        abandoned.setClaimedAt(Instant.now().minusSeconds(180));
+        save(claimed);
+        save(abandoned);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        verify(kafkaTemplate, times(1)).send(any(ProducerRecord.class));
+        OutboxEvent stillClaimed = outboxEventRepository.findById(claimed.getId()).orElseThrow();
+        assertEquals(OutboxStatus.PENDING, stillClaimed.getStatus());
+        assertNotNull(stillClaimed.getClaimedAt());
+        assertEquals(OutboxStatus.SENT, outboxEventRepository.findById(abandoned.getId()).orElseThrow().getStatus());
+        assertFalse(inTransaction.contains(true));
+    }
+
+    private OutboxEvent event(String name) throws Exception {
+        String email = name + "@clinic.test";
+        return OutboxEvent.builder()
+                .topic("userTopic")
+                .messageKey(email)
+                .payloadType(RegisterUser.class.getSimpleName())
+                .payload(objectMapper.writeValueAsString(new RegisterUser(email, name, "token-" + name)))
+                .status(OutboxStatus.PENDING)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private OutboxEvent save(OutboxEvent event) {
+        return outboxEventRepository.save(event);
+    }
+}
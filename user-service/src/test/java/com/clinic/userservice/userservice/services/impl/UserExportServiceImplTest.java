@@ -0,0 +1,115 @@
+package com.clinic.userservice.userservice.services.impl;
+
+import com.clinic.commonservice.enums.RoleName;
+import com.clinic.userservice.userservice.api.models.requests.UserExportFilter;
+import com.clinic.userservice.userservice.persistence.entities.Role;
+import com.clinic.userservice.userservice.persistence.entities.UserApp;
+import com.clinic.userservice.userservice.persistence.repository.RoleRepository;
+import com.clinic.userservice.userservice.persistence.repository.UserRepository;
+import com.clinic.userservice.userservice.services.contracts.UserExportService;
+import com.clinic.userservice.userservice.utils.exports.ExportFormat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserExportServiceImplTest {
+    private static final String PLAN = "export-plan";
+
+    @Autowired
+    private UserExportService userExportService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void seed() {
+        if (userRepository.findByEmail("exported0@clinic.test").isPresent()) return;
+        Role admin = roleRepository.findByRole(RoleName.ROLE_ADMIN)
+                .orElseGet(() -> roleRepository.save(Role.builder().role(RoleName.ROLE_ADMIN).build()));
+        Role user = roleRepository.findByRole(RoleName.ROLE_USER)
+                .orElseGet(() -> roleRepository.save(Role.builder().role(RoleName.ROLE_USER).build()));
+        userRepository.saveAll(List.of(
+                exported(0, "Ana Diaz", "Street 1", Set.of(user)),
+                exported(1, "Bruno Paz", "Street 2, \"B\"", Set.of(user, admin)),
+                exported(2, "Carla Ruiz", "Street 3", Set.of())));
+    }
+
+    @Test
+    void writesTheFilteredUsersAsCsvWithTheirRoles() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long exported = userExportService.exportUsers(UserExportFilter.builder().plan(PLAN).build(),
+                ExportFormat.CSV, output);
+
+        List<String> lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, exported);
+        assertEquals(4, lines.size());
+        assertEquals("id,fullName,email,address,phone,gender,dni,tuition,socialWork,membershipNumber,plan,roles",
+                lines.getFirst());
+        assertEquals(",Ana Diaz,exported0@clinic.test,Street 1,555-0,F,70000000,,,,export-plan,ROLE_USER",
+                lines.get(1).substring(lines.get(1).indexOf(',')));
+        assertEquals(",Bruno Paz,exported1@clinic.test,\"Street 2, \"\"B\"\"\",555-1,F,70000001,,,,export-plan," +
+                "ROLE_ADMIN|ROLE_USER", lines.get(2).substring(lines.get(2).indexOf(',')));
+        assertEquals(",Carla Ruiz,exported2@clinic.test,Street 3,555-2,F,70000002,,,,export-plan,",
+                lines.get(3).substring(lines.get(3).indexOf(',')));
+    }
+
+    @Test
+    void streamsTheExportWithItsOwnAsyncTimeout() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/clinical/users/export").param("format", "ndjson")
+                        .param("plan", PLAN))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertEquals(Duration.ofMinutes(30).toMillis(), result.getRequest().getAsyncContext().getTimeout());
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"users.ndjson\""))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(3, body.lines().count());
+    }
+
+    @Test
+    void otherAsyncEndpointsKeepTheDefaultTimeout() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/clinical/reactive/users/by-email/exported0@clinic.test"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertEquals(Duration.ofSeconds(30).toMillis(), result.getRequest().getAsyncContext().getTimeout());
+    }
+
+    private static UserApp exported(int i, String fullName, String address, Set<Role> roles) {
+        return UserApp.builder()
+                .fullName(fullName)
+                .email("exported" + i + "@clinic.test")
+                .address(address)
+                .phone("555-" + i)
+                .gender("F")
+                .dni(String.valueOf(70_000_000 + i))
+                .plan(PLAN)
+                .roles(roles)
+                .build();
+    }
+}
@@ -0,0 +1,90 @@
+package com.clinic.userservice.userservice.services.impl;
+
+import com.clinic.commonservice.enums.RoleName;
+import com.clinic.userservice.userservice.api.models.responses.ImportReportResponse;
+import com.clinic.userservice.userservice.api.models.responses.ImportRowError;
+import com.clinic.userservice.userservice.persistence.entities.Role;
+import com.clinic.userservice.userservice.persistence.entities.UserApp;
+import com.clinic.userservice.userservice.persistence.repository.RoleRepository;
+import com.clinic.userservice.userservice.persistence.repository.UserRepository;
+import com.clinic.userservice.userservice.services.contracts.UserImportService;
+import com.clinic.userservice.userservice.services.contracts.UserUniquenessService;
+import com.clinic.userservice.userservice.utils.imports.ImportFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// IGNORECASE makes H2 compare and index strings ignoring case, as the MySQL collation does
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:imports;MODE=MySQL;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1")
+class UserImportServiceImplTest {
+    private static final String HEADER = "fullName,email,address,phone,gender,dni\n";
+
+    @Autowired
+    private UserImportService userImportService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private UserUniquenessService userUniquenessService;
+
+    @Test
+    void rejectsOnlyTheRowsWhoseEmailDiffersByCase() {
+        roleRepository.save(Role.builder().role(RoleName.ROLE_USER).build());
+        userRepository.save(UserApp.builder().fullName("Existing User").email("Existing@X.com").dni("60000000").build());
+        userUniquenessService.register("Existing@X.com", "60000000");
+
+        ImportReportResponse report = importCsv(HEADER +
+                "Ana Diaz,A@x.com,Street 1,555-1,F,60000001\n" +
+                "Ana Duplicate,a@x.com,Street 2,555-2,F,60000002\n" +
+                "Old Spelling,existing@x.COM,Street 3,555-3,M,60000003\n" +
+                "Bruno Paz,bruno@x.com,Street 4,555-4,M,60000004\n");
+
+        assertEquals(4, report.getTotal());
+        assertEquals(2, report.getImported());
+        assertEquals(List.of(2L, 3L), report.getErrors().stream().map(ImportRowError::getRow).toList());
+        report.getErrors().forEach(error -> assertTrue(error.getMessages().contains("Email already exists.")));
+        assertTrue(userRepository.findByEmail("bruno@x.com").isPresent());
+    }
+
+    @Test
+    void failsOnlyTheRowConflictingWithAConcurrentInsertAndKeepsValidationErrors() {
+        roleRepository.findByRole(RoleName.ROLE_USER)
+                .orElseGet(() -> roleRepository.save(Role.builder().role(RoleName.ROLE_USER).build()));
+        // saved behind the membership index, as another instance would, so the chunk check misses it
+        userRepository.save(UserApp.builder().fullName("Concurrent User").email("concurrent@y.com").dni("61000003").build());
+
+        ImportReportResponse report = importCsv(HEADER +
+                "Carla Ruiz,carla@y.com,Street 1,555-1,F,61000001\n" +
+                "No Email,,Street 2,555-2,M,61000002\n" +
+                "Late Insert,late@y.com,Street 3,555-3,M,61000003\n" +
+                "Dario Sosa,dario@y.com,Street 4,555-4,M,61000004\n" +
+                "Elena Vera,elena@y.com,Street 5,555-5,F,61000005\n");
+
+        assertEquals(5, report.getTotal());
+        assertEquals(3, report.getImported());
+        assertEquals(2, report.getFailed());
+        List<ImportRowError> errors = report.getErrors().stream()
+                .sorted(Comparator.comparingLong(ImportRowError::getRow)).toList();
+        assertEquals(List.of(2L, 3L), errors.stream().map(ImportRowError::getRow).toList());
+        assertEquals(List.of("Email is required."), errors.get(0).getMessages());
+        // the failed attempt registered the DNI, so the retry finds the conflict while validating
+        assertEquals(List.of("DNI already exists."), errors.get(1).getMessages());
+        assertTrue(userRepository.findByEmail("carla@y.com").isPresent());
+        assertTrue(userRepository.findByEmail("elena@y.com").isPresent());
+        assertTrue(userRepository.findByEmail("late@y.com").isEmpty());
+    }
+
+    private ImportReportResponse importCsv(String csv) {
+        return userImportService.importUsers(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                ImportFormat.CSV);
+    }
+}
@@ -0,0 +1,128 @@
+package com.clinic.userservice.userservice.services.impl;
+
+import com.clinic.commonservice.enums.RoleName;
+import com.clinic.commonservice.exceptions.NotFoundException;
+import com.clinic.userservice.userservice.api.models.responses.UserResponse;
+import com.clinic.userservice.userservice.configs.cache.CacheConfig;
+import com.clinic.userservice.userservice.persistence.entities.Role;
+import com.clinic.userservice.userservice.persistence.entities.UserApp;
+import com.clinic.userservice.userservice.persistence.repository.RoleRepository;
+import com.clinic.userservice.userservice.persistence.repository.UserRepository;
+import com.clinic.userservice.userservice.services.contracts.UserReadService;
+import com.clinic.userservice.userservice.services.contracts.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserReadServiceImplTest {
+    private static final int USERS = 30;
+
+    @Autowired
+    private UserReadService userReadService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void seed() {
+        if (userRepository.findByEmail("reader0@clinic.test").isPresent()) return;
+        Role admin = roleRepository.findByRole(RoleName.ROLE_ADMIN)
+                .orElseGet(() -> roleRepository.save(Role.builder().role(RoleName.ROLE_ADMIN).build()));
+        Role user = roleRepository.findByRole(RoleName.ROLE_USER)
+                .orElseGet(() -> roleRepository.save(Role.builder().role(RoleName.ROLE_USER).build()));
+        List<UserApp> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(UserApp.builder()
+                    .fullName("Reader " + i)
+                    .email("reader" + i + "@clinic.test")
+                    .dni(String.valueOf(20_000_000 + i))
+                    .roles(i % 2 == 0 ? Set.of(user) : Set.of(user, admin))
+                    .build());
+        }
+        userRepository.saveAll(users);
+    }
+
+    @Test
+    void readsTheSamePayloadAsTheBlockingService() {
+        UserResponse blocking = userService.getUserByEmail("reader1@clinic.test");
+        cacheManager.getCache(CacheConfig.USERS_BY_EMAIL).clear();
+        cacheManager.getCache(CacheConfig.USERS_BY_DNI).clear();
+
+        assertEquals(blocking, userReadService.getUserByEmail("reader1@clinic.test").block());
+        assertEquals(blocking, userReadService.getUserByDni(blocking.getDni()).block());
+        assertEquals(2, blocking.getRoles().size());
+        // served from the cached entry whatever the case, H2 compares emails with case
+        userReadService.getUserByEmail("reader1@clinic.test").block();
+        assertEquals(blocking, userReadService.getUserByEmail("Reader1@Clinic.TEST").block());
+    }
+
+    @Test
+    void streamsUsersInIdOrderFromTheGivenOne() {
+        long before = userRepository.findByEmail("reader0@clinic.test").orElseThrow().getId() - 1;
+        List<UserResponse> first = userReadService.streamUsers(before, 10).collectList().block();
+        List<UserResponse> next = userReadService.streamUsers(first.getLast().getId(), USERS - 10)
+                .collectList().block();
+
+        List<UserResponse> all = new ArrayList<>(first);
+        all.addAll(next);
+        assertEquals(USERS, all.size());
+        for (int i = 0; i < USERS; i++) {
+            assertEquals("reader" + i + "@clinic.test", all.get(i).getEmail());
+            assertEquals(i % 2 == 0 ? 1 : 2, all.get(i).getRoles().size());
+        }
+    }
+
+    @Test
+    void failsWithNotFoundForAnUnknownEmail() {
+        assertThrows(NotFoundException.class, () -> userReadService.getUserByEmail("nobody@clinic.test").block());
+    }
+
+    @Test
+    void servesTheStreamAsNdjson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/clinical/reactive/users").param("limit", "3")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(3, body.lines().count());
+    }
+
+    @Test
+    void rejectsALimitOutOfRange() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/clinical/reactive/users").param("limit", "0"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isBadRequest());
+    }
+}
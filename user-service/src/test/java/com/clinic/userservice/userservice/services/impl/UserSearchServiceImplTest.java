@@ -0,0 +1,121 @@
+package com.clinic.userservice.userservice.services.impl;
+
+import com.clinic.commonservice.exceptions.BadRequestException;
+import com.clinic.userservice.userservice.persistence.projections.UserNameView;
+import com.clinic.userservice.userservice.persistence.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserSearchServiceImplTest {
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserSearchServiceImpl search = new UserSearchServiceImpl(userRepository);
+
+    @Test
+    void matchesIgnoringCaseAndAccents() {
+        search.index(1L, "José Pérez");
+        search.index(2L, "Ana Gómez");
+
+        assertEquals(List.of(1L), search.search("JOSE perez", 0, 10).getContent());
+        assertEquals(List.of(2L), search.search("gomez", 0, 10).getContent());
+        assertEquals(0, search.search("lopez", 0, 10).getTotalElements());
+    }
+
+    @Test
+    void ranksExactMatchesThenPrefixesThenContainedTokens() {
+        search.index(1L, "Mariano Rossi");
+        search.index(2L, "Rosa Ana Mari");
+        search.index(3L, "Ana Maria Paz");
+        search.index(4L, "Ana Mari");
+        search.index(5L, "Rosmari Paz");
+
+        // exact before prefix before contained, ties to the shorter name
+        assertEquals(List.of(4L, 2L, 1L, 3L, 5L), search.search("mari", 0, 10).getContent());
+        assertEquals(List.of(1L), search.search("ariano", 0, 10).getContent());
+    }
+
+    @Test
+    void requiresEveryQueryTokenAndPagesTheRanking() {
+        search.index(1L, "Carlos Diaz");
+        search.index(2L, "Carlos Ruiz");
+        search.index(3L, "Carla Diaz");
+
+        assertEquals(List.of(1L), search.search("carlos diaz", 0, 10).getContent());
+        assertEquals(2, search.search("carlos", 0, 1).getTotalElements());
+        assertEquals(List.of(2L), search.search("carlos", 1, 1).getContent());
+    }
+
+    @Test
+    void reindexingAndRemovingReplaceThePreviousEntry() {
+        search.index(1L, "Laura Funes");
+        search.index(1L, "Laura Vidal");
+        search.index(2L, "Laura Funes");
+        search.remove(2L);
+
+        assertEquals(0, search.search("funes", 0, 10).getTotalElements());
+        assertEquals(List.of(1L), search.search("vidal", 0, 10).getContent());
+    }
+
+    @Test
+    void stopsScanningACommonNameAfterThePageAndTheLookAhead() {
+        int users = 200_000;
+        for (long id = 1; id <= users; id++) search.index(id, "Mariana Martinez");
+
+        var result = search.search("mar", 0, 20);
+
+        // every user contains "mar": the scan stops at the cap instead of walking all of them
+        assertEquals(20 + UserSearchServiceImpl.MATCH_LOOK_AHEAD, result.getTotalElements());
+        assertEquals(20, result.getContent().size());
+        assertEquals(4 + UserSearchServiceImpl.MATCH_LOOK_AHEAD, search.search("mariana", 1, 2).getTotalElements());
+    }
+
+    @Test
+    void rejectsQueriesWithoutSearchableCharacters() {
+        assertThrows(BadRequestException.class, () -> search.search("a -", 0, 10));
+    }
+
+    @Test
+    void keepsServingTheCurrentIndexWhileRebuildingAndKeepsConcurrentChanges() {
+        search.index(1L, "Old Name");
+        search.index(2L, "Paula Sosa");
+        when(userRepository.findNamesAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            // a search during the rebuild still sees every user of the current index
+            assertEquals(List.of(2L), search.search("sosa", 0, 10).getContent());
+            // user 1 is renamed and user 2 deleted after the rows below were read
+            search.index(1L, "New Name");
+            search.remove(2L);
+            return new SliceImpl<>(List.of(user(1L, "Old Name"), user(2L, "Paula Sosa"), user(3L, "Juan Sosa")),
+                    PageRequest.of(0, 5_000), false);
+        });
+
+        search.rebuild();
+
+        assertEquals(List.of(1L), search.search("new", 0, 10).getContent());
+        assertEquals(0, search.search("old", 0, 10).getTotalElements());
+        assertEquals(List.of(3L), search.search("sosa", 0, 10).getContent());
+    }
+
+    private static UserNameView user(Long id, String fullName) {
+        return new UserNameView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getFullName() {
+                return fullName;
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package com.clinic.userservice.userservice.services.impl;
+
+import com.clinic.commonservice.enums.RoleName;
+import com.clinic.userservice.userservice.api.models.requests.UserRequest;
+import com.clinic.userservice.userservice.persistence.entities.Role;
+import com.clinic.userservice.userservice.persistence.entities.UserApp;
+import com.clinic.userservice.userservice.persistence.repository.RoleRepository;
+import com.clinic.userservice.userservice.persistence.repository.UserRepository;
+import com.clinic.userservice.userservice.services.contracts.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// its own database; the users saved directly below are not in the membership filters,
+// as if another instance had registered them
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:uniqueness;MODE=MySQL;DB_CLOSE_DELAY=-1")
+class UserServiceImplTest {
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @BeforeEach
+    void seed() {
+        roleRepository.findByRole(RoleName.ROLE_USER)
+                .orElseGet(() -> roleRepository.save(Role.builder().role(RoleName.ROLE_USER).build()));
+        if (userRepository.findByEmail("other@instance.test").isPresent()) return;
+        userRepository.save(UserApp.builder().fullName("Other Instance").email("other@instance.test").dni("62000001").build());
+        userRepository.save(UserApp.builder().fullName("Local User").email("local@instance.test").dni("62000002").build());
+    }
+
+    @Test
+    void createWithADniRegisteredConcurrentlyFailsAsDniAlreadyExists() {
+        UserRequest request = UserRequest.builder().fullName("Late Twin").email("twin@instance.test")
+                .address("Street 1").phone("555-1").gender("F").dni("62000001").role(RoleName.ROLE_USER).build();
+
+        var e = assertThrows(DataIntegrityViolationException.class, () -> userService.createUser(request));
+
+        // DataIntegrityViolationExceptionHandler answers 400 "DNI already exists." for this constraint
+        assertTrue(violated(e, UserApp.UK_DNI));
+        assertTrue(userRepository.findByEmail("twin@instance.test").isEmpty());
+    }
+
+    @Test
+    void updateToAnEmailRegisteredConcurrentlyFailsAsEmailAlreadyExists() {
+        Long id = userRepository.findByEmail("local@instance.test").orElseThrow().getId();
+        UserRequest request = UserRequest.builder().email("other@instance.test").build();
+
+        var e = assertThrows(DataIntegrityViolationException.class, () -> userService.updateUser(id, request));
+
+        assertTrue(violated(e, UserApp.UK_EMAIL));
+        assertEquals("local@instance.test", userRepository.findById(id).orElseThrow().getEmail());
+    }
+
+    private static boolean violated(DataIntegrityViolationException e, String constraint) {
+        return String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT).contains(constraint);
+    }
+}
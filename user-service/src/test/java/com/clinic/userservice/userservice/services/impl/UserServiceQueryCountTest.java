@@ -0,0 +1,126 @@
+package com.clinic.userservice.userservice.services.impl;
+
+import com.clinic.commonservice.enums.RoleName;
+import com.clinic.userservice.userservice.api.models.responses.CursorPageResponse;
+import com.clinic.userservice.userservice.api.models.responses.UserResponse;
+import com.clinic.userservice.userservice.configs.cache.CacheConfig;
+import com.clinic.userservice.userservice.persistence.entities.Role;
+import com.clinic.userservice.userservice.persistence.entities.UserApp;
+import com.clinic.userservice.userservice.persistence.repository.RoleRepository;
+import com.clinic.userservice.userservice.persistence.repository.UserRepository;
+import com.clinic.userservice.userservice.services.contracts.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// its own database, as the counts below expect exactly the users seeded here
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:querycount;MODE=MySQL;DB_CLOSE_DELAY=-1")
+class UserServiceQueryCountTest {
+    private static final int USERS = 60;
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void seed() {
+        if (userRepository.count() > 0) return;
+        Role admin = roleRepository.save(Role.builder().role(RoleName.ROLE_ADMIN).build());
+        Role user = roleRepository.save(Role.builder().role(RoleName.ROLE_USER).build());
+        List<UserApp> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(UserApp.builder()
+                    .fullName("Patient " + i)
+                    .email("patient" + i + "@clinic.test")
+                    .dni(String.valueOf(30_000_000 + i))
+                    .roles(i % 2 == 0 ? Set.of(user) : Set.of(user, admin))
+                    .build());
+        }
+        userRepository.saveAll(users);
+    }
+
+    @Test
+    void pagedListingRunsTheSameStatementsForAnyPageSize() {
+        long small = statementsFor(0, 5);
+        long large = statementsFor(0, 50);
+        long deep = statementsFor(3, 10);
+
+        // page of users, count, roles of the page
+        assertEquals(3, small);
+        assertEquals(small, large);
+        assertEquals(small, deep);
+    }
+
+    @Test
+    void pagedListingLoadsRoles() {
+        Page<UserResponse> page = userService.getUsers(0, 10);
+
+        assertEquals(10, page.getContent().size());
+        assertEquals(USERS, page.getTotalElements());
+        page.getContent().forEach(user -> assertFalse(user.getRoles().isEmpty()));
+        assertEquals(2, page.getContent().get(1).getRoles().size());
+    }
+
+    @Test
+    void cursorSlicesVisitEveryUserOnceWithTheSameStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Long> ids = new ArrayList<>();
+        Set<Long> statements = new HashSet<>();
+        String cursor = "";
+        CursorPageResponse<UserResponse> slice;
+        do {
+            statistics.clear();
+            slice = userService.getUsers(cursor, 7, false);
+            statements.add(statistics.getPrepareStatementCount());
+            slice.getContent().forEach(user -> ids.add(user.getId()));
+            cursor = slice.getNextCursor();
+        } while (slice.isHasNext());
+
+        assertEquals(USERS, ids.size());
+        assertEquals(ids.stream().sorted().distinct().toList(), ids);
+        // slice of users and roles of the slice, no count
+        assertEquals(Set.of(2L), statements);
+        assertNull(slice.getApproximateTotal());
+        assertEquals(USERS, userService.getUsers("", 1, true).getApproximateTotal());
+    }
+
+    @Test
+    void lookupsByEmailShareOneCacheEntryWhateverTheCase() {
+        cacheManager.getCache(CacheConfig.USERS_BY_EMAIL).clear();
+        UserResponse user = userService.getUserByEmail("patient3@clinic.test");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertEquals(user, userService.getUserByEmail("Patient3@Clinic.TEST"));
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    private long statementsFor(int page, int size) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        userService.getUsers(page, size);
+        return statistics.getPrepareStatementCount();
+    }
+}
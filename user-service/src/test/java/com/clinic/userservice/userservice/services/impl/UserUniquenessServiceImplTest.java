@@ -0,0 +1,141 @@
+package com.clinic.userservice.userservice.services.impl;
+
+import com.clinic.userservice.userservice.persistence.projections.UserKeysView;
+import com.clinic.userservice.userservice.persistence.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserUniquenessServiceImplTest {
+    private static final int CAPACITY = 20;
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserUniquenessServiceImpl uniqueness = new UserUniquenessServiceImpl(userRepository);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(uniqueness, "expectedInsertions", (long) CAPACITY);
+        ReflectionTestUtils.setField(uniqueness, "falsePositiveRate", 0.001);
+        when(userRepository.findKeysAfter(anyLong(), any(Pageable.class))).thenReturn(slice(
+                keys(1L, "Ana@Clinic.test", "30000001"), keys(2L, "bruno@clinic.test", "30000002")));
+    }
+
+    @Test
+    void everyValueMayExistUntilTheFirstRebuild() {
+        assertTrue(uniqueness.mightContainEmail("anyone@clinic.test"));
+        assertTrue(uniqueness.mightContainDni("1"));
+    }
+
+    @Test
+    void answersAbsentValuesWithoutQueryingTheDatabase() {
+        uniqueness.rebuild();
+
+        assertTrue(uniqueness.mightContainEmail("ana@clinic.test"));
+        assertTrue(uniqueness.mightContainEmail(" BRUNO@clinic.test "));
+        assertTrue(uniqueness.mightContainDni("30000002"));
+        assertFalse(uniqueness.emailExists("carla@clinic.test"));
+        assertFalse(uniqueness.dniExists("30000003"));
+        verify(userRepository, never()).existsByEmail(anyString());
+        verify(userRepository, never()).existsByDni(anyString());
+    }
+
+    @Test
+    void confirmsPossibleHitsAgainstTheDatabase() {
+        uniqueness.rebuild();
+        when(userRepository.existsByEmail("ana@clinic.test")).thenReturn(true);
+
+        assertTrue(uniqueness.emailExists("ana@clinic.test"));
+        verify(userRepository).existsByEmail("ana@clinic.test");
+    }
+
+    @Test
+    void registeringKnownValuesAgainDoesNotSaturateTheFilters() {
+        uniqueness.rebuild();
+
+        for (int i = 0; i < CAPACITY * 3; i++) uniqueness.register("Ana@Clinic.test", "30000001");
+
+        verify(userRepository, after(300).times(1)).findKeysAfter(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void registeringMoreNewValuesThanTheCapacityRebuildsTheFilters() {
+        uniqueness.rebuild();
+
+        for (int i = 0; i <= CAPACITY; i++) uniqueness.register("new" + i + "@clinic.test", "4000000" + i);
+
+        // the rebuild runs concurrently with the loop, which may saturate the new filters again
+        verify(userRepository, timeout(2_000).atLeast(2)).findKeysAfter(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void keepsValuesRegisteredWhileRebuilding() {
+        when(userRepository.findKeysAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            // a user saved after the rows below were read
+            uniqueness.register("late@clinic.test", "30000009");
+            return slice(keys(1L, "ana@clinic.test", "30000001"));
+        });
+
+        uniqueness.rebuild();
+
+        assertTrue(uniqueness.mightContainEmail("late@clinic.test"));
+        assertTrue(uniqueness.mightContainDni("30000009"));
+        assertTrue(uniqueness.mightContainEmail("ana@clinic.test"));
+    }
+
+    @Test
+    void keepsValuesRegisteredBeforeTheUsersAreCounted() {
+        when(userRepository.count()).thenAnswer(invocation -> {
+            // a user saved while the rebuild counts, before its filters exist
+            uniqueness.register("early@clinic.test", "30000008");
+            return 2L;
+        });
+
+        uniqueness.rebuild();
+
+        assertTrue(uniqueness.mightContainEmail("early@clinic.test"));
+        assertTrue(uniqueness.mightContainDni("30000008"));
+        assertFalse(uniqueness.mightContainEmail("nobody@clinic.test"));
+    }
+
+    private static SliceImpl<UserKeysView> slice(UserKeysView... users) {
+        return new SliceImpl<>(List.of(users), PageRequest.of(0, 5_000), false);
+    }
+
+    private static UserKeysView keys(Long id, String email, String dni) {
+        return new UserKeysView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getEmail() {
+                return email;
+            }
+
+            @Override
+            public String getDni() {
+                return dni;
+            }
+        };
+    }
+}
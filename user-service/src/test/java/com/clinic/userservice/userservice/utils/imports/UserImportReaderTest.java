@@ -0,0 +1,117 @@
+package com.clinic.userservice.userservice.utils.imports;
+
+import com.clinic.commonservice.enums.RoleName;
+import com.clinic.commonservice.exceptions.BadRequestException;
+import com.clinic.userservice.userservice.api.models.requests.UserRequest;
+import com.clinic.userservice.userservice.api.models.responses.UserResponse;
+import com.clinic.userservice.userservice.utils.exports.ExportFormat;
+import com.clinic.userservice.userservice.utils.exports.UserExportWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserImportReaderTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void readsBackAnExportWithQuotedLineBreaksCommasAndQuotes() throws IOException {
+        ByteArrayOutputStream export = new ByteArrayOutputStream();
+        try (UserExportWriter writer = new UserExportWriter(export, ExportFormat.CSV, objectMapper)) {
+            writer.write(user(1L, "Ana Diaz", "ana@clinic.test", "Street 1\nFloor \"B\", left"));
+            writer.write(user(2L, "Bruno Paz", "bruno@clinic.test", "Street 2\r\n\r\nBack door"));
+            writer.write(user(3L, "Carla Ruiz", "carla@clinic.test", "Street 3"));
+        }
+
+        List<ImportRow> rows = read(export.toString(StandardCharsets.UTF_8), ImportFormat.CSV);
+
+        assertEquals(3, rows.size());
+        assertEquals(List.of(1L, 2L, 3L), rows.stream().map(ImportRow::row).toList());
+        assertEquals("Street 1\nFloor \"B\", left", rows.get(0).request().getAddress());
+        assertEquals("Ana Diaz", rows.get(0).request().getFullName());
+        assertEquals("Street 2\n\nBack door", rows.get(1).request().getAddress());
+        assertEquals("bruno@clinic.test", rows.get(1).request().getEmail());
+        assertEquals("carla@clinic.test", rows.get(2).request().getEmail());
+    }
+
+    @Test
+    void mapsColumnsByHeaderIgnoringCaseOrderAndBlankLines() {
+        List<ImportRow> rows = read("""
+                EMAIL,fullname,role,unknown
+                
+                ana@clinic.test, Ana Diaz ,ROLE_DOCTOR,x
+                bruno@clinic.test,,,
+                """, ImportFormat.CSV);
+
+        assertEquals(2, rows.size());
+        UserRequest ana = rows.get(0).request();
+        assertEquals("Ana Diaz", ana.getFullName());
+        assertEquals(RoleName.ROLE_DOCTOR, ana.getRole());
+        assertNull(rows.get(1).request().getFullName());
+        assertNull(rows.get(1).request().getRole());
+    }
+
+    @Test
+    void reportsAnUnterminatedQuoteAtTheEndOfTheFile() {
+        List<ImportRow> rows = read("fullName,email\nAna,ana@clinic.test\n\"Bruno,bruno@clinic.test\nCarla,carla@clinic.test\n",
+                ImportFormat.CSV);
+
+        assertEquals(2, rows.size());
+        assertEquals("ana@clinic.test", rows.get(0).request().getEmail());
+        assertNull(rows.get(1).request());
+        assertEquals(List.of("Unterminated quoted value"), rows.get(1).errors());
+    }
+
+    @Test
+    void reportsAnInvalidRole() {
+        List<ImportRow> rows = read("email,role\nana@clinic.test,ROLE_KING\n", ImportFormat.CSV);
+
+        assertEquals(List.of("Invalid role: ROLE_KING"), rows.getFirst().errors());
+    }
+
+    @Test
+    void requiresAHeaderWithAnEmailColumn() {
+        assertThrows(BadRequestException.class, () -> read("", ImportFormat.CSV));
+        assertThrows(BadRequestException.class, () -> read("fullName,dni\nAna,1\n", ImportFormat.CSV));
+    }
+
+    @Test
+    void readsOneRequestPerNdjsonLineAndReportsMalformedOnes() {
+        List<ImportRow> rows = read("""
+                {"fullName":"Ana Diaz","email":"ana@clinic.test"}
+                {"fullName":
+                {"email":"bruno@clinic.test","role":"ROLE_USER"}
+                """, ImportFormat.NDJSON);
+
+        assertEquals(3, rows.size());
+        assertEquals("Ana Diaz", rows.get(0).request().getFullName());
+        assertNull(rows.get(1).request());
+        assertEquals(RoleName.ROLE_USER, rows.get(2).request().getRole());
+        assertEquals(3L, rows.get(2).row());
+    }
+
+    private List<ImportRow> read(String input, ImportFormat format) {
+        List<ImportRow> rows = new ArrayList<>();
+        try (UserImportReader reader = new UserImportReader(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), format, objectMapper)) {
+            reader.forEachRemaining(rows::add);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return rows;
+    }
+
+    private static UserResponse user(Long id, String fullName, String email, String address) {
+        return UserResponse.builder().id(id).fullName(fullName).email(email).address(address)
+                .phone("555-" + id).gender("F").dni(String.valueOf(30_000_000 + id)).build();
+    }
+}
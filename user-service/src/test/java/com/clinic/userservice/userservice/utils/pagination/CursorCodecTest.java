@@ -0,0 +1,37 @@
+package com.clinic.userservice.userservice.utils.pagination;
+
+import com.clinic.commonservice.exceptions.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CursorCodecTest {
+
+    @Test
+    void decodesTheEncodedId() {
+        assertEquals(42L, CursorCodec.decode(CursorCodec.encode(42L)));
+        assertEquals(Long.MAX_VALUE, CursorCodec.decode(CursorCodec.encode(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void startsFromTheFirstSliceWithoutCursor() {
+        assertEquals(0L, CursorCodec.decode(null));
+        assertEquals(0L, CursorCodec.decode(""));
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThrows(BadRequestException.class, () -> CursorCodec.decode("not base64!"));
+        assertThrows(BadRequestException.class, () -> CursorCodec.decode(token("v2:10")));
+        assertThrows(BadRequestException.class, () -> CursorCodec.decode(token("v1:ten")));
+        assertThrows(BadRequestException.class, () -> CursorCodec.decode(token("v1:-1")));
+    }
+
+    private static String token(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,39 @@
+package com.clinic.userservice.userservice.utils.validators;
+
+import com.clinic.userservice.userservice.api.models.requests.UserEnabledRequest;
+import com.clinic.userservice.userservice.api.models.requests.UserRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserRequestValidatorTest {
+
+    @Test
+    void reportsEveryErrorOfAnUpdateAtOnce() {
+        UserRequest request = UserRequest.builder().email("ana@clinic").dni("30000001").build();
+
+        List<String> errors = UserRequestValidator.validateUpdate(request, email -> false, "30000001"::equals);
+
+        assertEquals(List.of("Invalid email", "DNI already exists"), errors);
+    }
+
+    @Test
+    void leavesAbsentFieldsOfAnUpdateUnchecked() {
+        UserRequest request = UserRequest.builder().fullName("Ana").build();
+
+        assertTrue(UserRequestValidator.validateUpdate(request, email -> true, dni -> true).isEmpty());
+    }
+
+    @Test
+    void reportsEveryErrorOfAnActivationAtOnce() {
+        UserEnabledRequest weak = UserEnabledRequest.builder().password("weak").confirmPassword("other").build();
+        UserEnabledRequest missing = UserEnabledRequest.builder().build();
+
+        assertEquals(List.of("Invalid password", "Passwords do not match"), UserEnabledRequestValidator.validate(weak));
+        assertEquals(List.of("password must not be null or empty", "confirmPassword must not be null or empty"),
+                UserEnabledRequestValidator.validate(missing));
+    }
+}